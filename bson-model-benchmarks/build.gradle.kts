@@ -0,0 +1,59 @@
+plugins {
+    id("bson-model.java-library-conventions")
+}
+
+val jmhVersion = "1.37"
+
+dependencies {
+
+    implementation(project(":bson-model-core"))
+    implementation("org.mongodb:mongodb-driver-core")
+    implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+    runtimeOnly("org.apache.logging.log4j:log4j-slf4j2-impl")
+
+}
+
+description = "bson-model/Benchmarks"
+
+sourceSets {
+    main {
+        java {
+            // benchmark against the models generated for the generator tests,
+            // the includes apply to all source directories of the set
+            srcDir("../bson-model-generator/src/test/java")
+            include("com/github/fmjsjx/bson/model/benchmarks/**")
+            include("com/github/fmjsjx/bson/model2/generator/benchmarks/**")
+            include("com/github/fmjsjx/bson/model/generator/model/**")
+            include("com/github/fmjsjx/bson/model2/generator/model/**")
+        }
+    }
+}
+
+tasks.withType<Javadoc> {
+    enabled = false
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks, e.g. -Pjmh.args=\"PlayerBenchmark -p size=100\""
+    dependsOn(tasks.classes)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    val jmhArgs = (findProperty("jmh.args") as String?) ?: ""
+    args = listOf("-prof", "gc", "-rf", "json", "-rff", layout.buildDirectory.file("reports/jmh/results.json").get().asFile.path) +
+            jmhArgs.split(' ').filter { it.isNotBlank() }
+    doFirst {
+        layout.buildDirectory.dir("reports/jmh").get().asFile.mkdirs()
+    }
+}
+
+tasks.register<JavaExec>("soak") {
+    group = "benchmark"
+    description = "Runs the soak load generator, e.g. -Psoak.args=\"players=10000 threads=8 duration=300\""
+    dependsOn(tasks.classes)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "com.github.fmjsjx.bson.model.benchmarks.PlayerSoak"
+    val soakArgs = (findProperty("soak.args") as String?) ?: ""
+    args = soakArgs.split(' ').filter { it.isNotBlank() }
+}
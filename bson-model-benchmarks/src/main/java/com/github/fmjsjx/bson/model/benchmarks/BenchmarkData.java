@@ -0,0 +1,198 @@
+package com.github.fmjsjx.bson.model.benchmarks;
+
+import com.github.fmjsjx.bson.model2.generator.model.Equipment;
+import com.github.fmjsjx.bson.model2.generator.model.GisCoordinates;
+import com.github.fmjsjx.bson.model2.generator.model.Player;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Factory of the benchmark data.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class BenchmarkData {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    /**
+     * Creates a new v2 {@link Player} with the specified number of items and
+     * equipments.
+     *
+     * @param size the number of entries of each map field
+     * @return a new {@code Player} without any changes
+     */
+    public static Player v2Player(int size) {
+        var player = new Player();
+        player.setId(1);
+        var basicInfo = player.getBasicInfo();
+        basicInfo.setName("benchmark");
+        basicInfo.setAvatar("");
+        basicInfo.setLastLoginTime(TIME);
+        basicInfo.setLoginDays(List.of(TIME.toLocalDate().minusDays(1), TIME.toLocalDate()));
+        basicInfo.setWorkTimes(List.of(LocalTime.of(8, 0), LocalTime.of(20, 0)));
+        basicInfo.setGis(new GisCoordinates());
+        basicInfo.getGis().setLongitude(121.569894);
+        basicInfo.getGis().setLatitude(31.251832);
+        basicInfo.setBirthday(LocalDate.of(2000, 1, 23));
+        basicInfo.setBirthtime(LocalTime.of(17, 18));
+        player.getWallet().setCoinTotal(100_000);
+        player.getWallet().setCoinUsed(1_000);
+        player.getWallet().setDiamond(100);
+        var items = player.getItems();
+        var equipments = player.getEquipments();
+        for (var i = 0; i < size; i++) {
+            items.put(10001 + i, i + 1);
+            equipments.put(equipmentId(i), v2Equipment(i));
+        }
+        player.setCreateTime(TIME);
+        player.setUpdateTime(TIME);
+        player.reset();
+        return player;
+    }
+
+    /**
+     * Creates a new v2 {@link Equipment}.
+     *
+     * @param i the sequence number
+     * @return a new {@code Equipment}
+     */
+    public static Equipment v2Equipment(int i) {
+        var equipment = new Equipment();
+        equipment.setId(equipmentId(i));
+        equipment.setRefId(1 + i % 100);
+        equipment.setAtk(10 + i % 7);
+        equipment.setDef(5 + i % 3);
+        equipment.setHp(100);
+        equipment.setExtension(new BsonDocument("key", new BsonString("value" + i)));
+        return equipment;
+    }
+
+    /**
+     * Changes about 10 percent of the items and equipments, and some wallet
+     * fields of the specified v2 {@link Player}.
+     *
+     * @param player the player
+     * @param size   the number of entries of each map field
+     * @param round  the round number, to make values different in each round
+     */
+    public static void mutate(Player player, int size, int round) {
+        player.getWallet().addCoinTotal(10);
+        player.getWallet().increaseAd();
+        player.increaseUpdateVersion();
+        var items = player.getItems();
+        var equipments = player.getEquipments();
+        for (var i = round % 10; i < size; i += 10) {
+            items.put(10001 + i, round + i);
+            var equipment = equipments.get(equipmentId(i));
+            if (equipment != null) {
+                equipment.setAtk(round + i);
+            }
+        }
+    }
+
+    /**
+     * Creates a new v2 {@link Player} which holds the same data as the v1
+     * player created by {@link #v1Player(int)}.
+     * <p>
+     * Only the fields which also exist on the v1 model are filled.
+     *
+     * @param size the number of entries of each map field
+     * @return a new {@code Player} without any changes
+     */
+    public static Player v2EquivalentPlayer(int size) {
+        var player = new Player();
+        player.setId(1);
+        player.getWallet().setCoinTotal(100_000);
+        player.getWallet().setCoinUsed(1_000);
+        player.getWallet().setDiamond(100);
+        var items = player.getItems();
+        var equipments = player.getEquipments();
+        for (var i = 0; i < size; i++) {
+            items.put(10001 + i, i + 1);
+            var equipment = v2Equipment(i);
+            equipment.setExtension(null);
+            equipments.put(equipmentId(i), equipment);
+        }
+        player.setCreateTime(TIME);
+        player.setUpdateTime(TIME);
+        player.reset();
+        return player;
+    }
+
+    /**
+     * Creates a new v1 {@link com.github.fmjsjx.bson.model.generator.model.Player}
+     * with the specified number of items and equipments.
+     *
+     * @param size the number of entries of each map field
+     * @return a new {@code Player} without any changes
+     */
+    public static com.github.fmjsjx.bson.model.generator.model.Player v1Player(int size) {
+        var player = new com.github.fmjsjx.bson.model.generator.model.Player();
+        player.setUid(1);
+        player.getWallet().setCoinTotal(100_000);
+        player.getWallet().setCoinUsed(1_000);
+        player.getWallet().setDiamond(100);
+        var items = player.getItems();
+        var equipments = player.getEquipments();
+        for (var i = 0; i < size; i++) {
+            items.put(10001 + i, i + 1);
+            equipments.put(equipmentId(i), v1Equipment(i));
+        }
+        player.setCreateTime(TIME);
+        player.setUpdateTime(TIME);
+        player.reset();
+        return player;
+    }
+
+    /**
+     * Creates a new v1 {@link com.github.fmjsjx.bson.model.generator.model.Equipment}.
+     *
+     * @param i the sequence number
+     * @return a new {@code Equipment}
+     */
+    public static com.github.fmjsjx.bson.model.generator.model.Equipment v1Equipment(int i) {
+        var equipment = new com.github.fmjsjx.bson.model.generator.model.Equipment();
+        equipment.setId(equipmentId(i));
+        equipment.setRefId(1 + i % 100);
+        equipment.setAtk(10 + i % 7);
+        equipment.setDef(5 + i % 3);
+        equipment.setHp(100);
+        return equipment;
+    }
+
+    /**
+     * Changes the specified v1 {@link com.github.fmjsjx.bson.model.generator.model.Player}
+     * in the same way as {@link #mutate(Player, int, int)}.
+     *
+     * @param player the player
+     * @param size   the number of entries of each map field
+     * @param round  the round number, to make values different in each round
+     */
+    public static void mutate(com.github.fmjsjx.bson.model.generator.model.Player player, int size, int round) {
+        player.getWallet().addCoinTotal(10);
+        player.getWallet().increaseAd();
+        player.increaseUpdateVersion();
+        var items = player.getItems();
+        var equipments = player.getEquipments();
+        for (var i = round % 10; i < size; i += 10) {
+            var value = round + i;
+            items.put(10001 + i, value);
+            equipments.get(equipmentId(i)).ifPresent(equipment -> equipment.setAtk(value));
+        }
+    }
+
+    static String equipmentId(int i) {
+        return String.format("equipment-%08d", i);
+    }
+
+    private BenchmarkData() {
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.github.fmjsjx.bson.model.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe log-linear histogram of latencies in nanoseconds.
+ * <p>
+ * Each power of two range is split into {@code 16} linear sub-buckets, so
+ * the relative error of the percentiles is less than {@code 6.25%}.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private static int indexOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        var exponent = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        var subBucket = (int) (nanos >>> exponent) - SUB_BUCKETS;
+        return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        var exponent = index / SUB_BUCKETS - 1;
+        var subBucket = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << exponent) - 1;
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(nanos));
+    }
+
+    /**
+     * Takes the recorded values and resets this histogram.
+     *
+     * @return a snapshot of the recorded values
+     */
+    public Snapshot takeAndReset() {
+        var counts = this.counts;
+        var values = new long[BUCKETS];
+        var total = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            total += values[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(values, total);
+    }
+
+    /**
+     * A snapshot of a {@link LatencyHistogram}.
+     *
+     * @param counts the counts of each bucket
+     * @param total  the total count
+     */
+    public record Snapshot(long[] counts, long total) {
+
+        /**
+         * Returns the value at the specified percentile.
+         *
+         * @param percentile the percentile, between {@code 0} and {@code 100}
+         * @return the value in nanoseconds, or {@code 0} if there are no values
+         */
+        public long percentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            var rank = (long) Math.ceil(total * percentile / 100);
+            var count = 0L;
+            var counts = this.counts;
+            for (var i = 0; i < counts.length; i++) {
+                count += counts[i];
+                if (count >= Math.max(rank, 1)) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(counts.length - 1);
+        }
+
+    }
+
+}
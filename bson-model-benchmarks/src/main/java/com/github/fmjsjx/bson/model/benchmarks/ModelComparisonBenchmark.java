@@ -0,0 +1,129 @@
+package com.github.fmjsjx.bson.model.benchmarks;
+
+import com.github.fmjsjx.bson.model2.generator.model.Player;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the generated v1 and v2 {@code Player} models holding the same
+ * data.
+ * <p>
+ * Each operation has a {@code v1*} and a {@code v2*} benchmark. Run with
+ * {@code ./gradlew :bson-model-benchmarks:jmh -Pjmh.args=ModelComparisonBenchmark},
+ * the {@code gc.alloc.rate.norm} metrics reported by the GC profiler are
+ * the bytes allocated per operation.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelComparisonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    com.github.fmjsjx.bson.model.generator.model.Player v1Player;
+    com.github.fmjsjx.bson.model.generator.model.Player v1ChangedPlayer;
+    BsonDocument v1Bson;
+    Player v2Player;
+    Player v2ChangedPlayer;
+    BsonDocument v2Bson;
+    int round;
+
+    @Setup
+    public void setup() {
+        v1Player = BenchmarkData.v1Player(size);
+        v1ChangedPlayer = BenchmarkData.v1Player(size);
+        BenchmarkData.mutate(v1ChangedPlayer, size, 1);
+        v1Bson = v1Player.toBson();
+        v2Player = BenchmarkData.v2EquivalentPlayer(size);
+        v2ChangedPlayer = BenchmarkData.v2EquivalentPlayer(size);
+        BenchmarkData.mutate(v2ChangedPlayer, size, 1);
+        v2Bson = v2Player.toBson();
+    }
+
+    @Benchmark
+    public com.github.fmjsjx.bson.model.generator.model.Player v1Load() {
+        var player = new com.github.fmjsjx.bson.model.generator.model.Player();
+        player.load(v1Bson);
+        return player;
+    }
+
+    @Benchmark
+    public Player v2Load() {
+        return new Player().load(v2Bson);
+    }
+
+    @Benchmark
+    public BsonDocument v1ToBson() {
+        return v1Player.toBson();
+    }
+
+    @Benchmark
+    public BsonDocument v2ToBson() {
+        return v2Player.toBson();
+    }
+
+    @Benchmark
+    public List<Bson> v1ToUpdates() {
+        return v1ChangedPlayer.toUpdates();
+    }
+
+    @Benchmark
+    public List<Bson> v2ToUpdates() {
+        return v2ChangedPlayer.toUpdates();
+    }
+
+    /**
+     * Loads, changes and produces the updates of a v1 player, which is the
+     * whole life cycle of a request.
+     *
+     * @return the updates
+     */
+    @Benchmark
+    public List<Bson> v1LoadMutateToUpdates() {
+        var player = new com.github.fmjsjx.bson.model.generator.model.Player();
+        player.load(v1Bson);
+        BenchmarkData.mutate(player, size, ++round);
+        return player.toUpdates();
+    }
+
+    /**
+     * Loads, changes and produces the updates of a v2 player, which is the
+     * whole life cycle of a request.
+     *
+     * @return the updates
+     */
+    @Benchmark
+    public List<Bson> v2LoadMutateToUpdates() {
+        var player = new Player().load(v2Bson);
+        BenchmarkData.mutate(player, size, ++round);
+        return player.toUpdates();
+    }
+
+    @Benchmark
+    public com.github.fmjsjx.bson.model.generator.model.Player v1MutateAndReset() {
+        var player = v1Player;
+        BenchmarkData.mutate(player, size, ++round);
+        player.reset();
+        return player;
+    }
+
+    @Benchmark
+    public Player v2MutateAndReset() {
+        var player = v2Player;
+        BenchmarkData.mutate(player, size, ++round);
+        player.reset();
+        return player;
+    }
+
+}
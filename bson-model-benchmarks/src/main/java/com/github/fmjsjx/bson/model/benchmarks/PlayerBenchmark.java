@@ -0,0 +1,110 @@
+package com.github.fmjsjx.bson.model.benchmarks;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fmjsjx.bson.model2.generator.model.Player;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the hot paths of the generated v2 {@link Player} model.
+ * <p>
+ * Run with {@code ./gradlew :bson-model-benchmarks:jmh -Pjmh.args=PlayerBenchmark},
+ * the GC profiler is enabled by default to report allocation rates.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int size;
+
+    Player player;
+    Player changedPlayer;
+    BsonDocument bson;
+    JsonNode jsonNode;
+    JSONObject fastjson2Node;
+    int round;
+
+    @Setup
+    public void setup() {
+        player = BenchmarkData.v2Player(size);
+        changedPlayer = BenchmarkData.v2Player(size);
+        BenchmarkData.mutate(changedPlayer, size, 1);
+        bson = player.toBson();
+        jsonNode = player.toJsonNode();
+        fastjson2Node = player.toFastjson2Node();
+    }
+
+    @Benchmark
+    public Player loadBson() {
+        return new Player().load(bson);
+    }
+
+    @Benchmark
+    public Player loadJsonNode() {
+        return new Player().load(jsonNode);
+    }
+
+    @Benchmark
+    public Player loadFastjson2Node() {
+        return new Player().loadFastjson2Node(fastjson2Node);
+    }
+
+    @Benchmark
+    public BsonDocument toBson() {
+        return player.toBson();
+    }
+
+    @Benchmark
+    public JsonNode toJsonNode() {
+        return player.toJsonNode();
+    }
+
+    @Benchmark
+    public Map<Object, Object> toData() {
+        return player.toData();
+    }
+
+    @Benchmark
+    public List<Bson> toUpdates() {
+        return changedPlayer.toUpdates();
+    }
+
+    @Benchmark
+    public Map<Object, Object> toUpdateData() {
+        return changedPlayer.toUpdateData();
+    }
+
+    @Benchmark
+    public Player deepCopy() {
+        return player.deepCopy();
+    }
+
+    /**
+     * Changes about 10 percent of the player and then resets it, which is
+     * the cost paid by every flush.
+     *
+     * @return the player
+     */
+    @Benchmark
+    public Player mutateAndReset() {
+        var player = this.player;
+        BenchmarkData.mutate(player, size, ++round);
+        player.reset();
+        return player;
+    }
+
+}
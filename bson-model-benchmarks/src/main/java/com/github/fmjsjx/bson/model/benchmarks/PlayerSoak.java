@@ -0,0 +1,276 @@
+package com.github.fmjsjx.bson.model.benchmarks;
+
+import com.github.fmjsjx.bson.model2.generator.model.Player;
+import com.mongodb.client.model.Updates;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.conversions.Bson;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A soak load generator simulating a game server on the generated v2
+ * {@link Player} model.
+ * <p>
+ * Players are partitioned to worker threads, so each player is changed by
+ * only one thread. Every request applies a random mutation to a random
+ * player, and every {@code flush} requests of a player, the player is
+ * flushed: {@code toUpdates()} is encoded into an in-memory collection
+ * stand-in, {@code toUpdateData()} is produced for the client sync and
+ * then the player is {@code reset()}.
+ * <p>
+ * The p50/p99 latencies of each phase, the throughput and the GC pauses are
+ * reported every interval.
+ * <p>
+ * Run with {@code ./gradlew :bson-model-benchmarks:soak -Psoak.args="players=10000 threads=8 duration=300"}.
+ * Options:
+ * <ul>
+ * <li>{@code players} the number of players, default is {@code 10000}</li>
+ * <li>{@code threads} the number of worker threads, default is the number of processors</li>
+ * <li>{@code duration} the duration in seconds, default is {@code 60}</li>
+ * <li>{@code interval} the report interval in seconds, default is {@code 5}</li>
+ * <li>{@code size} the initial number of items and equipments of each player, default is {@code 50}</li>
+ * <li>{@code flush} the number of requests of a player between two flushes, default is {@code 10}</li>
+ * <li>{@code wallet}, {@code items}, {@code equipments} the weights of the mutation mix,
+ * default are {@code 60}, {@code 30} and {@code 10}</li>
+ * </ul>
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public class PlayerSoak {
+
+    private enum Phase {
+        MUTATE, TO_UPDATES, TO_UPDATE_DATA, WRITE, RESET
+    }
+
+    /**
+     * The in-memory stand-in of a MongoDB collection, which only encodes and
+     * keeps the last update document of each player.
+     */
+    private static final class InMemoryCollection {
+
+        private final BsonDocumentCodec codec = new BsonDocumentCodec();
+        private final ConcurrentHashMap<Integer, RawBsonDocument> documents = new ConcurrentHashMap<>();
+        private final LongAdder writtenBytes = new LongAdder();
+
+        private void updateOne(int id, List<Bson> updates) {
+            var document = new RawBsonDocument(Updates.combine(updates).toBsonDocument(), codec);
+            writtenBytes.add(document.getByteBuffer().remaining());
+            documents.put(id, document);
+        }
+
+    }
+
+    private final int players;
+    private final int threads;
+    private final int duration;
+    private final int interval;
+    private final int size;
+    private final int flush;
+    private final int walletWeight;
+    private final int itemsWeight;
+    private final int equipmentsWeight;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder syncedFields = new LongAdder();
+    private final InMemoryCollection collection = new InMemoryCollection();
+    private volatile boolean running = true;
+
+    PlayerSoak(Map<String, String> options) {
+        players = intOption(options, "players", 10000);
+        threads = intOption(options, "threads", Runtime.getRuntime().availableProcessors());
+        duration = intOption(options, "duration", 60);
+        interval = intOption(options, "interval", 5);
+        size = intOption(options, "size", 50);
+        flush = intOption(options, "flush", 10);
+        walletWeight = intOption(options, "wallet", 60);
+        itemsWeight = intOption(options, "items", 30);
+        equipmentsWeight = intOption(options, "equipments", 10);
+        if (players < threads || walletWeight + itemsWeight + equipmentsWeight <= 0) {
+            throw new IllegalArgumentException("invalid options: " + options);
+        }
+        for (var i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        var value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf("players=%d threads=%d duration=%ds size=%d flush=%d mix=%d/%d/%d%n",
+                players, threads, duration, size, flush, walletWeight, itemsWeight, equipmentsWeight);
+        var workers = Executors.newFixedThreadPool(threads);
+        for (var t = 0; t < threads; t++) {
+            var partition = new ArrayList<Player>();
+            for (var id = t; id < players; id += threads) {
+                var player = BenchmarkData.v2Player(size);
+                player.setId(id);
+                player.reset();
+                partition.add(player);
+            }
+            workers.execute(() -> work(partition));
+        }
+        try {
+            report();
+        } finally {
+            running = false;
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        System.out.printf("written %d documents, %d bytes, synced %d fields%n",
+                collection.documents.size(), collection.writtenBytes.sum(), syncedFields.sum());
+    }
+
+    private void work(List<Player> partition) {
+        var random = ThreadLocalRandom.current();
+        var histograms = this.histograms;
+        var requestCounts = new int[partition.size()];
+        var round = 0;
+        while (running) {
+            var index = random.nextInt(partition.size());
+            var player = partition.get(index);
+            var start = System.nanoTime();
+            mutate(player, random, ++round);
+            var end = System.nanoTime();
+            histograms[Phase.MUTATE.ordinal()].record(end - start);
+            requests.increment();
+            if (++requestCounts[index] >= flush) {
+                requestCounts[index] = 0;
+                flush(player);
+            }
+        }
+    }
+
+    private void mutate(Player player, ThreadLocalRandom random, int round) {
+        var r = random.nextInt(walletWeight + itemsWeight + equipmentsWeight);
+        if (r < walletWeight) {
+            var wallet = player.getWallet();
+            wallet.addCoinTotal(random.nextInt(1, 100));
+            if (random.nextBoolean()) {
+                wallet.addCoinUsed(1);
+            }
+            wallet.increaseAd();
+        } else if (r < walletWeight + itemsWeight) {
+            var items = player.getItems();
+            var key = 10001 + random.nextInt(size * 2);
+            if (random.nextInt(4) == 0) {
+                items.remove(key);
+            } else {
+                items.put(key, round);
+            }
+        } else {
+            var equipments = player.getEquipments();
+            var i = random.nextInt(size * 2);
+            var id = BenchmarkData.equipmentId(i);
+            if (equipments.containsKey(id)) {
+                if (random.nextBoolean()) {
+                    equipments.remove(id);
+                } else {
+                    equipments.get(id).setAtk(round);
+                }
+            } else {
+                equipments.put(id, BenchmarkData.v2Equipment(i));
+            }
+        }
+        player.increaseUpdateVersion();
+        player.setUpdateTime(LocalDateTime.now());
+    }
+
+    private void flush(Player player) {
+        var histograms = this.histograms;
+        var t0 = System.nanoTime();
+        var updates = player.toUpdates();
+        var t1 = System.nanoTime();
+        var data = player.toUpdateData();
+        var t2 = System.nanoTime();
+        if (!updates.isEmpty()) {
+            collection.updateOne(player.getId(), updates);
+        }
+        var t3 = System.nanoTime();
+        player.reset();
+        var t4 = System.nanoTime();
+        histograms[Phase.TO_UPDATES.ordinal()].record(t1 - t0);
+        histograms[Phase.TO_UPDATE_DATA.ordinal()].record(t2 - t1);
+        histograms[Phase.WRITE.ordinal()].record(t3 - t2);
+        histograms[Phase.RESET.ordinal()].record(t4 - t3);
+        flushes.increment();
+        syncedFields.add(data.size());
+    }
+
+    private void report() throws InterruptedException {
+        var gcs = ManagementFactory.getGarbageCollectorMXBeans();
+        var lastGcCount = gcCount(gcs);
+        var lastGcTime = gcTime(gcs);
+        var begin = System.nanoTime();
+        var deadline = begin + TimeUnit.SECONDS.toNanos(duration);
+        var last = begin;
+        var header = new StringBuilder(String.format("%8s %10s %10s %8s %8s", "time(s)", "req/s", "flush/s", "gc", "gc(ms)"));
+        for (var phase : Phase.values()) {
+            header.append(String.format(" %22s", phase.name().toLowerCase() + " p50/p99(us)"));
+        }
+        System.out.println(header);
+        while (System.nanoTime() < deadline) {
+            TimeUnit.SECONDS.sleep(interval);
+            var now = System.nanoTime();
+            var seconds = (now - last) / 1e9;
+            last = now;
+            var gcCount = gcCount(gcs);
+            var gcTime = gcTime(gcs);
+            var line = new StringBuilder(String.format("%8.1f %10.0f %10.0f %8d %8d", (now - begin) / 1e9,
+                    requests.sumThenReset() / seconds, flushes.sumThenReset() / seconds,
+                    gcCount - lastGcCount, gcTime - lastGcTime));
+            lastGcCount = gcCount;
+            lastGcTime = gcTime;
+            for (var histogram : histograms) {
+                var snapshot = histogram.takeAndReset();
+                line.append(String.format(" %22s", String.format("%.2f/%.2f",
+                        snapshot.percentile(50) / 1e3, snapshot.percentile(99) / 1e3)));
+            }
+            System.out.println(line);
+        }
+    }
+
+    private static long gcCount(List<GarbageCollectorMXBean> gcs) {
+        return gcs.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(n -> n > 0).sum();
+    }
+
+    private static long gcTime(List<GarbageCollectorMXBean> gcs) {
+        return gcs.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(n -> n > 0).sum();
+    }
+
+    /**
+     * The main entry point.
+     *
+     * @param args options in {@code name=value} format
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(String[] args) throws InterruptedException {
+        var options = new LinkedHashMap<String, String>();
+        for (var arg : args) {
+            var index = arg.indexOf('=');
+            if (index <= 0) {
+                throw new IllegalArgumentException("option must be in name=value format: " + arg);
+            }
+            options.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+        new PlayerSoak(options).run();
+    }
+
+}
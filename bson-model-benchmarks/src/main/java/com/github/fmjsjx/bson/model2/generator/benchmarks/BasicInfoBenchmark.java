@@ -0,0 +1,65 @@
+package com.github.fmjsjx.bson.model2.generator.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fmjsjx.bson.model2.generator.model.BasicInfo;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link BasicInfo} model on synthetic data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasicInfoBenchmark {
+
+    @Param({"10", "100"})
+    int size;
+
+    BasicInfo model;
+    BasicInfo changedModel;
+    BsonDocument bson;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkDataFactory.createBasicInfo(new Random(size), size);
+        model.reset();
+        changedModel = BenchmarkDataFactory.createBasicInfo(new Random(size), size);
+        bson = model.toBson();
+    }
+
+    @Benchmark
+    public BasicInfo load() {
+        return new BasicInfo().load(bson);
+    }
+
+    @Benchmark
+    public BsonDocument toBson() {
+        return model.toBson();
+    }
+
+    @Benchmark
+    public JsonNode toJsonNode() {
+        return model.toJsonNode();
+    }
+
+    @Benchmark
+    public Map<Object, Object> toData() {
+        return model.toData();
+    }
+
+    @Benchmark
+    public BasicInfo deepCopy() {
+        return model.deepCopy();
+    }
+
+}
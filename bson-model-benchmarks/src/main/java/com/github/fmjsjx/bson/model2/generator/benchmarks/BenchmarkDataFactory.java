@@ -0,0 +1,201 @@
+package com.github.fmjsjx.bson.model2.generator.benchmarks;
+
+import com.github.fmjsjx.bson.model2.generator.model.*;
+import org.bson.*;
+import org.bson.types.ObjectId;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Factory of the synthetic data for the benchmarks.
+ * <p>
+ * Every persistent field is filled, and each map, list and array field
+ * is filled with {@code size} elements. Nested models are filled up to
+ * 3 levels deep.
+ */
+public final class BenchmarkDataFactory {
+
+    private static final int MAX_DEPTH = 3;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    /**
+     * Creates a new {@link Player} filled with synthetic data.
+     * <p>
+     * All fields of the returned model are changed.
+     *
+     * @param random the random number generator
+     * @param size   the number of elements of each map, list and array field
+     * @return a new {@code Player}
+     */
+    public static Player createPlayer(Random random, int size) {
+        return fillPlayer(new Player(), random, size, MAX_DEPTH);
+    }
+
+    private static Player fillPlayer(Player model, Random random, int size, int depth) {
+        model.setId(random.nextInt(1000));
+        if (depth > 0) {
+            fillBasicInfo(model.getBasicInfo(), random, size, depth - 1);
+        }
+        if (depth > 0) {
+            fillWallet(model.getWallet(), random, size, depth - 1);
+        }
+        if (depth > 0) {
+            var equipments = model.getEquipments();
+            for (var i = 0; i < size; i++) {
+                equipments.put("key-" + i, fillEquipment(new Equipment(), random, size, depth - 1));
+            }
+        }
+        var items = model.getItems();
+        for (var i = 0; i < size; i++) {
+            items.put(i + 1, random.nextInt(1000));
+        }
+        model.setUpdateVersion(random.nextInt(1000));
+        model.setCreateTime(BASE_TIME.plusSeconds(random.nextInt(31_536_000)));
+        model.setUpdateTime(BASE_TIME.plusSeconds(random.nextInt(31_536_000)));
+        return model;
+    }
+
+    /**
+     * Creates a new {@link BasicInfo} filled with synthetic data.
+     * <p>
+     * All fields of the returned model are changed.
+     *
+     * @param random the random number generator
+     * @param size   the number of elements of each map, list and array field
+     * @return a new {@code BasicInfo}
+     */
+    public static BasicInfo createBasicInfo(Random random, int size) {
+        return fillBasicInfo(new BasicInfo(), random, size, MAX_DEPTH);
+    }
+
+    private static BasicInfo fillBasicInfo(BasicInfo model, Random random, int size, int depth) {
+        model.setName("string-" + random.nextInt(1_000_000));
+        model.setAvatar("string-" + random.nextInt(1_000_000));
+        model.setLastLoginTime(BASE_TIME.plusSeconds(random.nextInt(31_536_000)));
+        model.setLoginDays(listOf(size, () -> BASE_TIME.toLocalDate().plusDays(random.nextInt(365))));
+        model.setWorkTimes(listOf(size, () -> LocalTime.ofSecondOfDay(random.nextInt(86400))));
+        if (depth > 0) {
+            model.setGis(fillGisCoordinates(new GisCoordinates(), random, size, depth - 1));
+        }
+        model.setBirthday(BASE_TIME.toLocalDate().plusDays(random.nextInt(365)));
+        model.setBirthtime(LocalTime.ofSecondOfDay(random.nextInt(86400)));
+        return model;
+    }
+
+    /**
+     * Creates a new {@link GisCoordinates} filled with synthetic data.
+     * <p>
+     * All fields of the returned model are changed.
+     *
+     * @param random the random number generator
+     * @param size   the number of elements of each map, list and array field
+     * @return a new {@code GisCoordinates}
+     */
+    public static GisCoordinates createGisCoordinates(Random random, int size) {
+        return fillGisCoordinates(new GisCoordinates(), random, size, MAX_DEPTH);
+    }
+
+    private static GisCoordinates fillGisCoordinates(GisCoordinates model, Random random, int size, int depth) {
+        model.setLongitude(random.nextDouble() * 1000);
+        model.setLatitude(random.nextDouble() * 1000);
+        model.setHeight(random.nextDouble() * 1000);
+        return model;
+    }
+
+    /**
+     * Creates a new {@link Wallet} filled with synthetic data.
+     * <p>
+     * All fields of the returned model are changed.
+     *
+     * @param random the random number generator
+     * @param size   the number of elements of each map, list and array field
+     * @return a new {@code Wallet}
+     */
+    public static Wallet createWallet(Random random, int size) {
+        return fillWallet(new Wallet(), random, size, MAX_DEPTH);
+    }
+
+    private static Wallet fillWallet(Wallet model, Random random, int size, int depth) {
+        model.setCoinTotal(random.nextLong(1_000_000L));
+        model.setCoinUsed(random.nextLong(1_000_000L));
+        model.setDiamond(random.nextLong(1_000_000L));
+        model.setAd(random.nextLong(1_000_000L));
+        return model;
+    }
+
+    /**
+     * Creates a new {@link Equipment} filled with synthetic data.
+     * <p>
+     * All fields of the returned model are changed.
+     *
+     * @param random the random number generator
+     * @param size   the number of elements of each map, list and array field
+     * @return a new {@code Equipment}
+     */
+    public static Equipment createEquipment(Random random, int size) {
+        return fillEquipment(new Equipment(), random, size, MAX_DEPTH);
+    }
+
+    private static Equipment fillEquipment(Equipment model, Random random, int size, int depth) {
+        model.setId("string-" + random.nextInt(1_000_000));
+        model.setRefId(random.nextInt(1000));
+        model.setAtk(random.nextInt(1000));
+        model.setDef(random.nextInt(1000));
+        model.setHp(random.nextInt(1000));
+        model.setExtension(new BsonDocument("key", new BsonString("value-" + random.nextInt(1000))));
+        return model;
+    }
+
+    /**
+     * Creates a new {@link Room} filled with synthetic data.
+     * <p>
+     * All fields of the returned model are changed.
+     *
+     * @param random the random number generator
+     * @param size   the number of elements of each map, list and array field
+     * @return a new {@code Room}
+     */
+    public static Room createRoom(Random random, int size) {
+        return fillRoom(new Room(), random, size, MAX_DEPTH);
+    }
+
+    private static Room fillRoom(Room model, Random random, int size, int depth) {
+        return model;
+    }
+
+    /**
+     * Creates a new {@link Guild} filled with synthetic data.
+     * <p>
+     * All fields of the returned model are changed.
+     *
+     * @param random the random number generator
+     * @param size   the number of elements of each map, list and array field
+     * @return a new {@code Guild}
+     */
+    public static Guild createGuild(Random random, int size) {
+        return fillGuild(new Guild(), random, size, MAX_DEPTH);
+    }
+
+    private static Guild fillGuild(Guild model, Random random, int size, int depth) {
+        model.setId(random.nextInt(1000));
+        var bank = model.getBank();
+        for (var i = 0; i < size; i++) {
+            bank.put(i + 1, random.nextLong(1_000_000L));
+        }
+        return model;
+    }
+
+    private static <T> List<T> listOf(int size, Supplier<T> supplier) {
+        var list = new ArrayList<T>(size);
+        for (var i = 0; i < size; i++) {
+            list.add(supplier.get());
+        }
+        return list;
+    }
+
+    private BenchmarkDataFactory() {
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.github.fmjsjx.bson.model2.generator.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fmjsjx.bson.model2.generator.model.Equipment;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Equipment} model on synthetic data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EquipmentBenchmark {
+
+    @Param({"10", "100"})
+    int size;
+
+    Equipment model;
+    Equipment changedModel;
+    BsonDocument bson;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkDataFactory.createEquipment(new Random(size), size);
+        model.reset();
+        changedModel = BenchmarkDataFactory.createEquipment(new Random(size), size);
+        bson = model.toBson();
+    }
+
+    @Benchmark
+    public Equipment load() {
+        return new Equipment().load(bson);
+    }
+
+    @Benchmark
+    public BsonDocument toBson() {
+        return model.toBson();
+    }
+
+    @Benchmark
+    public JsonNode toJsonNode() {
+        return model.toJsonNode();
+    }
+
+    @Benchmark
+    public Map<Object, Object> toData() {
+        return model.toData();
+    }
+
+    @Benchmark
+    public Equipment deepCopy() {
+        return model.deepCopy();
+    }
+
+}
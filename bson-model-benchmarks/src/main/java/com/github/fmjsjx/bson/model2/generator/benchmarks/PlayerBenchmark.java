@@ -0,0 +1,75 @@
+package com.github.fmjsjx.bson.model2.generator.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fmjsjx.bson.model2.generator.model.Player;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link Player} model on synthetic data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerBenchmark {
+
+    @Param({"10", "100"})
+    int size;
+
+    Player model;
+    Player changedModel;
+    BsonDocument bson;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkDataFactory.createPlayer(new Random(size), size);
+        model.reset();
+        changedModel = BenchmarkDataFactory.createPlayer(new Random(size), size);
+        bson = model.toBson();
+    }
+
+    @Benchmark
+    public Player load() {
+        return new Player().load(bson);
+    }
+
+    @Benchmark
+    public BsonDocument toBson() {
+        return model.toBson();
+    }
+
+    @Benchmark
+    public JsonNode toJsonNode() {
+        return model.toJsonNode();
+    }
+
+    @Benchmark
+    public Map<Object, Object> toData() {
+        return model.toData();
+    }
+
+    @Benchmark
+    public Player deepCopy() {
+        return model.deepCopy();
+    }
+
+    @Benchmark
+    public List<Bson> toUpdates() {
+        return changedModel.toUpdates();
+    }
+
+    @Benchmark
+    public Map<Object, Object> toUpdateData() {
+        return changedModel.toUpdateData();
+    }
+
+}
@@ -0,0 +1,371 @@
+package com.github.fmjsjx.bson.model.core;
+
+import com.alibaba.fastjson2.JSONWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Transcodes BSON bytes to JSON in one pass, without building any
+ * intermediate trees.
+ * <p>
+ * The type mapping rules are the same as
+ * {@link BsonUtil#toObjectNode(org.bson.BsonDocument)}:
+ * <ul>
+ * <li>DateTime is written as epoch milliseconds</li>
+ * <li>Timestamp is written as epoch milliseconds of its time</li>
+ * <li>ObjectId is written as a hex string</li>
+ * <li>Binary is written as a standard UUID string</li>
+ * <li>other types (e.g. symbol) are ignored</li>
+ * </ul>
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class BsonJsonTranscoder {
+
+    /**
+     * Transcodes the {@link RawBsonDocument} to the Jackson
+     * {@link JsonGenerator}.
+     *
+     * @param document  the source document
+     * @param generator the JSON generator
+     * @throws IOException if any IO error occurs
+     */
+    public static final void transcode(RawBsonDocument document, JsonGenerator generator) throws IOException {
+        transcode(document.getByteBuffer().asNIO(), generator);
+    }
+
+    /**
+     * Transcodes the BSON document in the {@link ByteBuffer} to the Jackson
+     * {@link JsonGenerator}.
+     * <p>
+     * The position of the buffer will not be changed.
+     *
+     * @param buffer    the buffer stores a BSON document
+     * @param generator the JSON generator
+     * @throws IOException if any IO error occurs
+     */
+    public static final void transcode(ByteBuffer buffer, JsonGenerator generator) throws IOException {
+        try (var reader = new BsonBinaryReader(buffer.duplicate())) {
+            transcodeDocument(reader, new JacksonSink(generator));
+        }
+    }
+
+    /**
+     * Transcodes the {@link RawBsonDocument} to the fastjson2
+     * {@link JSONWriter}.
+     *
+     * @param document the source document
+     * @param writer   the JSON writer
+     */
+    public static final void transcode(RawBsonDocument document, JSONWriter writer) {
+        transcode(document.getByteBuffer().asNIO(), writer);
+    }
+
+    /**
+     * Transcodes the BSON document in the {@link ByteBuffer} to the
+     * fastjson2 {@link JSONWriter}.
+     * <p>
+     * The position of the buffer will not be changed.
+     *
+     * @param buffer the buffer stores a BSON document
+     * @param writer the JSON writer
+     */
+    public static final void transcode(ByteBuffer buffer, JSONWriter writer) {
+        try (var reader = new BsonBinaryReader(buffer.duplicate())) {
+            transcodeDocument(reader, new Fastjson2Sink(writer));
+        } catch (IOException e) {
+            // never happen
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Transcodes the {@link RawBsonDocument} to UTF-8 JSON bytes.
+     *
+     * @param document the source document
+     * @return the UTF-8 JSON bytes
+     */
+    public static final byte[] toJsonBytes(RawBsonDocument document) {
+        try (var writer = JSONWriter.ofUTF8()) {
+            transcode(document, writer);
+            return writer.getBytes();
+        }
+    }
+
+    /**
+     * Transcodes the {@link RawBsonDocument} to JSON string.
+     *
+     * @param document the source document
+     * @return the JSON string
+     */
+    public static final String toJsonString(RawBsonDocument document) {
+        try (var writer = JSONWriter.of()) {
+            transcode(document, writer);
+            return writer.toString();
+        }
+    }
+
+    private static final void transcodeDocument(BsonReader reader, JsonSink sink) throws IOException {
+        reader.readStartDocument();
+        sink.startObject();
+        for (var type = reader.readBsonType(); type != BsonType.END_OF_DOCUMENT; type = reader.readBsonType()) {
+            var name = reader.readName();
+            if (isSupported(type)) {
+                sink.name(name);
+                transcodeValue(type, reader, sink);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        sink.endObject();
+    }
+
+    private static final void transcodeArray(BsonReader reader, JsonSink sink) throws IOException {
+        reader.readStartArray();
+        sink.startArray();
+        for (var type = reader.readBsonType(); type != BsonType.END_OF_DOCUMENT; type = reader.readBsonType()) {
+            if (isSupported(type)) {
+                sink.element();
+                transcodeValue(type, reader, sink);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndArray();
+        sink.endArray();
+    }
+
+    private static final boolean isSupported(BsonType type) {
+        return switch (type) {
+            case STRING, INT32, INT64, DOUBLE, DECIMAL128, BOOLEAN, NULL, DATE_TIME, TIMESTAMP, OBJECT_ID, BINARY,
+                 ARRAY, DOCUMENT -> true;
+            default -> false;
+        };
+    }
+
+    private static final void transcodeValue(BsonType type, BsonReader reader, JsonSink sink) throws IOException {
+        switch (type) {
+            case STRING -> sink.string(reader.readString());
+            case INT32 -> sink.int32(reader.readInt32());
+            case INT64 -> sink.int64(reader.readInt64());
+            case DOUBLE -> sink.float64(reader.readDouble());
+            case DECIMAL128 -> sink.decimal(reader.readDecimal128().bigDecimalValue());
+            case BOOLEAN -> sink.bool(reader.readBoolean());
+            case NULL -> {
+                reader.readNull();
+                sink.nul();
+            }
+            case DATE_TIME -> sink.int64(reader.readDateTime());
+            case TIMESTAMP -> sink.int64(reader.readTimestamp().getTime() * 1000L);
+            case OBJECT_ID -> sink.string(reader.readObjectId().toHexString());
+            // only support standard UUID
+            case BINARY -> sink.string(reader.readBinaryData().asUuid().toString());
+            case ARRAY -> transcodeArray(reader, sink);
+            case DOCUMENT -> transcodeDocument(reader, sink);
+            default -> throw new IllegalStateException("unsupported BSON type " + type);
+        }
+    }
+
+    private interface JsonSink {
+
+        void startObject() throws IOException;
+
+        void endObject() throws IOException;
+
+        void startArray() throws IOException;
+
+        void endArray() throws IOException;
+
+        void name(String name) throws IOException;
+
+        void element() throws IOException;
+
+        void string(String value) throws IOException;
+
+        void int32(int value) throws IOException;
+
+        void int64(long value) throws IOException;
+
+        void float64(double value) throws IOException;
+
+        void decimal(BigDecimal value) throws IOException;
+
+        void bool(boolean value) throws IOException;
+
+        void nul() throws IOException;
+
+    }
+
+    private record JacksonSink(JsonGenerator generator) implements JsonSink {
+
+        @Override
+        public void startObject() throws IOException {
+            generator.writeStartObject();
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void startArray() throws IOException {
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            generator.writeEndArray();
+        }
+
+        @Override
+        public void name(String name) throws IOException {
+            generator.writeFieldName(name);
+        }
+
+        @Override
+        public void element() {
+            // separators are written by the generator
+        }
+
+        @Override
+        public void string(String value) throws IOException {
+            generator.writeString(value);
+        }
+
+        @Override
+        public void int32(int value) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        @Override
+        public void int64(long value) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        @Override
+        public void float64(double value) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        @Override
+        public void decimal(BigDecimal value) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        @Override
+        public void bool(boolean value) throws IOException {
+            generator.writeBoolean(value);
+        }
+
+        @Override
+        public void nul() throws IOException {
+            generator.writeNull();
+        }
+
+    }
+
+    private static final class Fastjson2Sink implements JsonSink {
+
+        private final JSONWriter writer;
+        // bit N is set if the array at depth N already has elements
+        private final BitSet arrayStates = new BitSet();
+        private int depth;
+
+        private Fastjson2Sink(JSONWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void startObject() {
+            writer.startObject();
+            depth++;
+        }
+
+        @Override
+        public void endObject() {
+            depth--;
+            writer.endObject();
+        }
+
+        @Override
+        public void startArray() {
+            writer.startArray();
+            depth++;
+            arrayStates.clear(depth);
+        }
+
+        @Override
+        public void endArray() {
+            depth--;
+            writer.endArray();
+        }
+
+        @Override
+        public void name(String name) {
+            // the comma is written by JSONWriter.writeName
+            writer.writeName(name);
+            writer.writeColon();
+        }
+
+        @Override
+        public void element() {
+            if (arrayStates.get(depth)) {
+                writer.writeComma();
+            } else {
+                arrayStates.set(depth);
+            }
+        }
+
+        @Override
+        public void string(String value) {
+            writer.writeString(value);
+        }
+
+        @Override
+        public void int32(int value) {
+            writer.writeInt32(value);
+        }
+
+        @Override
+        public void int64(long value) {
+            writer.writeInt64(value);
+        }
+
+        @Override
+        public void float64(double value) {
+            writer.writeDouble(value);
+        }
+
+        @Override
+        public void decimal(BigDecimal value) {
+            writer.writeDecimal(value);
+        }
+
+        @Override
+        public void bool(boolean value) {
+            writer.writeBool(value);
+        }
+
+        @Override
+        public void nul() {
+            writer.writeNull();
+        }
+
+    }
+
+    private BsonJsonTranscoder() {
+    }
+
+}
@@ -0,0 +1,614 @@
+package com.github.fmjsjx.bson.model.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.bson.BsonArray;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonNumber;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A compiled path of an embedded value, the reusable alternative of the
+ * {@code BsonUtil.embedded*} methods.
+ * <p>
+ * The keys are parsed only once, when the path is created. The typed
+ * getters return the default value (or {@code null}) when the value is
+ * absent or {@code null}, without allocating any {@code Optional}. Over a
+ * {@link RawBsonDocument}, the primitive getters read the value directly
+ * from the BSON bytes in one pass.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * {@code
+ * private static final BsonPath LEVEL_PATH = BsonPath.of("player.stats.level");
+ * ...
+ * int level = LEVEL_PATH.getInt(document, 1);
+ * }
+ * </pre>
+ * Instances of this class are immutable and thread-safe.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class BsonPath {
+
+    /**
+     * Returns a new {@link BsonPath} with the specified dot notation.
+     * <p>
+     * Segments composed of digits are also used as array indexes.
+     *
+     * @param dotNotation the dot notation, e.g. {@code "a.b.0.c"}
+     * @return a new {@code BsonPath}
+     */
+    public static final BsonPath of(String dotNotation) {
+        Objects.requireNonNull(dotNotation, "dotNotation must not be null");
+        return of((Object[]) dotNotation.split("\\.", -1));
+    }
+
+    /**
+     * Returns a new {@link BsonPath} with the specified keys.
+     * <p>
+     * {@link Number} keys and string keys composed of digits are also used
+     * as array indexes.
+     *
+     * @param keys the array of keys
+     * @return a new {@code BsonPath}
+     */
+    public static final BsonPath of(Object... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("keys must not be empty");
+        }
+        var names = new String[keys.length];
+        var indexes = new int[keys.length];
+        for (var i = 0; i < keys.length; i++) {
+            var key = Objects.requireNonNull(keys[i], "keys must not contain null");
+            if (key instanceof Number num) {
+                indexes[i] = num.intValue();
+                if (indexes[i] < 0) {
+                    throw new IllegalArgumentException("index must not be negative");
+                }
+                names[i] = Integer.toString(indexes[i]);
+            } else {
+                var name = key.toString();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("keys must not contain empty key");
+                }
+                names[i] = name;
+                indexes[i] = toIndex(name);
+            }
+        }
+        return new BsonPath(names, indexes);
+    }
+
+    /**
+     * Returns a new {@link BsonPath} with the specified keys.
+     *
+     * @param keys the list of keys
+     * @return a new {@code BsonPath}
+     */
+    public static final BsonPath of(List<?> keys) {
+        return of(keys.toArray());
+    }
+
+    private static final int toIndex(String name) {
+        var len = name.length();
+        // Integer.MAX_VALUE has 10 digits
+        if (len > 9) {
+            return -1;
+        }
+        var index = 0;
+        for (var i = 0; i < len; i++) {
+            var c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    private final String[] names;
+    // -1 if the segment is not an array index
+    private final int[] indexes;
+    private final String dotNotation;
+
+    private BsonPath(String[] names, int[] indexes) {
+        this.names = names;
+        this.indexes = indexes;
+        this.dotNotation = String.join(".", names);
+    }
+
+    /**
+     * Returns the number of the keys.
+     *
+     * @return the number of the keys
+     */
+    public int depth() {
+        return names.length;
+    }
+
+    /**
+     * Returns the dot notation of this path.
+     *
+     * @return the dot notation
+     */
+    public String dotNotation() {
+        return dotNotation;
+    }
+
+    private ClassCastException notContainer(int i, String type) {
+        var path = String.join(".", Arrays.copyOf(names, i));
+        return new ClassCastException(
+                String.format("At dot notation \"%s\", the value is not a Document or a List (%s)", path, type));
+    }
+
+    private ClassCastException notDocument(int i, String type) {
+        var path = String.join(".", Arrays.copyOf(names, i));
+        return new ClassCastException(
+                String.format("At dot notation \"%s\", the value is not a Document (%s)", path, type));
+    }
+
+    // BsonDocument
+
+    /**
+     * Gets the {@link BsonValue} in the embedded document.
+     *
+     * @param document the source document
+     * @return the value, or {@code null} if absent or is BSON null
+     */
+    public BsonValue getValue(BsonDocument document) {
+        BsonValue value = Objects.requireNonNull(document, "document must not be null");
+        var names = this.names;
+        var indexes = this.indexes;
+        for (var i = 0; i < names.length; i++) {
+            if (value instanceof BsonDocument doc) {
+                value = doc.get(names[i]);
+            } else if (value instanceof BsonArray array) {
+                var index = indexes[i];
+                if (index < 0) {
+                    throw notDocument(i, "ARRAY");
+                }
+                value = index < array.size() ? array.get(index) : null;
+            } else {
+                throw notContainer(i, value.getBsonType().name());
+            }
+            if (value == null || value.isNull()) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Gets the {@link BsonDocument} in the embedded document.
+     *
+     * @param document the source document
+     * @return the value, or {@code null} if absent or is BSON null
+     */
+    public BsonDocument getDocument(BsonDocument document) {
+        var value = getValue(document);
+        if (value == null || value instanceof BsonDocument) {
+            return (BsonDocument) value;
+        }
+        throw new ClassCastException(String.format("The value is not a Document (%s)", value.getBsonType().name()));
+    }
+
+    /**
+     * Gets the {@code int} value in the embedded document.
+     *
+     * @param document     the source document
+     * @param defaultValue the value returned when absent
+     * @return the {@code int} value
+     */
+    public int getInt(BsonDocument document, int defaultValue) {
+        if (document instanceof RawBsonDocument raw) {
+            try (var reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+                var type = seek(reader);
+                return switch (type) {
+                    case NULL -> defaultValue;
+                    case INT32 -> reader.readInt32();
+                    case INT64 -> (int) reader.readInt64();
+                    case DOUBLE -> (int) reader.readDouble();
+                    case DECIMAL128 -> reader.readDecimal128().intValue();
+                    default -> throw notNumber(type.name());
+                };
+            }
+        }
+        var value = getValue(document);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof BsonNumber num) {
+            return num.intValue();
+        }
+        throw notNumber(value.getBsonType().name());
+    }
+
+    /**
+     * Gets the {@code long} value in the embedded document.
+     *
+     * @param document     the source document
+     * @param defaultValue the value returned when absent
+     * @return the {@code long} value
+     */
+    public long getLong(BsonDocument document, long defaultValue) {
+        if (document instanceof RawBsonDocument raw) {
+            try (var reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+                var type = seek(reader);
+                return switch (type) {
+                    case NULL -> defaultValue;
+                    case INT32 -> reader.readInt32();
+                    case INT64 -> reader.readInt64();
+                    case DOUBLE -> (long) reader.readDouble();
+                    case DECIMAL128 -> reader.readDecimal128().longValue();
+                    default -> throw notNumber(type.name());
+                };
+            }
+        }
+        var value = getValue(document);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof BsonNumber num) {
+            return num.longValue();
+        }
+        throw notNumber(value.getBsonType().name());
+    }
+
+    /**
+     * Gets the {@code double} value in the embedded document.
+     *
+     * @param document     the source document
+     * @param defaultValue the value returned when absent
+     * @return the {@code double} value
+     */
+    public double getDouble(BsonDocument document, double defaultValue) {
+        if (document instanceof RawBsonDocument raw) {
+            try (var reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+                var type = seek(reader);
+                return switch (type) {
+                    case NULL -> defaultValue;
+                    case INT32 -> reader.readInt32();
+                    case INT64 -> reader.readInt64();
+                    case DOUBLE -> reader.readDouble();
+                    case DECIMAL128 -> reader.readDecimal128().doubleValue();
+                    default -> throw notNumber(type.name());
+                };
+            }
+        }
+        var value = getValue(document);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof BsonNumber num) {
+            return num.doubleValue();
+        }
+        throw notNumber(value.getBsonType().name());
+    }
+
+    /**
+     * Gets the string value in the embedded document.
+     *
+     * @param document the source document
+     * @return the string value, or {@code null} if absent or is BSON null
+     */
+    public String getString(BsonDocument document) {
+        if (document instanceof RawBsonDocument raw) {
+            try (var reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+                var type = seek(reader);
+                return switch (type) {
+                    case NULL -> null;
+                    case STRING -> reader.readString();
+                    default -> throw notString(type.name());
+                };
+            }
+        }
+        var value = getValue(document);
+        if (value == null || value instanceof BsonString) {
+            return value == null ? null : ((BsonString) value).getValue();
+        }
+        throw notString(value.getBsonType().name());
+    }
+
+    private static final ClassCastException notNumber(String type) {
+        return new ClassCastException(String.format("The value is not a Number (%s)", type));
+    }
+
+    private static final ClassCastException notString(String type) {
+        return new ClassCastException(String.format("The value is not a String (%s)", type));
+    }
+
+    /**
+     * Moves the reader to the value of this path.
+     *
+     * @return the type of the value, {@link BsonType#NULL} if absent
+     */
+    private BsonType seek(BsonBinaryReader reader) {
+        var names = this.names;
+        var last = names.length - 1;
+        reader.readStartDocument();
+        var inArray = false;
+        for (var i = 0; ; i++) {
+            var name = names[i];
+            if (inArray && indexes[i] < 0) {
+                throw notDocument(i, "ARRAY");
+            }
+            BsonType found = null;
+            var count = 0;
+            for (var type = reader.readBsonType(); type != BsonType.END_OF_DOCUMENT; type = reader.readBsonType()) {
+                // names of array elements are skipped by readBsonType, so count them
+                if (inArray ? count++ == indexes[i] : name.equals(reader.readName())) {
+                    found = type;
+                    break;
+                }
+                reader.skipValue();
+            }
+            if (found == null || found == BsonType.NULL) {
+                return BsonType.NULL;
+            }
+            if (i == last) {
+                return found;
+            }
+            switch (found) {
+                case DOCUMENT -> reader.readStartDocument();
+                case ARRAY -> reader.readStartArray();
+                default -> throw notContainer(i + 1, found.name());
+            }
+            inArray = found == BsonType.ARRAY;
+        }
+    }
+
+    // Document
+
+    /**
+     * Gets the value in the embedded document.
+     *
+     * @param <V>      the type of the return value
+     * @param document the source document
+     * @return the value, or {@code null} if absent
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V getValue(Document document) {
+        Object value = Objects.requireNonNull(document, "document must not be null");
+        var names = this.names;
+        var indexes = this.indexes;
+        for (var i = 0; i < names.length; i++) {
+            if (value instanceof Map<?, ?> map) {
+                value = map.get(names[i]);
+            } else if (value instanceof List<?> list) {
+                var index = indexes[i];
+                if (index < 0) {
+                    throw notDocument(i, value.getClass().getName());
+                }
+                value = index < list.size() ? list.get(index) : null;
+            } else {
+                throw notContainer(i, value.getClass().getName());
+            }
+            if (value == null) {
+                return null;
+            }
+        }
+        return (V) value;
+    }
+
+    /**
+     * Gets the {@link Document} in the embedded document.
+     *
+     * @param document the source document
+     * @return the value, or {@code null} if absent
+     */
+    public Document getDocument(Document document) {
+        Object value = getValue(document);
+        if (value == null || value instanceof Document) {
+            return (Document) value;
+        }
+        throw new ClassCastException(String.format("The value is not a Document (%s)", value.getClass().getName()));
+    }
+
+    /**
+     * Gets the {@code int} value in the embedded document.
+     *
+     * @param document     the source document
+     * @param defaultValue the value returned when absent
+     * @return the {@code int} value
+     */
+    public int getInt(Document document, int defaultValue) {
+        Object value = getValue(document);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number num) {
+            return num.intValue();
+        }
+        throw notNumber(value.getClass().getName());
+    }
+
+    /**
+     * Gets the {@code long} value in the embedded document.
+     *
+     * @param document     the source document
+     * @param defaultValue the value returned when absent
+     * @return the {@code long} value
+     */
+    public long getLong(Document document, long defaultValue) {
+        Object value = getValue(document);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number num) {
+            return num.longValue();
+        }
+        throw notNumber(value.getClass().getName());
+    }
+
+    /**
+     * Gets the {@code double} value in the embedded document.
+     *
+     * @param document     the source document
+     * @param defaultValue the value returned when absent
+     * @return the {@code double} value
+     */
+    public double getDouble(Document document, double defaultValue) {
+        Object value = getValue(document);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number num) {
+            return num.doubleValue();
+        }
+        throw notNumber(value.getClass().getName());
+    }
+
+    /**
+     * Gets the string value in the embedded document.
+     *
+     * @param document the source document
+     * @return the string value, or {@code null} if absent
+     */
+    public String getString(Document document) {
+        Object value = getValue(document);
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        throw notString(value.getClass().getName());
+    }
+
+    // JsonNode
+
+    /**
+     * Gets the embedded {@link JsonNode}.
+     *
+     * @param node the source node
+     * @return the value, or {@code null} if absent or is JSON null
+     */
+    public JsonNode getValue(JsonNode node) {
+        var value = Objects.requireNonNull(node, "node must not be null");
+        var names = this.names;
+        var indexes = this.indexes;
+        for (var i = 0; i < names.length; i++) {
+            if (value.isObject()) {
+                value = value.get(names[i]);
+            } else if (value.isArray()) {
+                var index = indexes[i];
+                if (index < 0) {
+                    throw notDocument(i, "ARRAY");
+                }
+                value = value.get(index);
+            } else {
+                throw notContainer(i, value.getNodeType().name());
+            }
+            if (value == null || value.isNull()) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Gets the embedded {@link ObjectNode}.
+     *
+     * @param node the source node
+     * @return the value, or {@code null} if absent or is JSON null
+     */
+    public ObjectNode getDocument(JsonNode node) {
+        var value = getValue(node);
+        if (value == null || value.isObject()) {
+            return (ObjectNode) value;
+        }
+        throw new ClassCastException(String.format("The value is not an OBJECT (%s)", value.getNodeType().name()));
+    }
+
+    /**
+     * Gets the embedded {@code int} value.
+     *
+     * @param node         the source node
+     * @param defaultValue the value returned when absent
+     * @return the {@code int} value
+     */
+    public int getInt(JsonNode node, int defaultValue) {
+        var value = getValue(node);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.isNumber()) {
+            return value.intValue();
+        }
+        throw new ClassCastException(String.format("The value is not a NUMBER (%s)", value.getNodeType().name()));
+    }
+
+    /**
+     * Gets the embedded {@code long} value.
+     *
+     * @param node         the source node
+     * @param defaultValue the value returned when absent
+     * @return the {@code long} value
+     */
+    public long getLong(JsonNode node, long defaultValue) {
+        var value = getValue(node);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.isNumber()) {
+            return value.longValue();
+        }
+        throw new ClassCastException(String.format("The value is not a NUMBER (%s)", value.getNodeType().name()));
+    }
+
+    /**
+     * Gets the embedded {@code double} value.
+     *
+     * @param node         the source node
+     * @param defaultValue the value returned when absent
+     * @return the {@code double} value
+     */
+    public double getDouble(JsonNode node, double defaultValue) {
+        var value = getValue(node);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.isNumber()) {
+            return value.doubleValue();
+        }
+        throw new ClassCastException(String.format("The value is not a NUMBER (%s)", value.getNodeType().name()));
+    }
+
+    /**
+     * Gets the embedded string value.
+     *
+     * @param node the source node
+     * @return the string value, or {@code null} if absent or is JSON null
+     */
+    public String getString(JsonNode node) {
+        var value = getValue(node);
+        if (value == null || value.isTextual()) {
+            return value == null ? null : value.textValue();
+        }
+        throw new ClassCastException(String.format("The value is not a STRING (%s)", value.getNodeType().name()));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof BsonPath other && dotNotation.equals(other.dotNotation);
+    }
+
+    @Override
+    public int hashCode() {
+        return dotNotation.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "BsonPath(" + dotNotation + ")";
+    }
+
+}
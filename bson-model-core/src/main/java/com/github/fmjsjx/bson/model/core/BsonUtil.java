@@ -1,6 +1,7 @@
 package com.github.fmjsjx.bson.model.core;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
@@ -15,10 +16,14 @@ import java.util.stream.Collectors;
 
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.bson.*;
+import org.bson.io.BasicOutputBuffer;
 import org.bson.types.Decimal128;
 import org.bson.types.ObjectId;
 
@@ -41,6 +46,7 @@ public class BsonUtil {
      * @param document the source document
      * @param keys     the array of keys
      * @return an {@code Optional<V>}
+     * @see BsonPath
      */
     public static final <V> Optional<V> embedded(Document document, Object... keys) {
         return embedded(document, Arrays.asList(keys));
@@ -428,6 +434,7 @@ public class BsonUtil {
      * @param document the source document
      * @param keys     the array of keys
      * @return an {@code Optional<V>}
+     * @see BsonPath
      */
     public static final <V extends BsonValue> Optional<V> embedded(BsonDocument document, Object... keys) {
         return embedded(document, Arrays.asList(keys));
@@ -844,24 +851,7 @@ public class BsonUtil {
         if (type == ValueType.STRING) {
             return iterator.readString();
         } else if (type == ValueType.NUMBER) {
-            var str = iterator.readNumberAsString();
-            var dotIndex = str.indexOf('.');
-            if (dotIndex == -1) {
-                try {
-                    long value = Long.parseLong(str);
-                    if (value <= Integer.MAX_VALUE && value >= Integer.MIN_VALUE) {
-                        return (int) value;
-                    }
-                    return value;
-                } catch (NumberFormatException e) {
-                    return Decimal128.parse(str);
-                }
-            } else {
-                if (str.length() > 15) {
-                    return Decimal128.parse(str);
-                }
-                return Double.valueOf(str);
-            }
+            return JsoniterNumbers.read(iterator, JsoniterNumbers.OBJECTS);
         } else if (type == ValueType.NULL) {
             iterator.readNull();
             return null;
@@ -918,25 +908,7 @@ public class BsonUtil {
             if (type == ValueType.STRING) {
                 return new BsonString(iterator.readString());
             } else if (type == ValueType.NUMBER) {
-                var str = iterator.readNumberAsString();
-                var dotIndex = str.indexOf('.');
-                if (dotIndex == -1) {
-                    try {
-                        long value = Long.parseLong(str);
-                        if (value <= Integer.MAX_VALUE && value >= Integer.MIN_VALUE) {
-                            return new BsonInt32((int) value);
-                        }
-                        return new BsonInt64(value);
-                    } catch (NumberFormatException e) {
-                        return new BsonDecimal128(Decimal128.parse(str));
-                    }
-                } else {
-                    if (str.length() > 15) {
-                        return new BsonDecimal128(Decimal128.parse(str));
-                    }
-                    double value = Double.parseDouble(str);
-                    return new BsonDouble(value);
-                }
+                return JsoniterNumbers.read(iterator, JsoniterNumbers.BSON_VALUES);
             } else if (type == ValueType.NULL) {
                 iterator.readNull();
                 return BsonNull.VALUE;
@@ -949,6 +921,128 @@ public class BsonUtil {
         }
     }
 
+    private static final class RawBsonParserHolder {
+
+        private static final JsonFactory jsonFactory = new JsonFactory();
+
+        private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+        private static final ThreadLocal<BasicOutputBuffer> buffers = ThreadLocal.withInitial(BasicOutputBuffer::new);
+
+    }
+
+    /**
+     * Parse the JSON object to {@link RawBsonDocument}.
+     * <p>
+     * The JSON tokens are streamed directly into a {@link BsonBinaryWriter}
+     * over a pooled output buffer, without building any intermediate
+     * {@link BsonValue}s.
+     *
+     * @param json the source byte array stores JSON object
+     * @return a {@code RawBsonDocument}
+     * @since 2.4
+     */
+    public static final RawBsonDocument parseToRawBson(byte[] json) {
+        try (var parser = RawBsonParserHolder.jsonFactory.createParser(json)) {
+            return parseToRawBson(parser);
+        } catch (Exception e) {
+            throw new JsonException(e);
+        }
+    }
+
+    /**
+     * Parse the JSON object to {@link RawBsonDocument}.
+     * <p>
+     * The JSON tokens are streamed directly into a {@link BsonBinaryWriter}
+     * over a pooled output buffer, without building any intermediate
+     * {@link BsonValue}s. The input stream will not be closed.
+     *
+     * @param json the source input stream stores JSON object
+     * @return a {@code RawBsonDocument}
+     * @since 2.4
+     */
+    public static final RawBsonDocument parseToRawBson(InputStream json) {
+        try (var parser = RawBsonParserHolder.jsonFactory.createParser(json)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return parseToRawBson(parser);
+        } catch (Exception e) {
+            throw new JsonException(e);
+        }
+    }
+
+    private static final RawBsonDocument parseToRawBson(JsonParser parser) throws IOException {
+        var token = parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("the given json expected an OBJECT but was " + token);
+        }
+        var buffers = RawBsonParserHolder.buffers;
+        var buffer = buffers.get();
+        try {
+            writeJsonValue(parser, token, new BsonBinaryWriter(buffer));
+            return new RawBsonDocument(Arrays.copyOf(buffer.getInternalBuffer(), buffer.getPosition()));
+        } finally {
+            if (buffer.getInternalBuffer().length > RawBsonParserHolder.MAX_POOLED_BUFFER_SIZE) {
+                buffers.remove();
+            } else {
+                buffer.truncateToPosition(0);
+            }
+        }
+    }
+
+    private static final void writeJsonValue(JsonParser parser, JsonToken token, BsonBinaryWriter writer) throws IOException {
+        switch (token) {
+            case START_OBJECT -> {
+                writer.writeStartDocument();
+                for (var t = parser.nextToken(); t != JsonToken.END_OBJECT; t = parser.nextToken()) {
+                    writer.writeName(parser.currentName());
+                    writeJsonValue(parser, parser.nextToken(), writer);
+                }
+                writer.writeEndDocument();
+            }
+            case START_ARRAY -> {
+                writer.writeStartArray();
+                for (var t = parser.nextToken(); t != JsonToken.END_ARRAY; t = parser.nextToken()) {
+                    writeJsonValue(parser, t, writer);
+                }
+                writer.writeEndArray();
+            }
+            case VALUE_STRING -> writer.writeString(parser.getText());
+            case VALUE_NUMBER_INT -> {
+                switch (parser.getNumberType()) {
+                    case INT -> writer.writeInt32(parser.getIntValue());
+                    case LONG -> writer.writeInt64(parser.getLongValue());
+                    default -> writer.writeDecimal128(Decimal128.parse(parser.getText()));
+                }
+            }
+            case VALUE_NUMBER_FLOAT -> {
+                // same as parseToBson: numbers without '.' (e.g. 1e3) are never
+                // parsed as int or long, and long decimals keep the precision
+                // scan the buffered characters, the text is only built for Decimal128
+                var length = parser.getTextLength();
+                var decimal = length > 15;
+                if (!decimal) {
+                    var chars = parser.getTextCharacters();
+                    var offset = parser.getTextOffset();
+                    decimal = true;
+                    for (var i = offset; i < offset + length; i++) {
+                        if (chars[i] == '.') {
+                            decimal = false;
+                            break;
+                        }
+                    }
+                }
+                if (decimal) {
+                    writer.writeDecimal128(Decimal128.parse(parser.getText()));
+                } else {
+                    writer.writeDouble(parser.getDoubleValue());
+                }
+            }
+            case VALUE_TRUE -> writer.writeBoolean(true);
+            case VALUE_FALSE -> writer.writeBoolean(false);
+            default -> writer.writeNull(); // no other type
+        }
+    }
+
     /**
      * Gets the list value in an embedded document.
      *
@@ -2224,6 +2318,39 @@ public class BsonUtil {
         return list;
     }
 
+    /**
+     * Returns a read-only lazy {@link Map} view over the specified
+     * {@link BsonDocument}.
+     * <p>
+     * Unlike {@link #toMap(BsonDocument)}, values are converted with the same
+     * rules on access and cached, embedded documents and arrays are converted
+     * to lazy views too. Over a {@link RawBsonDocument}, only the accessed
+     * fields are decoded.
+     *
+     * @param document the {@code BsonDocument}
+     * @return a lazy {@code Map<String, Object>} view
+     * @since 2.4
+     */
+    public static final Map<String, Object> lazyMap(BsonDocument document) {
+        return new LazyBsonMap(Objects.requireNonNull(document, "document must not be null"));
+    }
+
+    /**
+     * Returns a read-only lazy {@link List} view over the specified
+     * {@link BsonArray}.
+     * <p>
+     * Unlike {@link #toList(BsonArray)}, values are converted with the same
+     * rules on access and cached, embedded documents and arrays are converted
+     * to lazy views too.
+     *
+     * @param array the {@code BsonArray}
+     * @return a lazy {@code List<Object>} view
+     * @since 2.4
+     */
+    public static final List<Object> lazyList(BsonArray array) {
+        return new LazyBsonList(Objects.requireNonNull(array, "array must not be null"));
+    }
+
     /**
      * Convert the specified {@link JsonNode} to {@link BsonDocument}.
      *
@@ -0,0 +1,218 @@
+package com.github.fmjsjx.bson.model.core;
+
+import com.jsoniter.JsonIterator;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.bson.types.Decimal128;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Reads JSON numbers from a {@link JsonIterator}, parsing the common cases
+ * directly from the input bytes.
+ * <p>
+ * The results are the same as parsing {@link JsonIterator#readNumberAsString()}
+ * with the rules below:
+ * <ul>
+ * <li>numbers without {@code '.'} are {@code int} if in range, otherwise
+ * {@code long} if in range, otherwise {@link Decimal128}</li>
+ * <li>numbers with {@code '.'} longer than 15 characters are
+ * {@link Decimal128}, otherwise {@code double}</li>
+ * </ul>
+ * Integers with at most 18 digits and decimals without exponent are parsed
+ * without allocating the string, other numbers fall back to the string.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+final class JsoniterNumbers {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsoniterNumbers.class);
+
+    /**
+     * Creates values of the parsed numbers.
+     *
+     * @param <T> the type of the values
+     */
+    interface NumberFactory<T> {
+
+        T ofInt(int value);
+
+        T ofLong(long value);
+
+        T ofDouble(double value);
+
+        T ofDecimal(Decimal128 value);
+
+    }
+
+    /**
+     * Creates boxed Java numbers.
+     */
+    static final NumberFactory<Object> OBJECTS = new NumberFactory<>() {
+        @Override
+        public Object ofInt(int value) {
+            return value;
+        }
+
+        @Override
+        public Object ofLong(long value) {
+            return value;
+        }
+
+        @Override
+        public Object ofDouble(double value) {
+            return value;
+        }
+
+        @Override
+        public Object ofDecimal(Decimal128 value) {
+            return value;
+        }
+    };
+
+    /**
+     * Creates BSON numbers.
+     */
+    static final NumberFactory<BsonValue> BSON_VALUES = new NumberFactory<>() {
+        @Override
+        public BsonValue ofInt(int value) {
+            return new BsonInt32(value);
+        }
+
+        @Override
+        public BsonValue ofLong(long value) {
+            return new BsonInt64(value);
+        }
+
+        @Override
+        public BsonValue ofDouble(double value) {
+            return new BsonDouble(value);
+        }
+
+        @Override
+        public BsonValue ofDecimal(Decimal128 value) {
+            return new BsonDecimal128(value);
+        }
+    };
+
+    private static final VarHandle BUF;
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        VarHandle buf = null, head = null, tail = null;
+        try {
+            var lookup = MethodHandles.privateLookupIn(JsonIterator.class, MethodHandles.lookup());
+            buf = lookup.findVarHandle(JsonIterator.class, "buf", byte[].class);
+            head = lookup.findVarHandle(JsonIterator.class, "head", int.class);
+            tail = lookup.findVarHandle(JsonIterator.class, "tail", int.class);
+        } catch (Exception | LinkageError e) {
+            logger.debug("Access to the buffer of JsonIterator is unavailable, numbers will be read as strings", e);
+            buf = head = tail = null;
+        }
+        BUF = buf;
+        HEAD = head;
+        TAIL = tail;
+    }
+
+    // 10^0 ~ 10^14, all exactly representable
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14
+    };
+
+    /**
+     * Reads the next number from the iterator.
+     *
+     * @param <T>      the type of the return value
+     * @param iterator the iterator, the next value must be a number
+     * @param factory  the factory creates the value
+     * @return the number value
+     * @throws IOException if any IO error occurs
+     */
+    static <T> T read(JsonIterator iterator, NumberFactory<T> factory) throws IOException {
+        if (HEAD != null) {
+            var buf = (byte[]) BUF.get(iterator);
+            var start = (int) HEAD.get(iterator);
+            var tail = (int) TAIL.get(iterator);
+            var i = start;
+            var negative = i < tail && buf[i] == '-';
+            if (negative) {
+                i++;
+            }
+            var mantissa = 0L;
+            var digits = 0;
+            var fractionDigits = -1;
+            for (; i < tail; i++) {
+                var b = buf[i];
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (++digits > 18) {
+                        break;
+                    }
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (b == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else {
+                    break;
+                }
+            }
+            // any other number character (e.g. exponent) takes the slow path
+            if (digits > 0 && digits <= 18 && (i == tail || !isNumberChar(buf[i]))) {
+                if (fractionDigits < 0) {
+                    HEAD.set(iterator, i);
+                    var value = negative ? -mantissa : mantissa;
+                    if (value <= Integer.MAX_VALUE && value >= Integer.MIN_VALUE) {
+                        return factory.ofInt((int) value);
+                    }
+                    return factory.ofLong(value);
+                }
+                if (i - start <= 15) {
+                    HEAD.set(iterator, i);
+                    // both operands are exact, so the quotient is correctly rounded
+                    // as Double.parseDouble
+                    var value = mantissa / POWERS_OF_TEN[fractionDigits];
+                    return factory.ofDouble(negative ? -value : value);
+                }
+            }
+        }
+        return parse(iterator.readNumberAsString(), factory);
+    }
+
+    private static boolean isNumberChar(byte b) {
+        return (b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+' || b == 'e' || b == 'E';
+    }
+
+    private static <T> T parse(String str, NumberFactory<T> factory) {
+        var dotIndex = str.indexOf('.');
+        if (dotIndex == -1) {
+            try {
+                long value = Long.parseLong(str);
+                if (value <= Integer.MAX_VALUE && value >= Integer.MIN_VALUE) {
+                    return factory.ofInt((int) value);
+                }
+                return factory.ofLong(value);
+            } catch (NumberFormatException e) {
+                return factory.ofDecimal(Decimal128.parse(str));
+            }
+        } else {
+            if (str.length() > 15) {
+                return factory.ofDecimal(Decimal128.parse(str));
+            }
+            return factory.ofDouble(Double.parseDouble(str));
+        }
+    }
+
+    private JsoniterNumbers() {
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.github.fmjsjx.bson.model.core;
+
+import org.bson.BsonArray;
+import org.bson.BsonValue;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A read-only lazy {@link List} view over a {@link BsonArray}.
+ * <p>
+ * Values are converted on access with the same rules as
+ * {@link BsonUtil#toList(BsonArray)}, and cached. Embedded documents and
+ * arrays are converted to lazy views too.
+ *
+ * @author MJ Fang
+ * @see BsonUtil#lazyList(BsonArray)
+ * @since 2.4
+ */
+final class LazyBsonList extends AbstractList<Object> {
+
+    private final BsonArray array;
+    private List<BsonValue> values;
+    private Object[] cache;
+
+    LazyBsonList(BsonArray array) {
+        this.array = array;
+    }
+
+    private List<BsonValue> values() {
+        var values = this.values;
+        if (values == null) {
+            // unsupported values are skipped, same as BsonUtil.toList
+            values = new ArrayList<>(array.size());
+            for (var v : array) {
+                if (LazyBsonMap.isSupported(v.getBsonType())) {
+                    values.add(v);
+                }
+            }
+            this.values = values;
+            this.cache = new Object[values.size()];
+        }
+        return values;
+    }
+
+    @Override
+    public Object get(int index) {
+        var values = values();
+        Objects.checkIndex(index, values.size());
+        var cache = this.cache;
+        var value = cache[index];
+        if (value == null) {
+            value = LazyBsonMap.convert(values.get(index));
+            cache[index] = value == null ? LazyBsonMap.NULL : value;
+        }
+        return value == LazyBsonMap.NULL ? null : value;
+    }
+
+    @Override
+    public int size() {
+        return values().size();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.github.fmjsjx.bson.model.core;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only lazy {@link Map} view over a {@link BsonDocument}.
+ * <p>
+ * Values are converted on access with the same rules as
+ * {@link BsonUtil#toMap(BsonDocument)}, and cached. Embedded documents and
+ * arrays are converted to lazy views too. Over a {@link RawBsonDocument},
+ * only the accessed fields are decoded.
+ *
+ * @author MJ Fang
+ * @see BsonUtil#lazyMap(BsonDocument)
+ * @since 2.4
+ */
+final class LazyBsonMap extends AbstractMap<String, Object> {
+
+    static final Object NULL = new Object();
+    static final Object UNSUPPORTED = new Object();
+
+    /**
+     * Converts the BSON value with the same rules as
+     * {@link BsonUtil#toMap(BsonDocument)}, but embedded documents and
+     * arrays are converted to lazy views.
+     *
+     * @param value the BSON value
+     * @return the converted value, or {@link #UNSUPPORTED} if the type is not
+     * supported
+     */
+    static Object convert(BsonValue value) {
+        return switch (value.getBsonType()) {
+            case STRING -> value.asString().getValue();
+            case INT32 -> value.asInt32().getValue();
+            case INT64 -> value.asInt64().getValue();
+            case DOUBLE -> value.asDouble().getValue();
+            case DECIMAL128 -> value.asDecimal128().getValue().bigDecimalValue();
+            case BOOLEAN -> value.asBoolean().getValue();
+            case NULL -> null;
+            case DATE_TIME -> value.asDateTime().getValue();
+            case TIMESTAMP -> value.asTimestamp().getTime() * 1000L;
+            case OBJECT_ID -> value.asObjectId().getValue().toHexString();
+            // only support standard UUID
+            case BINARY -> value.asBinary().asUuid().toString();
+            case ARRAY -> new LazyBsonList(value.asArray());
+            case DOCUMENT -> new LazyBsonMap(value.asDocument());
+            // ignore other BSON type (e.g. symbol)
+            default -> UNSUPPORTED;
+        };
+    }
+
+    static boolean isSupported(BsonType type) {
+        return switch (type) {
+            case STRING, INT32, INT64, DOUBLE, DECIMAL128, BOOLEAN, NULL, DATE_TIME, TIMESTAMP, OBJECT_ID, BINARY,
+                 ARRAY, DOCUMENT -> true;
+            default -> false;
+        };
+    }
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    private BsonDocument document;
+    private final HashMap<String, Object> cache = new HashMap<>();
+    private List<String> keys;
+    private EntrySet entrySet;
+
+    LazyBsonMap(BsonDocument document) {
+        this.document = document;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (key instanceof String name) {
+            var value = lookup(name);
+            return value == NULL || value == UNSUPPORTED ? null : value;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String name && lookup(name) != UNSUPPORTED;
+    }
+
+    private Object lookup(String name) {
+        var cache = this.cache;
+        var value = cache.get(name);
+        if (value == null) {
+            var bsonValue = document.get(name);
+            if (bsonValue == null) {
+                value = UNSUPPORTED;
+            } else {
+                value = convert(bsonValue);
+                if (value == null) {
+                    value = NULL;
+                }
+            }
+            cache.put(name, value);
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return keys().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys().isEmpty();
+    }
+
+    private List<String> keys() {
+        var keys = this.keys;
+        if (keys == null) {
+            keys = new ArrayList<>();
+            if (document instanceof RawBsonDocument raw) {
+                // read the names only, without decoding the values
+                try (var reader = new BsonBinaryReader(raw.getByteBuffer().asNIO())) {
+                    reader.readStartDocument();
+                    for (var type = reader.readBsonType(); type != BsonType.END_OF_DOCUMENT; type = reader.readBsonType()) {
+                        var name = reader.readName();
+                        if (isSupported(type)) {
+                            keys.add(name);
+                        }
+                        reader.skipValue();
+                    }
+                }
+            } else {
+                for (var e : document.entrySet()) {
+                    if (isSupported(e.getValue().getBsonType())) {
+                        keys.add(e.getKey());
+                    }
+                }
+            }
+            this.keys = keys;
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        var entrySet = this.entrySet;
+        if (entrySet == null) {
+            this.entrySet = entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            var keyList = keys();
+            if (document instanceof RawBsonDocument raw && cache.size() < keyList.size()) {
+                // looking up each field of a raw document scans the bytes from the
+                // beginning, so decode all at once when iterating
+                document = raw.decode(CODEC);
+            }
+            var keys = keyList.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return keys.hasNext();
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    var key = keys.next();
+                    return new SimpleImmutableEntry<>(key, get(key));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return keys().size();
+        }
+
+    }
+
+}
@@ -1,7 +1,12 @@
 package com.github.fmjsjx.bson.model2.core;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.bson.BsonDocument;
 import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The abstract implementation of {@link BsonModel}.
@@ -21,6 +26,9 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
     protected boolean changedTriggered;
 
     protected DotNotationPath cachedPath;
+    protected int cachedBsonSize = -1;
+
+    long snapshotEpoch;
 
     @SuppressWarnings("unchecked")
     @Override
@@ -86,6 +94,12 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
      */
     @SuppressWarnings("unchecked")
     public Self unbind() {
+        if (parent instanceof AbstractBsonModel<?, ?> model && SnapshotFrame.anyPending()) {
+            var root = model.root();
+            if (root != null) {
+                root.detachFromSnapshots(model, this);
+            }
+        }
         parent = null;
         index = -1;
         key = null;
@@ -102,7 +116,10 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
     @Override
     public void reset() {
         resetChildren();
+        var cachedBsonSize = this.cachedBsonSize;
         resetStates();
+        // reset doesn't change the data, so keep the cached size
+        this.cachedBsonSize = cachedBsonSize;
     }
 
     /**
@@ -116,6 +133,7 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
     protected void resetStates() {
         fullyUpdate = false;
         changedTriggered = false;
+        cachedBsonSize = -1;
     }
 
     /**
@@ -134,9 +152,186 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
         if (!changedTriggered) {
             emitChanged();
             changedTriggered = true;
+            var undoLog = undoLog();
+            if (undoLog != null) {
+                undoLog.append(() -> changedTriggered = false);
+            }
+        }
+    }
+
+    /**
+     * Returns the active {@link UndoLog} of the root model.
+     * <p>
+     * When no undo log is active in the process, this method costs a
+     * volatile read. Otherwise, the undo log is looked up through the parent
+     * chain, which costs proportional to the depth of this model.
+     *
+     * @return the active {@code UndoLog}, or {@code null} if absent
+     * @since 2.4
+     */
+    protected UndoLog undoLog() {
+        if (!UndoLog.anyActive()) {
+            return null;
+        }
+        return parent instanceof AbstractBsonModel<?, ?> model ? model.undoLog() : null;
+    }
+
+    /**
+     * Prepares for changing the data of this model, and returns the active
+     * {@link UndoLog} of the root model.
+     * <p>
+     * This method must be called before the data of this model is changed.
+     *
+     * @return the active {@code UndoLog}, or {@code null} if absent
+     * @since 2.4
+     */
+    protected UndoLog beforeChange() {
+        var root = prepareChange();
+        return root == null ? null : root.undoLog();
+    }
+
+    /**
+     * Prepares for changing the data of this model through the parent chain,
+     * the pending snapshots of the root model copy this model before it is
+     * changed.
+     *
+     * @return the root model, or {@code null} if this model is not bound to
+     * any root model
+     */
+    RootModel<?> prepareChange() {
+        var root = parent instanceof AbstractBsonModel<?, ?> model ? model.prepareChange() : null;
+        if (root == null) {
+            clearCachedBsonSize(null);
+            return null;
+        }
+        root.preserveForSnapshots(this);
+        clearCachedBsonSize(root.undoLog());
+        return root;
+    }
+
+    final void clearCachedBsonSize(UndoLog undoLog) {
+        if (cachedBsonSize >= 0) {
+            cachedBsonSize = -1;
+            if (undoLog != null) {
+                // the size may be cached again before rolling back
+                undoLog.append(() -> cachedBsonSize = -1);
+            }
+        }
+    }
+
+    /**
+     * Finishes changing the data of this model.
+     * <p>
+     * This method must be called after the data of this model is changed,
+     * paired with {@link #beforeChange()}.
+     *
+     * @since 2.4
+     */
+    protected void afterChange() {
+        if (parent instanceof AbstractBsonModel<?, ?> model) {
+            model.afterChange();
+        }
+    }
+
+    /**
+     * Returns the estimated encoded size of this model.
+     * <p>
+     * The size is cached until the data of this model or any of its
+     * descendants is changed, so that only the changed sub-trees are
+     * computed again.
+     *
+     * @return the estimated encoded size in bytes
+     * @since 2.4
+     */
+    @Override
+    public int estimateBsonSize() {
+        var size = cachedBsonSize;
+        if (size < 0) {
+            cachedBsonSize = size = computeBsonSize();
+        }
+        return size;
+    }
+
+    /**
+     * Computes the estimated encoded size of this model.
+     * <p>
+     * The default implementation walks through the {@link #toBson()}.
+     *
+     * @return the estimated encoded size in bytes
+     * @since 2.4
+     */
+    protected int computeBsonSize() {
+        return BsonSizes.sizeOf(toBson());
+    }
+
+    /**
+     * Returns the root model of this model.
+     *
+     * @return the root model, or {@code null} if this model is not bound to
+     * any root model
+     * @since 2.4
+     */
+    public RootModel<?> root() {
+        return parent instanceof AbstractBsonModel<?, ?> model ? model.root() : null;
+    }
+
+    /**
+     * Returns if the partial updates appended since {@code base} should be
+     * replaced by a full update, according to the {@link FullUpdatePolicy}.
+     * <p>
+     * If {@code true} is returned, the partial updates have been removed.
+     *
+     * @param updates the list of updates
+     * @param base    the size of the list before appending
+     * @param changes the number of the changes
+     * @return {@code true} if the full update should be appended instead
+     */
+    final boolean preferFullUpdate(List<Bson> updates, int base, int changes) {
+        if (parent == null) {
+            return false;
+        }
+        var policy = FullUpdatePolicy.forClass(getClass());
+        if (!policy.shouldCompare(changes) || updates.size() == base) {
+            return false;
+        }
+        var appended = updates.subList(base, updates.size());
+        var fullSize = BsonSizes.setUpdateSize(path().value(), estimateBsonSize());
+        if (policy.preferFull(BsonSizes.sizeOf(appended), fullSize)) {
+            appended.clear();
+            var profiler = ChangeProfiler.current();
+            if (profiler != null) {
+                profiler.discardUpdates(base);
+            }
+            recordFullUpdate();
+            return true;
+        }
+        return false;
+    }
+
+    void recordFullUpdate() {
+        var metrics = ModelMetrics.current();
+        if (metrics.isEnabled()) {
+            var root = root();
+            metrics.recordFullUpdate(root == null ? getClass() : root.getClass());
         }
     }
 
+    /**
+     * Returns the path pattern of this model, in which map keys and list
+     * indexes are replaced by {@code *}.
+     *
+     * @return the path pattern
+     */
+    String pathPattern() {
+        var parent = this.parent;
+        if (parent == null) {
+            return "";
+        }
+        var parentPattern = parent instanceof AbstractBsonModel<?, ?> model ? model.pathPattern() : parent.path().value();
+        var name = parent instanceof ObjectModel<?> ? String.valueOf(key) : "*";
+        return parentPattern == null || parentPattern.isEmpty() ? name : parentPattern + "." + name;
+    }
+
     /**
      * Emit updated event of this model.
      */
@@ -184,6 +379,10 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
     @SuppressWarnings("unchecked")
     public final Self fullyUpdate(boolean fullyUpdate) {
         if (fullyUpdate != isFullyUpdate()) {
+            var undoLog = undoLog();
+            if (undoLog != null) {
+                undoLog.append(() -> this.fullyUpdate = !fullyUpdate);
+            }
             this.fullyUpdate = fullyUpdate;
             if (fullyUpdate) {
                 triggerChanged();
@@ -230,11 +429,16 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
      */
     @SuppressWarnings("unchecked")
     public Self deepCopyTo(Self dest, boolean clean) {
-        if (clean) {
-            dest.clean();
-        }
         var self = (Self) this;
-        dest.deepCopyFrom(self);
+        dest.beforeChange();
+        try {
+            if (clean) {
+                dest.clean();
+            }
+            dest.deepCopyFrom(self);
+        } finally {
+            dest.afterChange();
+        }
         return self;
     }
 
@@ -245,4 +449,115 @@ public abstract class AbstractBsonModel<T extends BsonValue, Self extends Abstra
      */
     protected abstract void deepCopyFrom(Self src);
 
+    /**
+     * Returns a copy of this model for the snapshots of the root model.
+     * <p>
+     * The default implementation is the same as {@link #deepCopy()}.
+     *
+     * @return a copy of this model
+     * @see #snapshotCopyFrom(AbstractBsonModel)
+     * @since 2.4
+     */
+    protected Self snapshotCopy() {
+        return deepCopy();
+    }
+
+    /**
+     * Copies values from the {@code src} model for the snapshots of the root
+     * model.
+     * <p>
+     * Unlike {@link #deepCopyFrom(AbstractBsonModel)}, the elements of the
+     * container models are shared but not copied, they will be copied when
+     * they are about to be changed. The current values of this model are
+     * replaced.
+     * <p>
+     * The default implementation is the same as
+     * {@link #deepCopyFrom(AbstractBsonModel)}.
+     *
+     * @param src the source model
+     * @since 2.4
+     */
+    protected void snapshotCopyFrom(Self src) {
+        deepCopyFrom(src);
+    }
+
+    /**
+     * Returns a copy of the specified model for the snapshots of the root
+     * model.
+     *
+     * @param <M>   the type of the model
+     * @param model the model
+     * @return a copy of the model
+     * @see #snapshotCopy()
+     * @since 2.4
+     */
+    protected static <M extends AbstractBsonModel<?, M>> M copyForSnapshot(M model) {
+        return model.snapshotCopy();
+    }
+
+    /**
+     * Copies values from the {@code src} model to the {@code dest} model for
+     * the snapshots of the root model.
+     *
+     * @param <M>  the type of the model
+     * @param src  the source model
+     * @param dest the destination model
+     * @see #snapshotCopyFrom(AbstractBsonModel)
+     * @since 2.4
+     */
+    protected static <M extends AbstractBsonModel<?, M>> void copyForSnapshot(M src, M dest) {
+        dest.snapshotCopyFrom(src);
+    }
+
+    /**
+     * Copies the elements shared with the live model, so that this copy is
+     * independent.
+     */
+    final void deepenSnapshotCopy() {
+        snapshotCopyFrom(deepCopy());
+    }
+
+    /**
+     * Returns the child of this snapshot copy at the position of the specified
+     * live child.
+     *
+     * @param child the live child
+     * @return the live child itself if it is shared, a copy if it is owned by
+     * this copy, or {@code null} if absent
+     */
+    AbstractBsonModel<?, ?> snapshotChild(AbstractBsonModel<?, ?> child) {
+        return null;
+    }
+
+    /**
+     * Replaces the shared child of this snapshot copy with a copy.
+     *
+     * @param child the shared child
+     * @param copy  the copy
+     */
+    void replaceSnapshotChild(AbstractBsonModel<?, ?> child, AbstractBsonModel<?, ?> copy) {
+        throw new IllegalStateException("no shared children on " + getClass().getSimpleName());
+    }
+
+    /**
+     * Applies the changes on the sub-tree of this model, without any change
+     * tracking.
+     * <p>
+     * The default implementation applies the changes to the BSON value of
+     * this model, and loads this model again.
+     *
+     * @param changes the changes, routed to this model
+     */
+    @SuppressWarnings("unchecked")
+    void applyChanges(List<FieldChange> changes) {
+        var wrapper = new BsonDocument("v", toBson());
+        var updates = new ArrayList<Bson>(changes.size());
+        for (var change : changes) {
+            updates.add(change.toUpdate("v"));
+        }
+        UpdateApplier.apply(wrapper, updates);
+        load((T) wrapper.get("v"));
+        clearCachedBsonSize(null);
+    }
+
 }
@@ -40,6 +40,18 @@ public interface BsonModel<T extends BsonValue> {
      */
     T toBson();
 
+    /**
+     * Returns the estimated encoded size of the {@link BsonValue} of this
+     * model, without encoding it.
+     *
+     * @return the estimated encoded size in bytes
+     * @see BsonSizes
+     * @since 2.4
+     */
+    default int estimateBsonSize() {
+        return BsonSizes.sizeOf(toBson());
+    }
+
     /**
      * Load data from the source {@link BsonValue}.
      *
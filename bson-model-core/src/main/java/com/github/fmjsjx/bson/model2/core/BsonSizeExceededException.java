@@ -0,0 +1,50 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.io.Serial;
+
+/**
+ * Thrown by {@link BsonSizeGuard} when the estimated encoded size of a
+ * model exceeds the threshold.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public class BsonSizeExceededException extends IllegalStateException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int size;
+    private final int threshold;
+
+    /**
+     * Constructs a new {@link BsonSizeExceededException}.
+     *
+     * @param size      the estimated encoded size
+     * @param threshold the threshold
+     */
+    public BsonSizeExceededException(int size, int threshold) {
+        super("the estimated size " + size + " exceeds the threshold " + threshold);
+        this.size = size;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the estimated encoded size.
+     *
+     * @return the estimated encoded size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the threshold.
+     *
+     * @return the threshold
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The guard of the encoded sizes of root models, which fires on
+ * {@code appendUpdates} of {@link RootModel}s when the estimated size of the
+ * document exceeds the threshold.
+ * <p>
+ * The size is estimated by {@link BsonModel#estimateBsonSize()}, which is
+ * cached per sub-tree, so the guard is cheap enough to run on every flush.
+ * There is no guard by default.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * {@code
+ * // warn when a document grows past 12 MB
+ * BsonSizeGuard.install(BsonSizeGuard.warn(12 * 1024 * 1024));
+ * // or reject the updates which will exceed the 16 MB limit
+ * BsonSizeGuard.install(BsonSizeGuard.reject(BsonSizes.MAX_DOCUMENT_SIZE));
+ * }
+ * </pre>
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class BsonSizeGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(BsonSizeGuard.class);
+
+    private static volatile BsonSizeGuard current;
+
+    /**
+     * Returns the installed guard.
+     *
+     * @return the installed guard, or {@code null} if absent
+     */
+    public static BsonSizeGuard current() {
+        return current;
+    }
+
+    /**
+     * Installs the global guard.
+     *
+     * @param guard the guard, {@code null} means no guard
+     */
+    public static void install(BsonSizeGuard guard) {
+        current = guard;
+    }
+
+    /**
+     * Returns a new guard which logs a warning when the threshold is
+     * exceeded.
+     *
+     * @param threshold the threshold in bytes
+     * @return a new {@code BsonSizeGuard}
+     */
+    public static BsonSizeGuard warn(int threshold) {
+        return new BsonSizeGuard(Policy.WARN, threshold, null);
+    }
+
+    /**
+     * Returns a new guard which rejects the updates by throwing a
+     * {@link BsonSizeExceededException} when the threshold is exceeded.
+     * <p>
+     * The rejected updates are removed from the list of updates.
+     *
+     * @param threshold the threshold in bytes
+     * @return a new {@code BsonSizeGuard}
+     */
+    public static BsonSizeGuard reject(int threshold) {
+        return new BsonSizeGuard(Policy.REJECT, threshold, null);
+    }
+
+    /**
+     * Returns a new guard which calls the listener when the threshold is
+     * exceeded.
+     *
+     * @param threshold the threshold in bytes
+     * @param listener  the listener
+     * @return a new {@code BsonSizeGuard}
+     */
+    public static BsonSizeGuard callback(int threshold, Listener listener) {
+        return new BsonSizeGuard(Policy.CALLBACK, threshold, Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * The policies of {@link BsonSizeGuard}.
+     */
+    public enum Policy {
+        /**
+         * Logs a warning.
+         */
+        WARN,
+        /**
+         * Rejects the updates.
+         */
+        REJECT,
+        /**
+         * Calls the listener.
+         */
+        CALLBACK
+    }
+
+    /**
+     * The listener of {@link BsonSizeGuard}.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Invoked when the threshold is exceeded.
+         *
+         * @param model        the root model
+         * @param documentSize the estimated size of the document
+         * @param updatesSize  the estimated size of the updates
+         */
+        void onExceeded(RootModel<?> model, int documentSize, int updatesSize);
+
+    }
+
+    private final Policy policy;
+    private final int threshold;
+    private final Listener listener;
+
+    private BsonSizeGuard(Policy policy, int threshold, Listener listener) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        this.policy = policy;
+        this.threshold = threshold;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the policy.
+     *
+     * @return the policy
+     */
+    public Policy policy() {
+        return policy;
+    }
+
+    /**
+     * Returns the threshold in bytes.
+     *
+     * @return the threshold in bytes
+     */
+    public int threshold() {
+        return threshold;
+    }
+
+    void check(RootModel<?> model, List<Bson> updates, int from) {
+        var documentSize = model.estimateBsonSize();
+        if (documentSize <= threshold) {
+            return;
+        }
+        var appended = updates.subList(from, updates.size());
+        var updatesSize = BsonSizes.sizeOf(appended);
+        switch (policy) {
+            case WARN -> logger.warn("The estimated size {} of {} exceeds the threshold {}, updates size {}",
+                    documentSize, model.getClass().getName(), threshold, updatesSize);
+            case REJECT -> {
+                appended.clear();
+                throw new BsonSizeExceededException(documentSize, threshold);
+            }
+            case CALLBACK -> listener.onExceeded(model, documentSize, updatesSize);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BsonSizeGuard(policy=" + policy + ", threshold=" + threshold + ")";
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonDbPointer;
+import org.bson.BsonDocument;
+import org.bson.BsonJavaScriptWithScope;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to compute the encoded sizes of BSON values, by walking
+ * through the values instead of encoding them.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class BsonSizes {
+
+    /**
+     * The maximum size of a BSON document accepted by MongoDB, {@code 16 MB}.
+     */
+    public static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The encoded size of an empty BSON document: int32 size and the
+     * terminator.
+     */
+    public static final int EMPTY_DOCUMENT_SIZE = 5;
+
+    /**
+     * Returns the encoded size of the specified BSON value, excluding the
+     * type and the name of the element.
+     *
+     * @param value the BSON value
+     * @return the encoded size
+     */
+    public static int sizeOf(BsonValue value) {
+        return switch (value.getBsonType()) {
+            case DOUBLE, DATE_TIME, TIMESTAMP, INT64 -> 8;
+            case INT32 -> 4;
+            case BOOLEAN -> 1;
+            case DECIMAL128 -> 16;
+            case OBJECT_ID -> 12;
+            case STRING -> stringSize(value.asString().getValue());
+            case SYMBOL -> stringSize(value.asSymbol().getSymbol());
+            case JAVASCRIPT -> stringSize(value.asJavaScript().getCode());
+            case DOCUMENT -> documentSize(value.asDocument());
+            case ARRAY -> arraySize(value.asArray());
+            case BINARY -> binarySize(value.asBinary());
+            case REGULAR_EXPRESSION -> regularExpressionSize(value.asRegularExpression());
+            case DB_POINTER -> dbPointerSize(value.asDBPointer());
+            case JAVASCRIPT_WITH_SCOPE -> javaScriptWithScopeSize(value.asJavaScriptWithScope());
+            default -> 0; // NULL, UNDEFINED, MIN_KEY, MAX_KEY, END_OF_DOCUMENT
+        };
+    }
+
+    private static int documentSize(BsonDocument document) {
+        if (document instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        var size = EMPTY_DOCUMENT_SIZE;
+        for (Map.Entry<String, BsonValue> e : document.entrySet()) {
+            size += elementSize(e.getKey(), e.getValue());
+        }
+        return size;
+    }
+
+    private static int arraySize(BsonArray array) {
+        var size = EMPTY_DOCUMENT_SIZE;
+        var index = 0;
+        for (var v : array) {
+            size += indexElementSize(index++, sizeOf(v));
+        }
+        return size;
+    }
+
+    private static int binarySize(BsonBinary binary) {
+        var size = 4 + 1 + binary.getData().length;
+        if (binary.getType() == BsonBinarySubType.OLD_BINARY.getValue()) {
+            size += 4;
+        }
+        return size;
+    }
+
+    private static int regularExpressionSize(BsonRegularExpression regex) {
+        return cstringSize(regex.getPattern()) + cstringSize(regex.getOptions());
+    }
+
+    private static int dbPointerSize(BsonDbPointer pointer) {
+        return stringSize(pointer.getNamespace()) + 12;
+    }
+
+    private static int javaScriptWithScopeSize(BsonJavaScriptWithScope js) {
+        return 4 + stringSize(js.getCode()) + documentSize(js.getScope());
+    }
+
+    /**
+     * Returns the encoded size of an element in a BSON document.
+     *
+     * @param name  the name of the element
+     * @param value the value of the element
+     * @return the encoded size
+     */
+    public static int elementSize(String name, BsonValue value) {
+        return elementSize(name, sizeOf(value));
+    }
+
+    /**
+     * Returns the encoded size of an element in a BSON document.
+     *
+     * @param name      the name of the element
+     * @param valueSize the encoded size of the value
+     * @return the encoded size
+     */
+    public static int elementSize(String name, int valueSize) {
+        return 1 + cstringSize(name) + valueSize;
+    }
+
+    /**
+     * Returns the encoded size of an element in a BSON array.
+     *
+     * @param index     the index of the element
+     * @param valueSize the encoded size of the value
+     * @return the encoded size
+     */
+    public static int indexElementSize(int index, int valueSize) {
+        return 1 + digits(index) + 1 + valueSize;
+    }
+
+    private static int digits(int index) {
+        var digits = 1;
+        while (index >= 10) {
+            index /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Returns the encoded size of the update {@code {$set: {path: value}}}.
+     *
+     * @param path      the path
+     * @param valueSize the encoded size of the value
+     * @return the encoded size
+     */
+    public static int setUpdateSize(String path, int valueSize) {
+        return EMPTY_DOCUMENT_SIZE + elementSize("$set", EMPTY_DOCUMENT_SIZE + elementSize(path, valueSize));
+    }
+
+    /**
+     * Returns the total encoded size of the specified updates.
+     * <p>
+     * The updates are combined into one update document when they are sent
+     * to MongoDB, so the total size is close to the size of the update
+     * document.
+     *
+     * @param updates the list of updates
+     * @return the total encoded size
+     */
+    public static int sizeOf(List<? extends Bson> updates) {
+        var size = 0;
+        for (var update : updates) {
+            size += documentSize(update.toBsonDocument());
+        }
+        return size;
+    }
+
+    private static int stringSize(String value) {
+        return 4 + cstringSize(value);
+    }
+
+    private static int cstringSize(String value) {
+        return utf8Length(value) + 1;
+    }
+
+    private static int utf8Length(String value) {
+        var length = value.length();
+        var size = length;
+        for (var i = 0; i < length; i++) {
+            var c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    size += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // 4 bytes for 2 chars
+                    size += 2;
+                    i++;
+                } else {
+                    size += 2;
+                }
+            }
+        }
+        return size;
+    }
+
+    private BsonSizes() {
+    }
+
+}
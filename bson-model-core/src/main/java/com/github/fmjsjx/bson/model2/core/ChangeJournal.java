@@ -0,0 +1,268 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The bounded change journal of a {@link RootModel}.
+ * <p>
+ * When a change journal is enabled on a root model, each {@code reset()} of
+ * the model with any changes records the update data and the deleted data
+ * with a new version, and only the latest {@link #capacity()} versions are
+ * kept. So clients at different versions can be synchronized by
+ * {@link #deltaSince(long)}, the deleted data must be applied before the
+ * update data:
+ * <pre>
+ * {@code
+ * var patch = player.deltaSince(client.version());
+ * if (patch.isFullSync()) {
+ *     client.sync(patch.version(), patch.data());
+ * } else if (!patch.isEmpty()) {
+ *     client.sync(patch.version(), patch.updateData(), patch.deletedData());
+ * }
+ * }
+ * </pre>
+ * <p>
+ * This class is not thread-safe, it should be accessed only by the thread
+ * which is changing the model.
+ *
+ * @author MJ Fang
+ * @see RootModel#enableChangeJournal(int)
+ * @since 2.4
+ */
+public final class ChangeJournal {
+
+    /**
+     * The merged changes since a version.
+     *
+     * @author MJ Fang
+     * @since 2.4
+     */
+    public static final class Patch {
+
+        private final long version;
+        private final Map<Object, Object> updateData;
+        private final Map<Object, Object> deletedData;
+        private final Map<Object, Object> data;
+
+        private Patch(long version, Map<Object, Object> updateData, Map<Object, Object> deletedData,
+                      Map<Object, Object> data) {
+            this.version = version;
+            this.updateData = updateData;
+            this.deletedData = deletedData;
+            this.data = data;
+        }
+
+        /**
+         * Returns the version after this patch is applied.
+         *
+         * @return the version
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Returns if the version is out of the journal, and the full data
+         * must be synchronized.
+         *
+         * @return {@code true} if the full data must be synchronized
+         */
+        public boolean isFullSync() {
+            return data != null;
+        }
+
+        /**
+         * Returns if there are no changes since the version.
+         *
+         * @return {@code true} if there are no changes
+         */
+        public boolean isEmpty() {
+            return data == null && updateData.isEmpty() && deletedData.isEmpty();
+        }
+
+        /**
+         * Returns the full data, the same as {@code toData()}.
+         *
+         * @return the full data, or {@code null} if this patch is not a full
+         * synchronization
+         */
+        public Map<Object, Object> data() {
+            return data;
+        }
+
+        /**
+         * Returns the merged update data, in the same format as
+         * {@code toUpdateData()}.
+         *
+         * @return the merged update data, empty if this patch is a full
+         * synchronization
+         */
+        public Map<Object, Object> updateData() {
+            return updateData;
+        }
+
+        /**
+         * Returns the merged deleted data, in the same format as
+         * {@code toDeletedData()}.
+         * <p>
+         * The deleted data must be applied before the update data, because a
+         * value deleted and then added again is in both of them.
+         *
+         * @return the merged deleted data, empty if this patch is a full
+         * synchronization
+         */
+        public Map<Object, Object> deletedData() {
+            return deletedData;
+        }
+
+        @Override
+        public String toString() {
+            return "Patch(version=" + version + ", updateData=" + updateData + ", deletedData=" + deletedData
+                    + ", data=" + data + ")";
+        }
+
+    }
+
+    private record Entry(long version, Map<Object, Object> updateData, Map<Object, Object> deletedData) {
+    }
+
+    private final RootModel<?> model;
+    private final int capacity;
+    private final ArrayDeque<Entry> entries;
+    private long version;
+
+    ChangeJournal(RootModel<?> model, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.model = model;
+        this.capacity = capacity;
+        this.entries = new ArrayDeque<>(Math.min(capacity, 64));
+    }
+
+    /**
+     * Returns the maximum number of versions kept in this journal.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the current version.
+     *
+     * @return the current version
+     */
+    public long version() {
+        return version;
+    }
+
+    void record(Map<Object, Object> updateData, Map<Object, Object> deletedData) {
+        if (updateData == null && deletedData == null) {
+            return;
+        }
+        var entries = this.entries;
+        if (entries.size() == capacity) {
+            entries.removeFirst();
+        }
+        entries.addLast(new Entry(++version, updateData == null ? Map.of() : updateData,
+                deletedData == null ? Map.of() : deletedData));
+    }
+
+    /**
+     * Returns the merged changes since the specified version.
+     * <p>
+     * If the version is out of this journal, the returned patch is a full
+     * synchronization with the current data of the model.
+     *
+     * @param version the version of the client
+     * @return the merged changes
+     */
+    public Patch deltaSince(long version) {
+        var current = this.version;
+        var entries = this.entries;
+        var oldest = entries.isEmpty() ? current : entries.getFirst().version() - 1;
+        if (version < oldest || version > current) {
+            return new Patch(current, Map.of(), Map.of(), model.toData());
+        }
+        var updateData = new LinkedHashMap<Object, Object>();
+        var deletedData = new LinkedHashMap<Object, Object>();
+        for (var entry : entries) {
+            if (entry.version() > version) {
+                mergeUpdated(updateData, deletedData, entry.updateData());
+                mergeDeleted(updateData, deletedData, entry.deletedData());
+            }
+        }
+        return new Patch(current, updateData, deletedData, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void mergeUpdated(Map<Object, Object> updateData, Map<Object, Object> deletedData, Map<?, ?> src) {
+        for (var e : src.entrySet()) {
+            var key = e.getKey();
+            var value = e.getValue();
+            var deleted = deletedData == null ? null : deletedData.get(key);
+            if (value instanceof Map<?, ?> nested) {
+                // merge into a new map, the recorded data must not be changed
+                var u = updateData.get(key) instanceof Map<?, ?> m ? (Map<Object, Object>) m : null;
+                if (u == null) {
+                    u = new LinkedHashMap<>();
+                    updateData.put(key, u);
+                }
+                if (deleted instanceof Map<?, ?> d) {
+                    mergeUpdated(u, (Map<Object, Object>) d, nested);
+                    if (d.isEmpty()) {
+                        deletedData.remove(key);
+                    }
+                } else {
+                    // the deletion of the whole value is kept, so the keys of
+                    // the old value which are absent in the new value are
+                    // also deleted
+                    mergeUpdated(u, null, nested);
+                }
+            } else {
+                updateData.put(key, value);
+                if (deleted != null) {
+                    deletedData.remove(key);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void mergeDeleted(Map<Object, Object> updateData, Map<Object, Object> deletedData, Map<?, ?> src) {
+        for (var e : src.entrySet()) {
+            var key = e.getKey();
+            var value = e.getValue();
+            if (value instanceof Map<?, ?> nested) {
+                // the deletions inside the value
+                var u = updateData != null && updateData.get(key) instanceof Map<?, ?> m ? (Map<Object, Object>) m : null;
+                var deleted = deletedData.get(key);
+                Map<Object, Object> d;
+                if (deleted instanceof Map<?, ?> m) {
+                    d = (Map<Object, Object>) m;
+                } else if (deleted != null) {
+                    // the whole value is already deleted, only the updates
+                    // inside the value added again are removed
+                    d = new LinkedHashMap<>();
+                } else {
+                    d = new LinkedHashMap<>();
+                    deletedData.put(key, d);
+                }
+                mergeDeleted(u, d, nested);
+                if (u != null && u.isEmpty()) {
+                    updateData.remove(key);
+                }
+            } else {
+                if (updateData != null) {
+                    updateData.remove(key);
+                }
+                deletedData.put(key, value);
+            }
+        }
+    }
+
+}
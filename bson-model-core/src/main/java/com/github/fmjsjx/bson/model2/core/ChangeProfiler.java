@@ -0,0 +1,260 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An opt-in profiler of the field-level changes of models.
+ * <p>
+ * When started, the profiler counts the changes of every field, map key
+ * and list element, and the number and the encoded bytes of the updates
+ * produced by {@code appendUpdates}, aggregated by path patterns. In a path
+ * pattern, map keys and list indexes are replaced by {@code *}, e.g.
+ * {@code e.*.a} for the {@code atk} of any equipment.
+ * <p>
+ * Counters are striped, so models on different threads can be profiled
+ * at the same time. When the profiler is not started, the cost is only a
+ * volatile read on each change.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * {@code
+ * var profiler = ChangeProfiler.start();
+ * // run the workload
+ * profiler.stop();
+ * System.out.println(profiler.report(20));
+ * }
+ * </pre>
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class ChangeProfiler {
+
+    private static volatile ChangeProfiler current;
+
+    /**
+     * Starts a new profiler, or returns the profiler which is already
+     * running.
+     *
+     * @return the running profiler
+     */
+    public static synchronized ChangeProfiler start() {
+        var profiler = current;
+        if (profiler == null) {
+            current = profiler = new ChangeProfiler();
+        }
+        return profiler;
+    }
+
+    /**
+     * Returns the running profiler.
+     *
+     * @return the running profiler, or {@code null} if no profiler is running
+     */
+    public static ChangeProfiler current() {
+        return current;
+    }
+
+    /**
+     * The statistics of a path pattern.
+     *
+     * @param path    the path pattern
+     * @param changes the number of changes
+     * @param updates the number of updates
+     * @param bytes   the encoded bytes of the updates
+     */
+    public record PathStats(String path, long changes, long updates, long bytes) {
+    }
+
+    private static final class Counters {
+
+        private final LongAdder changes = new LongAdder();
+        private final LongAdder updates = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+    }
+
+    private static final class Claims {
+
+        private int depth;
+        private final BitSet claimed = new BitSet();
+
+    }
+
+    private static final ThreadLocal<Claims> claimsHolder = ThreadLocal.withInitial(Claims::new);
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    private ChangeProfiler() {
+    }
+
+    /**
+     * Stops this profiler.
+     * <p>
+     * The collected statistics are still available after stopped.
+     */
+    public void stop() {
+        synchronized (ChangeProfiler.class) {
+            if (current == this) {
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Returns if this profiler is running or not.
+     *
+     * @return {@code true} if this profiler is running, {@code false} otherwise
+     */
+    public boolean isRunning() {
+        return current == this;
+    }
+
+    /**
+     * Clears all collected statistics.
+     */
+    public void clear() {
+        counters.clear();
+    }
+
+    private Counters counters(String path) {
+        return counters.computeIfAbsent(path, k -> new Counters());
+    }
+
+    void recordChange(AbstractBsonModel<?, ?> model, String name) {
+        counters(resolve(model.pathPattern(), name)).changes.increment();
+    }
+
+    /**
+     * Begins an {@code appendUpdates} call on the current thread, must be
+     * paired with {@link #endUpdates()} in a {@code finally} block.
+     * <p>
+     * The claims of the updates are scoped to the outermost call, so they
+     * are cleared even if the call fails.
+     */
+    void beginUpdates() {
+        claimsHolder.get().depth++;
+    }
+
+    void endUpdates() {
+        var claims = claimsHolder.get();
+        if (--claims.depth == 0) {
+            claims.claimed.clear();
+        }
+    }
+
+    void recordUpdates(AbstractBsonModel<?, ?> model, List<Bson> updates, int from) {
+        var to = updates.size();
+        // updates are recorded by the deepest models first, so each model only
+        // records the updates which are not claimed by its children
+        var claimed = claimsHolder.get().claimed;
+        String pattern = null;
+        String modelPath = null;
+        String prefix = null;
+        for (var i = claimed.nextClearBit(from); i < to; i = claimed.nextClearBit(i + 1)) {
+            claimed.set(i);
+            var update = updates.get(i).toBsonDocument();
+            var operator = update.getFirstKey();
+            var path = update.getDocument(operator).getFirstKey();
+            if (pattern == null) {
+                pattern = model.pathPattern();
+                modelPath = model.path().value();
+                prefix = modelPath == null ? "" : modelPath + ".";
+            }
+            String updatePattern;
+            if (path.equals(modelPath)) {
+                updatePattern = pattern;
+            } else if (path.startsWith(prefix)) {
+                var name = path.substring(prefix.length());
+                updatePattern = resolve(pattern, model instanceof ObjectModel<?> ? name : "*");
+            } else {
+                updatePattern = path;
+            }
+            var counters = counters(updatePattern);
+            counters.updates.increment();
+            counters.bytes.add(new RawBsonDocument(update, CODEC).getByteBuffer().remaining());
+        }
+    }
+
+    void discardUpdates(int from) {
+        var claims = claimsHolder.get();
+        if (claims.depth > 0) {
+            claims.claimed.clear(from, Math.max(from, claims.claimed.length()));
+        }
+    }
+
+    private static String resolve(String pattern, String name) {
+        return pattern.isEmpty() ? name : pattern + "." + name;
+    }
+
+    /**
+     * Returns the statistics of all path patterns.
+     *
+     * @return the statistics of all path patterns
+     */
+    public List<PathStats> stats() {
+        var stats = new ArrayList<PathStats>(counters.size());
+        counters.forEach((path, c) -> stats.add(new PathStats(path, c.changes.sum(), c.updates.sum(), c.bytes.sum())));
+        return stats;
+    }
+
+    /**
+     * Returns the top N path patterns with the most changes.
+     *
+     * @param n the maximum number of the results
+     * @return the top N statistics
+     */
+    public List<PathStats> topChanges(int n) {
+        return stats().stream().sorted(Comparator.comparingLong(PathStats::changes).reversed()).limit(n).toList();
+    }
+
+    /**
+     * Returns the top N path patterns with the most encoded bytes of
+     * updates.
+     *
+     * @param n the maximum number of the results
+     * @return the top N statistics
+     */
+    public List<PathStats> topBytes(int n) {
+        return stats().stream().sorted(Comparator.comparingLong(PathStats::bytes).reversed()).limit(n).toList();
+    }
+
+    /**
+     * Returns a text report of the top N path patterns with the most
+     * changes and the most encoded bytes of updates.
+     *
+     * @param n the maximum number of the rows of each table
+     * @return the text report
+     */
+    public String report(int n) {
+        var builder = new StringBuilder();
+        builder.append("Top ").append(n).append(" by changes:\n");
+        appendTable(builder, topChanges(n));
+        builder.append("Top ").append(n).append(" by bytes:\n");
+        appendTable(builder, topBytes(n));
+        return builder.toString();
+    }
+
+    private static void appendTable(StringBuilder builder, List<PathStats> stats) {
+        builder.append(String.format("%-40s %12s %12s %14s%n", "path", "changes", "updates", "bytes"));
+        for (var s : stats) {
+            builder.append(String.format("%-40s %12d %12d %14d%n", s.path(), s.changes(), s.updates(), s.bytes()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeProfiler(paths=" + counters.size() + ", running=" + isRunning() + ")";
+    }
+
+}
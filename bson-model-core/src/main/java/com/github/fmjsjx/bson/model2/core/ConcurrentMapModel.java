@@ -0,0 +1,446 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.client.model.Updates;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The thread-safe single value implementation of {@link MapModel}.
+ * <p>
+ * The values are stored in a {@link ConcurrentHashMap} and the changed keys
+ * are tracked in a concurrent set, so the map can be mutated from many
+ * threads at once. Atomic operations such as {@link #merge} and
+ * {@link #compute} record the changes as well.
+ * <p>
+ * Changes on this map are NOT propagated to the parent model, because the
+ * parent is not thread-safe. Use {@link #drainUpdates()} on the flushing
+ * thread to take the updates of this map. For the same reason, undo logs,
+ * snapshots and consistent reads of the root model do not cover this map.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @author MJ Fang
+ * @see MapModel
+ * @see SingleValueMapModel
+ * @since 2.4
+ */
+public final class ConcurrentMapModel<K, V> extends MapModel<K, V, ConcurrentMapModel<K, V>> {
+
+    /**
+     * Constructs a new {@link ConcurrentMapModel} instance with integer keys
+     * and the specified components.
+     *
+     * @param <V>       the type of the mapped values
+     * @param valueType the value type
+     * @return a new {@code ConcurrentMapModel<Integer, T>} instance with
+     * integer keys and the specified components
+     */
+    public static final <V> ConcurrentMapModel<Integer, V> integerKeysMap(SingleValueType<V> valueType) {
+        return new ConcurrentMapModel<>(Integer::parseInt, valueType);
+    }
+
+    /**
+     * Constructs a new {@link ConcurrentMapModel} instance with long keys and
+     * the specified components.
+     *
+     * @param <V>       the type of the mapped values
+     * @param valueType the value type
+     * @return a new {@code ConcurrentMapModel<Long, T>} instance with long
+     * keys and the specified components
+     */
+    public static final <V> ConcurrentMapModel<Long, V> longKeysMap(SingleValueType<V> valueType) {
+        return new ConcurrentMapModel<>(Long::parseLong, valueType);
+    }
+
+    /**
+     * Constructs a new {@link ConcurrentMapModel} instance with string keys
+     * and the specified components.
+     *
+     * @param <V>       the type of the mapped values
+     * @param valueType the value type
+     * @return a new {@code ConcurrentMapModel<String, T>} instance with string
+     * keys and the specified components
+     */
+    public static final <V> ConcurrentMapModel<String, V> stringKeysMap(SingleValueType<V> valueType) {
+        return new ConcurrentMapModel<>(Function.identity(), valueType);
+    }
+
+    private final SingleValueType<V> valueType;
+
+    /**
+     * Constructs a new {@link ConcurrentMapModel} instance with the specified components.
+     *
+     * @param keyParser the parser to parse keys
+     * @param valueType the value type
+     */
+    public ConcurrentMapModel(Function<String, K> keyParser, SingleValueType<V> valueType) {
+        super(new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet(), keyParser);
+        this.valueType = valueType;
+    }
+
+    @Override
+    protected UndoLog undoLog() {
+        return null;
+    }
+
+    @Override
+    protected UndoLog beforeChange() {
+        return null;
+    }
+
+    @Override
+    protected void afterChange() {
+    }
+
+    @Override
+    protected void triggerChanged() {
+        // never propagate changes to the parent which is not thread-safe
+    }
+
+    @Override
+    public int estimateBsonSize() {
+        // never cached, the values may be changed by any thread
+        return computeBsonSize();
+    }
+
+    @Override
+    protected void resetChildren() {
+    }
+
+    @Override
+    void resetChangedKeys() {
+        // the changed keys are only taken by drainUpdates(), resetting the
+        // parent model must never lose the updates not drained yet
+    }
+
+    @Override
+    protected int deletedSize() {
+        var changedKeys = this.changedKeys;
+        if (changedKeys.isEmpty()) {
+            return 0;
+        }
+        var map = this.map;
+        var n = 0;
+        for (var key : changedKeys) {
+            if (!map.containsKey(key)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    protected void clearMap() {
+        map.clear();
+    }
+
+    @Override
+    public ConcurrentMapModel<K, V> clear() {
+        var map = this.map;
+        var changedKeys = this.changedKeys;
+        for (var key : map.keySet()) {
+            if (map.remove(key) != null) {
+                changedKeys.add(key);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public BsonDocument toBson() {
+        var map = this.map;
+        var doc = new BsonDocument(Math.max(8, map.size()));
+        var valueType = this.valueType;
+        for (var e : map.entrySet()) {
+            doc.append(e.getKey().toString(), valueType.toBsonValue(e.getValue()));
+        }
+        return doc;
+    }
+
+    @Override
+    public Map<Object, Object> toData() {
+        var map = this.map;
+        if (map.isEmpty()) {
+            return Map.of();
+        }
+        var data = new LinkedHashMap<>(Math.max(8, map.size()));
+        var valueType = this.valueType;
+        for (var e : map.entrySet()) {
+            data.put(e.getKey(), valueType.toData(e.getValue()));
+        }
+        return data;
+    }
+
+    @Override
+    public ConcurrentMapModel<K, V> load(BsonDocument src) {
+        clean();
+        var map = this.map;
+        var valueType = this.valueType;
+        for (var e : src.entrySet()) {
+            var value = valueType.parse(e.getValue());
+            if (value != null) {
+                map.put(parseKey(e.getKey()), value);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public JsonNode toJsonNode() {
+        var map = this.map;
+        var jsonNode = JsonNodeFactory.instance.objectNode();
+        if (!map.isEmpty()) {
+            var valueType = this.valueType;
+            for (var e : map.entrySet()) {
+                jsonNode.set(e.getKey().toString(), valueType.toJsonNode(e.getValue()));
+            }
+        }
+        return jsonNode;
+    }
+
+    @Override
+    protected void loadObjectNode(ObjectNode src) {
+        clean();
+        var map = this.map;
+        var valueType = this.valueType;
+        for (var entry : src.properties()) {
+            var value = valueType.parse(entry.getValue());
+            if (value != null) {
+                map.put(parseKey(entry.getKey()), value);
+            }
+        }
+    }
+
+    @Override
+    public JSONObject toFastjson2Node() {
+        var map = this.map;
+        var valueType = this.valueType;
+        var jsonObject = new JSONObject();
+        if (!map.isEmpty()) {
+            for (var e : map.entrySet()) {
+                jsonObject.put(e.getKey().toString(), valueType.toData(e.getValue()));
+            }
+        }
+        return jsonObject;
+    }
+
+    @Override
+    protected void loadJSONObject(JSONObject src) {
+        clean();
+        var map = this.map;
+        var valueType = this.valueType;
+        for (var e : src.entrySet()) {
+            var value = valueType.parseData(e.getValue());
+            if (value != null) {
+                map.put(parseKey(e.getKey()), value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<Object, Object> toSubUpdateData() {
+        var changedKeys = this.changedKeys;
+        if (changedKeys.isEmpty()) {
+            return null;
+        }
+        var data = new LinkedHashMap<>(Math.max(8, changedKeys.size() << 1));
+        var valueType = this.valueType;
+        for (var key : changedKeys) {
+            var value = get((K) key);
+            if (value != null) {
+                data.put(key, valueType.toData(value));
+            }
+        }
+        return data.isEmpty() ? null : data;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<Object, Object> toDeletedData() {
+        var changedKeys = this.changedKeys;
+        if (changedKeys.isEmpty()) {
+            return Map.of();
+        }
+        var data = new LinkedHashMap<>(Math.max(8, changedKeys.size() << 1));
+        for (var key : changedKeys) {
+            var value = get((K) key);
+            if (value == null) {
+                data.put(key, 1);
+            }
+        }
+        return data.isEmpty() ? null : data;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            return remove(key);
+        }
+        var original = map.put(key, value);
+        changedKeys.add(key);
+        return original;
+    }
+
+    @Override
+    public V remove(K key) {
+        var original = map.remove(key);
+        if (original != null) {
+            changedKeys.add(key);
+        }
+        return original;
+    }
+
+    @Override
+    public boolean remove(K key, V value) {
+        var removed = map.remove(key, value);
+        if (removed) {
+            changedKeys.add(key);
+        }
+        return removed;
+    }
+
+    @Override
+    public V putIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) throws NoSuchElementException {
+        var value = computeIfAbsent(key, mappingFunction);
+        if (value == null) {
+            throw new NoSuchElementException("the value computed by the mappingFunction must not be null");
+        }
+        return value;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        var map = this.map;
+        var v = map.get(key);
+        if (v != null) {
+            return v;
+        }
+        var computed = new boolean[1];
+        var value = map.computeIfAbsent(key, k -> {
+            var newValue = mappingFunction.apply(k);
+            computed[0] = newValue != null;
+            return newValue;
+        });
+        if (computed[0]) {
+            changedKeys.add(key);
+        }
+        return value;
+    }
+
+    /**
+     * Atomically merges the specified value with the current value of the
+     * specified key, and records the change.
+     *
+     * @param key               the key
+     * @param value             the value to be merged, must not be {@code null}
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key, or
+     * {@code null} if no value is associated with the key
+     * @see ConcurrentHashMap#merge(Object, Object, BiFunction)
+     */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        var result = map.merge(key, value, remappingFunction);
+        changedKeys.add(key);
+        return result;
+    }
+
+    /**
+     * Atomically computes a new value for the specified key, and records the
+     * change.
+     *
+     * @param key               the key
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or
+     * {@code null} if none
+     * @see ConcurrentHashMap#compute(Object, BiFunction)
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        var result = map.compute(key, remappingFunction);
+        changedKeys.add(key);
+        return result;
+    }
+
+    /**
+     * Atomically computes a new value for the specified key if present, and
+     * records the change.
+     *
+     * @param key               the key
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or
+     * {@code null} if none
+     * @see ConcurrentHashMap#computeIfPresent(Object, BiFunction)
+     */
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (!map.containsKey(key)) {
+            return null;
+        }
+        var result = map.computeIfPresent(key, remappingFunction);
+        changedKeys.add(key);
+        return result;
+    }
+
+    /**
+     * Takes all changed keys out and returns the updates of them.
+     * <p>
+     * Each changed key is removed from the changed key set before its
+     * current value is read, so a change made concurrently will either be
+     * included in the returned updates or remain for the next drain, but
+     * never be lost.
+     *
+     * @return the list of updates
+     */
+    @SuppressWarnings("unchecked")
+    public List<Bson> drainUpdates() {
+        var changedKeys = this.changedKeys;
+        if (changedKeys.isEmpty()) {
+            return List.of();
+        }
+        var updates = new ArrayList<Bson>(changedKeys.size());
+        var path = path();
+        for (var it = changedKeys.iterator(); it.hasNext(); ) {
+            var key = it.next();
+            it.remove();
+            var value = get((K) key);
+            if (value == null) {
+                updates.add(Updates.unset(path.resolve(key.toString()).value()));
+            } else {
+                updates.add(Updates.set(path.resolve(key.toString()).value(), valueType.toBsonValue(value)));
+            }
+        }
+        return updates;
+    }
+
+    @Override
+    protected void appendUpdates(List<Bson> updates, Object key, V value) {
+        updates.add(Updates.set(path().resolve(key.toString()).value(), valueType.toBsonValue(value)));
+    }
+
+    @Override
+    public ConcurrentMapModel<K, V> deepCopy() {
+        var copy = new ConcurrentMapModel<>(keyParser, valueType);
+        deepCopyTo(copy);
+        return copy;
+    }
+
+    @Override
+    protected void deepCopyFrom(ConcurrentMapModel<K, V> src) {
+        map.putAll(src.map);
+    }
+
+}
@@ -40,6 +40,7 @@ public final class DefaultListModel<E extends AbstractBsonModel<BsonDocument, E>
 
     @Override
     public BsonArray toBson() {
+        var event = ModelOperationEvent.start();
         var list = this.list;
         var bson = new BsonArray(list.size());
         if (!list.isEmpty()) {
@@ -51,23 +52,47 @@ public final class DefaultListModel<E extends AbstractBsonModel<BsonDocument, E>
                 }
             }
         }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_BSON, bson);
+        }
         return bson;
     }
 
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        var list = this.list;
+        for (int i = 0, n = list.size(); i < n; i++) {
+            var v = list.get(i);
+            size += BsonSizes.indexElementSize(i, v == null ? 0 : v.estimateBsonSize());
+        }
+        return size;
+    }
+
     @Override
     public DefaultListModel<E> load(BsonArray src) {
-        clean();
-        for (var v : src) {
-            if (v != null && v.getBsonType() != BsonType.NULL) {
-                if (v instanceof BsonDocument doc) {
-                    var value = valueFactory.get();
-                    value.load(doc);
+        var event = ModelOperationEvent.start();
+        beforeChange();
+        try {
+            clean();
+            for (var v : src) {
+                if (v != null && v.getBsonType() != BsonType.NULL) {
+                    if (v instanceof BsonDocument doc) {
+                        var value = valueFactory.get();
+                        value.load(doc);
+                        list.add(value.parent(this).index(list.size()));
+                    } else {
+                        throw new IllegalArgumentException("bson value expected be an DOCUMENT but was " + v.getBsonType());
+                    }
                 } else {
-                    throw new IllegalArgumentException("bson value expected be an DOCUMENT but was " + v.getBsonType());
+                    list.add(null);
                 }
-            } else {
-                list.add(null);
             }
+        } finally {
+            afterChange();
+        }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.LOAD, src);
         }
         return this;
     }
@@ -147,20 +172,47 @@ public final class DefaultListModel<E extends AbstractBsonModel<BsonDocument, E>
         }
         value.mustUnbound();
         var list = this.list;
-        var original = list.set(index, value.parent(this).index(index).fullyUpdate(true));
+        Objects.checkIndex(index, list.size());
+        var undoLog = beforeChange();
+        E original;
+        try {
+            original = list.set(index, value.parent(this).index(index).fullyUpdate(true));
+        } finally {
+            afterChange();
+        }
         if (original != null) {
             original.unbind();
         }
+        if (undoLog != null) {
+            undoLog.append(() -> restoreValue(index, original));
+        }
         triggerChanged(index);
         return original;
     }
 
+    private void restoreValue(int index, E value) {
+        var current = list.set(index, value == null ? null : value.parent(this).index(index));
+        if (current != null && current != value) {
+            current.unbind();
+        }
+    }
+
     @Override
     public E remove(int index) {
         var list = this.list;
-        var original = list.remove(index);
+        Objects.checkIndex(index, list.size());
+        var undoLog = beforeChange();
+        E original;
+        try {
+            original = list.remove(index);
+        } finally {
+            afterChange();
+        }
         if (original != null) {
             original.unbind();
+            if (undoLog != null) {
+                undoLog.append(() -> list.add(index, original.parent(this).index(index)));
+            }
             triggerChanged(index);
         }
         return original;
@@ -170,11 +222,23 @@ public final class DefaultListModel<E extends AbstractBsonModel<BsonDocument, E>
     public DefaultListModel<E> append(E value) {
         var list = this.list;
         var index = list.size();
-        if (value == null) {
-            list.add(null);
-        } else {
+        if (value != null) {
             value.mustUnbound();
-            list.add(value.parent(this).index(index).fullyUpdate(true));
+            value.parent(this).index(index).fullyUpdate(true);
+        }
+        var undoLog = beforeChange();
+        try {
+            list.add(value);
+        } finally {
+            afterChange();
+        }
+        if (undoLog != null) {
+            undoLog.append(() -> {
+                var appended = list.remove(index);
+                if (appended != null) {
+                    appended.unbind();
+                }
+            });
         }
         triggerChanged(index);
         return this;
@@ -215,22 +279,43 @@ public final class DefaultListModel<E extends AbstractBsonModel<BsonDocument, E>
 
     @Override
     public int appendUpdates(List<Bson> updates) {
+        var event = ModelOperationEvent.start();
         var original = updates.size();
-        if (isFullyUpdate()) {
-            updates.add(Updates.set(path().value(), toBson()));
-        } else {
-            var changedIndexes = this.changedIndexes;
-            if (changedIndexes.size() > 0) {
-                changedIndexes.intStream().forEach(index -> {
-                    var value = list.get(index);
-                    if (value == null) {
-                        updates.add(Updates.unset(path().resolve(index).value()));
-                    } else {
-                        value.appendUpdates(updates);
+        var profiler = ChangeProfiler.current();
+        if (profiler != null) {
+            profiler.beginUpdates();
+        }
+        try {
+            if (isFullyUpdate()) {
+                recordFullUpdate();
+                updates.add(Updates.set(path().value(), toBson()));
+            } else {
+                var changedIndexes = this.changedIndexes;
+                if (changedIndexes.size() > 0) {
+                    changedIndexes.intStream().forEach(index -> {
+                        var value = list.get(index);
+                        if (value == null) {
+                            updates.add(Updates.unset(path().resolve(index).value()));
+                        } else {
+                            value.appendUpdates(updates);
+                        }
+                    });
+                    if (preferFullUpdate(updates, original, changedIndexes.size())) {
+                        updates.add(Updates.set(path().value(), toBson()));
                     }
-                });
+                }
+            }
+            if (profiler != null) {
+                profiler.recordUpdates(this, updates, original);
+            }
+        } finally {
+            if (profiler != null) {
+                profiler.endUpdates();
             }
         }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.APPEND_UPDATES, updates.size() - original);
+        }
         return updates.size() - original;
     }
 
@@ -276,6 +361,80 @@ public final class DefaultListModel<E extends AbstractBsonModel<BsonDocument, E>
         return data.isEmpty() ? null : data;
     }
 
+    @Override
+    void applyChanges(List<FieldChange> changes) {
+        beforeChange();
+        try {
+            var list = this.list;
+            for (var i = 0; i < changes.size(); i++) {
+                var change = changes.get(i);
+                var name = change.name();
+                if (name == null) {
+                    if (change.kind() == FieldChange.Kind.TRUNCATED) {
+                        while (list.size() > change.newSize()) {
+                            var value = list.remove(list.size() - 1);
+                            if (value != null) {
+                                value.unbind();
+                            }
+                        }
+                        continue;
+                    }
+                } else {
+                    var index = parseIndex(name);
+                    if (index >= 0 && index < list.size() && list.get(index) != null && change.isRoutable()) {
+                        list.get(index).applyChanges(List.of(change.child()));
+                        continue;
+                    }
+                    if (index >= 0 && index <= list.size() && change.isLeaf() && change.isReplacement()) {
+                        E value = null;
+                        if (change.kind() == FieldChange.Kind.UPDATED && change.value() instanceof BsonDocument doc) {
+                            value = index < list.size() ? list.get(index) : null;
+                            if (value == null) {
+                                value = valueFactory.get().parent(this).index(index);
+                            }
+                            value.load(doc);
+                        } else if (change.kind() == FieldChange.Kind.UPDATED && !change.value().isNull()) {
+                            throw new IllegalArgumentException("bson value expected be an DOCUMENT but was " + change.value().getBsonType());
+                        }
+                        if (index == list.size()) {
+                            list.add(value);
+                        } else {
+                            var original = list.set(index, value);
+                            if (original != null && original != value) {
+                                original.unbind();
+                            }
+                        }
+                        continue;
+                    }
+                }
+                // the rest changes are applied on the whole list
+                super.applyChanges(changes.subList(i, changes.size()));
+                return;
+            }
+            clearCachedBsonSize(null);
+        } finally {
+            afterChange();
+        }
+    }
+
+    private static int parseIndex(String name) {
+        try {
+            return Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    protected void restoreList(List<E> values) {
+        clearList();
+        var list = this.list;
+        for (var i = 0; i < values.size(); i++) {
+            var value = values.get(i);
+            list.add(value == null ? null : value.parent(this).index(i));
+        }
+    }
+
     @Override
     protected void clearList() {
         var list = this.list;
@@ -308,4 +467,48 @@ public final class DefaultListModel<E extends AbstractBsonModel<BsonDocument, E>
         }
     }
 
+
+    @Override
+    protected DefaultListModel<E> snapshotCopy() {
+        var copy = new DefaultListModel<>(valueFactory);
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(DefaultListModel<E> src) {
+        // the elements are shared, and will be copied when they are about to be changed
+        var list = this.list;
+        list.clear();
+        list.addAll(src.list);
+    }
+
+    @Override
+    AbstractBsonModel<?, ?> snapshotChild(AbstractBsonModel<?, ?> child) {
+        var index = indexOfSnapshotChild(child);
+        return index < 0 ? null : child;
+    }
+
+    private int indexOfSnapshotChild(AbstractBsonModel<?, ?> child) {
+        var list = this.list;
+        var index = child.index;
+        if (index >= 0 && index < list.size() && list.get(index) == child) {
+            return index;
+        }
+        // the index of the live child may be changed
+        for (var i = 0; i < list.size(); i++) {
+            if (list.get(i) == child) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    void replaceSnapshotChild(AbstractBsonModel<?, ?> child, AbstractBsonModel<?, ?> copy) {
+        var index = indexOfSnapshotChild(child);
+        list.set(index, ((E) copy).parent(this).index(index));
+    }
+
 }
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.bson.BsonDocument;
 import org.bson.conversions.Bson;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -73,6 +74,7 @@ public final class DefaultMapModel<K, V extends AbstractBsonModel<BsonDocument,
 
     @Override
     public BsonDocument toBson() {
+        var event = ModelOperationEvent.start();
         var map = this.map;
         var bson = new BsonDocument(Math.max(8, map.size()));
         if (!map.isEmpty()) {
@@ -80,24 +82,45 @@ public final class DefaultMapModel<K, V extends AbstractBsonModel<BsonDocument,
                 bson.append(e.getKey().toString(), e.getValue().toBson());
             }
         }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_BSON, bson);
+        }
         return bson;
     }
 
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        for (var e : map.entrySet()) {
+            size += BsonSizes.elementSize(e.getKey().toString(), e.getValue().estimateBsonSize());
+        }
+        return size;
+    }
+
     @Override
     public DefaultMapModel<K, V> load(BsonDocument src) {
-        clean();
-        var valueFactory = this.valueFactory;
-        var map = this.map;
-        for (var e : src.entrySet()) {
-            var v = e.getValue();
-            if (v instanceof BsonDocument doc) {
-                var key = parseKey(e.getKey());
-                var value = valueFactory.get();
-                value.load(doc);
-                map.put(key, value.parent(this).key(key));
-            } else {
-                throw new IllegalArgumentException("bson value expected be an DOCUMENT but was " + v.getBsonType());
+        var event = ModelOperationEvent.start();
+        beforeChange();
+        try {
+            clean();
+            var valueFactory = this.valueFactory;
+            var map = this.map;
+            for (var e : src.entrySet()) {
+                var v = e.getValue();
+                if (v instanceof BsonDocument doc) {
+                    var key = parseKey(e.getKey());
+                    var value = valueFactory.get();
+                    value.load(doc);
+                    map.put(key, value.parent(this).key(key));
+                } else {
+                    throw new IllegalArgumentException("bson value expected be an DOCUMENT but was " + v.getBsonType());
+                }
             }
+        } finally {
+            afterChange();
+        }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.LOAD, src);
         }
         return this;
     }
@@ -171,33 +194,63 @@ public final class DefaultMapModel<K, V extends AbstractBsonModel<BsonDocument,
             return remove(key);
         }
         value.mustUnbound();
-        var original = map.put(key, value.key(key).parent(this).fullyUpdate(true));
+        var undoLog = beforeChange();
+        V original;
+        try {
+            original = map.put(key, value.key(key).parent(this).fullyUpdate(true));
+        } finally {
+            afterChange();
+        }
         if (original != null) {
             original.unbind();
         }
+        logUndoValue(undoLog, key, original);
         triggerChanged(key);
         return original;
     }
 
     @Override
     public V remove(K key) {
-        var value = map.remove(key);
+        var undoLog = beforeChange();
+        V value;
+        try {
+            value = map.remove(key);
+        } finally {
+            afterChange();
+        }
         if (value != null) {
             value.unbind();
+            logUndoValue(undoLog, key, value);
             triggerChanged(key);
         }
         return value;
     }
 
     public boolean remove(K key, V value) {
-        if (map.remove(key, value)) {
+        var undoLog = beforeChange();
+        boolean removed;
+        try {
+            removed = map.remove(key, value);
+        } finally {
+            afterChange();
+        }
+        if (removed) {
             value.unbind();
+            logUndoValue(undoLog, key, value);
             triggerChanged(key);
             return true;
         }
         return false;
     }
 
+    @Override
+    protected void restoreValue(K key, V value) {
+        var current = value == null ? map.remove(key) : map.put(key, value.key(key).parent(this));
+        if (current != null && current != value) {
+            current.unbind();
+        }
+    }
+
     @Override
     protected void clearMap() {
         var map = this.map;
@@ -215,6 +268,59 @@ public final class DefaultMapModel<K, V extends AbstractBsonModel<BsonDocument,
         }
     }
 
+    @Override
+    void applyChanges(List<FieldChange> changes) {
+        beforeChange();
+        try {
+            var groups = FieldChange.groupByName(changes);
+            if (groups.containsKey(null)) {
+                super.applyChanges(changes);
+                return;
+            }
+            var map = this.map;
+            for (var e : groups.entrySet()) {
+                var name = e.getKey();
+                var group = e.getValue();
+                var key = parseKey(name);
+                var current = map.get(key);
+                if (current != null && group.stream().allMatch(FieldChange::isRoutable)) {
+                    current.applyChanges(FieldChange.children(group));
+                    continue;
+                }
+                // the whole value is updated and loaded again
+                var entry = new BsonDocument();
+                if (current != null) {
+                    entry.append(name, current.toBson());
+                }
+                var updates = new ArrayList<Bson>(group.size());
+                for (var change : group) {
+                    updates.add(change.toUpdate(""));
+                }
+                UpdateApplier.apply(entry, updates);
+                var v = entry.get(name);
+                if (v instanceof BsonDocument doc) {
+                    if (current != null) {
+                        current.load(doc);
+                    } else {
+                        var value = valueFactory.get();
+                        value.load(doc);
+                        map.put(key, value.parent(this).key(key));
+                    }
+                } else if (v == null || v.isNull()) {
+                    if (current != null) {
+                        map.remove(key);
+                        current.unbind();
+                    }
+                } else {
+                    throw new IllegalArgumentException("bson value expected be an DOCUMENT but was " + v.getBsonType());
+                }
+            }
+            clearCachedBsonSize(null);
+        } finally {
+            afterChange();
+        }
+    }
+
     @Override
     public Map<Object, Object> toData() {
         var map = this.map;
@@ -291,4 +397,33 @@ public final class DefaultMapModel<K, V extends AbstractBsonModel<BsonDocument,
         }
     }
 
+
+    @Override
+    protected DefaultMapModel<K, V> snapshotCopy() {
+        var copy = new DefaultMapModel<>(keyParser, valueFactory);
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(DefaultMapModel<K, V> src) {
+        // the values are shared, and will be copied when they are about to be changed
+        var map = this.map;
+        map.clear();
+        map.putAll(src.map);
+    }
+
+    @Override
+    AbstractBsonModel<?, ?> snapshotChild(AbstractBsonModel<?, ?> child) {
+        var value = map.get(child.key);
+        return value == child ? value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    void replaceSnapshotChild(AbstractBsonModel<?, ?> child, AbstractBsonModel<?, ?> copy) {
+        var key = (K) child.key;
+        map.put(key, ((V) copy).parent(this).key(key));
+    }
+
 }
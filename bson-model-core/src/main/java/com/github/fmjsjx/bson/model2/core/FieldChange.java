@@ -0,0 +1,179 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import com.mongodb.client.model.PushOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A change of a field from an update description of MongoDB change
+ * streams, or from an update operator, routed down the tree of models by
+ * {@link #depth()}.
+ *
+ * @author MJ Fang
+ * @see RootModel#applyChange(com.mongodb.client.model.changestream.UpdateDescription)
+ * @see UpdateApplier#apply(RootModel, List)
+ * @since 2.4
+ */
+final class FieldChange {
+
+    /**
+     * The kinds of {@link FieldChange}s.
+     */
+    enum Kind {
+        /**
+         * The field is updated to the value.
+         */
+        UPDATED,
+        /**
+         * The field is removed.
+         */
+        REMOVED,
+        /**
+         * The array field is truncated to the new size.
+         */
+        TRUNCATED,
+        /**
+         * The field is modified by an update operator, e.g. {@code $inc}.
+         */
+        OPERATED
+    }
+
+    static FieldChange updated(String path, BsonValue value) {
+        return new FieldChange(Kind.UPDATED, path.split("\\."), 0, value, 0, null);
+    }
+
+    static FieldChange removed(String path) {
+        return new FieldChange(Kind.REMOVED, path.split("\\."), 0, null, 0, null);
+    }
+
+    static FieldChange truncated(String path, int newSize) {
+        return new FieldChange(Kind.TRUNCATED, path.split("\\."), 0, null, newSize, null);
+    }
+
+    static FieldChange operated(String operator, String path, BsonValue value) {
+        return new FieldChange(Kind.OPERATED, path.split("\\."), 0, value, 0, operator);
+    }
+
+    /**
+     * Groups the changes by the names at the current depth, the changes on
+     * the models themselves are grouped by {@code null}.
+     */
+    static Map<String, List<FieldChange>> groupByName(List<FieldChange> changes) {
+        var groups = new LinkedHashMap<String, List<FieldChange>>();
+        for (var change : changes) {
+            groups.computeIfAbsent(change.name(), k -> new ArrayList<>()).add(change);
+        }
+        return groups;
+    }
+
+    static List<FieldChange> children(List<FieldChange> changes) {
+        var children = new ArrayList<FieldChange>(changes.size());
+        for (var change : changes) {
+            children.add(change.child());
+        }
+        return children;
+    }
+
+    private final Kind kind;
+    private final String[] path;
+    private final int depth;
+    private final BsonValue value;
+    private final int newSize;
+    private final String operator;
+
+    private FieldChange(Kind kind, String[] path, int depth, BsonValue value, int newSize, String operator) {
+        this.kind = kind;
+        this.path = path;
+        this.depth = depth;
+        this.value = value;
+        this.newSize = newSize;
+        this.operator = operator;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    BsonValue value() {
+        return value;
+    }
+
+    int newSize() {
+        return newSize;
+    }
+
+    /**
+     * Returns the name at the current depth.
+     *
+     * @return the name, or {@code null} if the change is on the model itself
+     */
+    String name() {
+        return depth < path.length ? path[depth] : null;
+    }
+
+    /**
+     * Returns if the change is on the field at the current depth itself.
+     */
+    boolean isLeaf() {
+        return depth == path.length - 1;
+    }
+
+    /**
+     * Returns if the field at the current depth is replaced or removed by
+     * the change, so the new value can be set without the current value.
+     */
+    boolean isReplacement() {
+        return kind == Kind.UPDATED || kind == Kind.REMOVED;
+    }
+
+    /**
+     * Returns if the change is routed into the field at the current depth,
+     * which is a model.
+     */
+    boolean isRoutable() {
+        return !isLeaf() || kind == Kind.TRUNCATED;
+    }
+
+    FieldChange child() {
+        return new FieldChange(kind, path, depth + 1, value, newSize, operator);
+    }
+
+    /**
+     * Returns the update with the path relative to the current depth,
+     * prefixed with the specified name.
+     */
+    Bson toUpdate(String prefix) {
+        var relative = new StringBuilder(prefix);
+        for (var i = depth; i < path.length; i++) {
+            if (!relative.isEmpty()) {
+                relative.append('.');
+            }
+            relative.append(path[i]);
+        }
+        var field = relative.toString();
+        return switch (kind) {
+            case UPDATED -> Updates.set(field, value);
+            case REMOVED -> Updates.unset(field);
+            // the same as the truncation of MongoDB
+            case TRUNCATED -> Updates.pushEach(field, List.of(), new PushOptions().slice(newSize));
+            case OPERATED -> new BsonDocument(operator, new BsonDocument(field, value));
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "FieldChange(" + kind + ", " + String.join(".", path) + "@" + depth + ")";
+    }
+
+}
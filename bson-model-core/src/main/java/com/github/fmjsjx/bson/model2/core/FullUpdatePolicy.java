@@ -0,0 +1,155 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The policy to replace the partial updates of a model by a full update.
+ * <p>
+ * When many fields of an {@link ObjectModel}, keys of a {@link MapModel}
+ * or indexes of a {@link ListModel} are changed, one {@code $set} of the
+ * whole sub-document can be smaller and faster to apply than one
+ * {@code $set}/{@code $unset} per change. With an enabled policy, the
+ * encoded size of the partial updates is compared with the estimated size
+ * of the full update, and the partial updates are replaced when
+ * {@code partialSize > fullSize * ratio}.
+ * <p>
+ * The policy is disabled by default. The global policy can be overridden
+ * per model class, the class of a map or list model is the class of its
+ * implementation, e.g. {@link DefaultMapModel}. Root models are always
+ * updated partially.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class FullUpdatePolicy {
+
+    private static final FullUpdatePolicy DISABLED = new FullUpdatePolicy(0, Integer.MAX_VALUE);
+
+    private static volatile FullUpdatePolicy global = DISABLED;
+    private static final ConcurrentHashMap<Class<?>, FullUpdatePolicy> overrides = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the disabled policy.
+     *
+     * @return the disabled policy
+     */
+    public static FullUpdatePolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns a new policy.
+     *
+     * @param ratio      the ratio, the partial updates are replaced when
+     *                   {@code partialSize > fullSize * ratio}
+     * @param minChanges the minimum number of changes to compare the sizes,
+     *                   models with fewer changes are always updated partially
+     * @return a new {@code FullUpdatePolicy}
+     */
+    public static FullUpdatePolicy of(double ratio, int minChanges) {
+        if (!(ratio > 0)) {
+            throw new IllegalArgumentException("ratio must be positive");
+        }
+        if (minChanges < 1) {
+            throw new IllegalArgumentException("minChanges must be positive");
+        }
+        return new FullUpdatePolicy(ratio, minChanges);
+    }
+
+    /**
+     * Returns the global policy.
+     *
+     * @return the global policy
+     */
+    public static FullUpdatePolicy global() {
+        return global;
+    }
+
+    /**
+     * Sets the global policy.
+     *
+     * @param policy the policy, {@code null} means disabled
+     */
+    public static void global(FullUpdatePolicy policy) {
+        global = policy == null ? DISABLED : policy;
+    }
+
+    /**
+     * Overrides the policy of the specified model class.
+     *
+     * @param modelClass the model class
+     * @param policy     the policy, {@code null} to remove the override
+     */
+    public static void override(Class<?> modelClass, FullUpdatePolicy policy) {
+        Objects.requireNonNull(modelClass, "modelClass must not be null");
+        if (policy == null) {
+            overrides.remove(modelClass);
+        } else {
+            overrides.put(modelClass, policy);
+        }
+    }
+
+    /**
+     * Returns the effective policy of the specified model class.
+     *
+     * @param modelClass the model class
+     * @return the effective policy
+     */
+    public static FullUpdatePolicy forClass(Class<?> modelClass) {
+        if (overrides.isEmpty()) {
+            return global;
+        }
+        var policy = overrides.get(modelClass);
+        return policy == null ? global : policy;
+    }
+
+    private final double ratio;
+    private final int minChanges;
+
+    private FullUpdatePolicy(double ratio, int minChanges) {
+        this.ratio = ratio;
+        this.minChanges = minChanges;
+    }
+
+    /**
+     * Returns if this policy is enabled or not.
+     *
+     * @return {@code true} if this policy is enabled, {@code false} otherwise
+     */
+    public boolean isEnabled() {
+        return this != DISABLED;
+    }
+
+    /**
+     * Returns the ratio.
+     *
+     * @return the ratio
+     */
+    public double ratio() {
+        return ratio;
+    }
+
+    /**
+     * Returns the minimum number of changes to compare the sizes.
+     *
+     * @return the minimum number of changes
+     */
+    public int minChanges() {
+        return minChanges;
+    }
+
+    boolean shouldCompare(int changes) {
+        return changes >= minChanges && this != DISABLED;
+    }
+
+    boolean preferFull(int partialSize, int fullSize) {
+        return partialSize > fullSize * ratio;
+    }
+
+    @Override
+    public String toString() {
+        return isEnabled() ? "FullUpdatePolicy(ratio=" + ratio + ", minChanges=" + minChanges + ")" : "FullUpdatePolicy(disabled)";
+    }
+
+}
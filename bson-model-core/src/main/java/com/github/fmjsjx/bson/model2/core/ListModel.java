@@ -57,7 +57,12 @@ public abstract class ListModel<E, Self extends ListModel<E, Self>>
         if (!src.isArray()) {
             throw new IllegalArgumentException("src expected be an ARRAY but was " + src.getNodeType());
         }
-        loadArrayNode((ArrayNode) src);
+        beforeChange();
+        try {
+            loadArrayNode((ArrayNode) src);
+        } finally {
+            afterChange();
+        }
         return (Self) this;
     }
 
@@ -81,7 +86,12 @@ public abstract class ListModel<E, Self extends ListModel<E, Self>>
     @Override
     public Self loadFastjson2Node(Object src) {
         if (src instanceof JSONArray jsonArray) {
-            loadJSONArray(jsonArray);
+            beforeChange();
+            try {
+                loadJSONArray(jsonArray);
+            } finally {
+                afterChange();
+            }
             return (Self) this;
         }
         throw new IllegalArgumentException("src expected be an JSONArray but was " + src.getClass().getSimpleName());
@@ -181,7 +191,18 @@ public abstract class ListModel<E, Self extends ListModel<E, Self>>
     public abstract Self append(E value);
 
     protected final void triggerChanged(int index) {
-        changedIndexes.add(index);
+        var profiler = ChangeProfiler.current();
+        if (profiler != null) {
+            profiler.recordChange(this, "*");
+        }
+        var changedIndexes = this.changedIndexes;
+        if (!changedIndexes.contains(index)) {
+            changedIndexes.add(index);
+            var undoLog = undoLog();
+            if (undoLog != null) {
+                undoLog.append(() -> changedIndexes.remove(index));
+            }
+        }
         triggerChanged();
     }
 
@@ -259,19 +280,52 @@ public abstract class ListModel<E, Self extends ListModel<E, Self>>
     @SuppressWarnings("unchecked")
     @Override
     public Self clear() {
-        fullyUpdate(true);
-        changedIndexes.clear();
-        clearList();
+        var undoLog = beforeChange();
+        try {
+            if (undoLog != null) {
+                var values = new ArrayList<>(list);
+                var indexes = changedIndexes.intStream().toArray();
+                undoLog.append(() -> {
+                    restoreList(values);
+                    for (var index : indexes) {
+                        changedIndexes.add(index);
+                    }
+                });
+            }
+            fullyUpdate(true);
+            changedIndexes.clear();
+            clearList();
+        } finally {
+            afterChange();
+        }
         return (Self) this;
     }
 
     protected abstract void clearList();
 
+    /**
+     * Restores the values of this list without tracking changes.
+     * <p>
+     * This method is called by the {@link UndoLog} when rolling back.
+     *
+     * @param values the values to be restored
+     * @since 2.4
+     */
+    protected void restoreList(List<E> values) {
+        list.clear();
+        list.addAll(values);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Self clean() {
-        clearList();
-        resetStates();
+        beforeChange();
+        try {
+            clearList();
+            resetStates();
+        } finally {
+            afterChange();
+        }
         return (Self) this;
     }
 
@@ -29,7 +29,7 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
 
     protected final Map<K, V> map;
     protected final Function<String, K> keyParser;
-    protected final Set<Object> changedKeys = new LinkedHashSet<>();
+    protected final Set<Object> changedKeys;
 
     /**
      * Constructs a new {@link MapModel} using {@link LinkedHashMap}.
@@ -47,7 +47,21 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
      * @param keyParser the parser parses keys
      */
     protected MapModel(Map<K, V> map, Function<String, K> keyParser) {
+        this(map, new LinkedHashSet<>(), keyParser);
+    }
+
+    /**
+     * Constructs a new {@link MapModel} with the specified map and the
+     * specified set of changed keys given.
+     *
+     * @param map         a {@link Map}
+     * @param changedKeys a {@link Set} to hold changed keys
+     * @param keyParser   the parser parses keys
+     * @since 2.4
+     */
+    protected MapModel(Map<K, V> map, Set<Object> changedKeys, Function<String, K> keyParser) {
         this.map = map;
+        this.changedKeys = changedKeys;
         this.keyParser = keyParser;
     }
 
@@ -67,7 +81,12 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
         if (!src.isObject()) {
             throw new IllegalArgumentException("src expected be an OBJECT but was " + src.getNodeType());
         }
-        loadObjectNode((ObjectNode) src);
+        beforeChange();
+        try {
+            loadObjectNode((ObjectNode) src);
+        } finally {
+            afterChange();
+        }
         return (Self) this;
     }
 
@@ -101,7 +120,12 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
     @Override
     public Self loadFastjson2Node(Object src) {
         if (src instanceof JSONObject jsonObject) {
-            loadJSONObject(jsonObject);
+            beforeChange();
+            try {
+                loadJSONObject(jsonObject);
+            } finally {
+                afterChange();
+            }
             return (Self) this;
         }
         throw new IllegalArgumentException("src expected be an JSONObject but was " + src.getClass().getSimpleName());
@@ -293,10 +317,56 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
     public abstract V remove(K key);
 
     protected final void triggerChanged(K key) {
-        changedKeys.add(key);
+        markChanged(key);
         triggerChanged();
     }
 
+    private void markChanged(Object key) {
+        var profiler = ChangeProfiler.current();
+        if (profiler != null) {
+            profiler.recordChange(this, "*");
+        }
+        var changedKeys = this.changedKeys;
+        if (changedKeys.add(key)) {
+            var undoLog = undoLog();
+            if (undoLog != null) {
+                undoLog.append(() -> changedKeys.remove(key));
+            }
+        }
+    }
+
+    /**
+     * Appends the action that restores the original value of the specified
+     * key into the given {@link UndoLog}.
+     *
+     * @param undoLog  the undo log, may be {@code null}
+     * @param key      the key
+     * @param original the original value, may be {@code null}
+     * @since 2.4
+     */
+    protected final void logUndoValue(UndoLog undoLog, K key, V original) {
+        if (undoLog != null) {
+            undoLog.append(() -> restoreValue(key, original));
+        }
+    }
+
+    /**
+     * Restores the value of the specified key without tracking changes.
+     * <p>
+     * This method is called by the {@link UndoLog} when rolling back.
+     *
+     * @param key   the key
+     * @param value the value to be restored, {@code null} means absent
+     * @since 2.4
+     */
+    protected void restoreValue(K key, V value) {
+        if (value == null) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+    }
+
     /**
      * Removes the entry for the specified key only if it is currently mapped to the
      * specified value.
@@ -403,25 +473,53 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
 
     @Override
     protected void resetStates() {
-        changedKeys.clear();
+        resetChangedKeys();
         super.resetStates();
     }
 
+    /**
+     * Clears the changed keys of this map on reset.
+     */
+    void resetChangedKeys() {
+        changedKeys.clear();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public int appendUpdates(List<Bson> updates) {
+        var event = ModelOperationEvent.start();
         var original = updates.size();
-        if (isFullyUpdate()) {
-            updates.add(Updates.set(path().value(), toBson()));
-        } else {
-            for (var key : changedKeys) {
-                var value = get((K) key);
-                if (value == null) {
-                    updates.add(Updates.unset(path().resolve(key.toString()).value()));
-                } else {
-                    appendUpdates(updates, key, value);
+        var profiler = ChangeProfiler.current();
+        if (profiler != null) {
+            profiler.beginUpdates();
+        }
+        try {
+            if (isFullyUpdate()) {
+                recordFullUpdate();
+                updates.add(Updates.set(path().value(), toBson()));
+            } else {
+                for (var key : changedKeys) {
+                    var value = get((K) key);
+                    if (value == null) {
+                        updates.add(Updates.unset(path().resolve(key.toString()).value()));
+                    } else {
+                        appendUpdates(updates, key, value);
+                    }
+                }
+                if (preferFullUpdate(updates, original, changedKeys.size())) {
+                    updates.add(Updates.set(path().value(), toBson()));
                 }
             }
+            if (profiler != null) {
+                profiler.recordUpdates(this, updates, original);
+            }
+        } finally {
+            if (profiler != null) {
+                profiler.endUpdates();
+            }
+        }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.APPEND_UPDATES, updates.size() - original);
         }
         return updates.size() - original;
     }
@@ -429,8 +527,20 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
     @SuppressWarnings("unchecked")
     @Override
     public Self clear() {
-        changedKeys.addAll(map.keySet());
-        clearMap();
+        var map = this.map;
+        var undoLog = beforeChange();
+        try {
+            if (undoLog != null && !map.isEmpty()) {
+                var entries = new LinkedHashMap<>(map);
+                undoLog.append(() -> entries.forEach(this::restoreValue));
+            }
+            for (var key : map.keySet()) {
+                markChanged(key);
+            }
+            clearMap();
+        } finally {
+            afterChange();
+        }
         triggerChanged();
         return (Self) this;
     }
@@ -440,8 +550,13 @@ public abstract class MapModel<K, V, Self extends MapModel<K, V, Self>>
     @SuppressWarnings("unchecked")
     @Override
     public Self clean() {
-        clearMap();
-        resetStates();
+        beforeChange();
+        try {
+            clearMap();
+            resetStates();
+        } finally {
+            afterChange();
+        }
         return (Self) this;
     }
 
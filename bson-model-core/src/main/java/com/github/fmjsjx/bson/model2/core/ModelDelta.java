@@ -0,0 +1,193 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A delta of a {@link RootModel}, replicated from the leader node to the
+ * follower nodes.
+ * <p>
+ * A delta is either the full document of the model, or the updates
+ * returned by {@link RootModel#toUpdates()} at a flush. The binary frame is
+ * in little-endian:
+ * <pre>
+ * int32    frame length, including itself
+ * byte     type, 1 for full document, 2 for updates
+ * int64    sequence
+ * int32    number of documents
+ * document the BSON documents
+ * </pre>
+ *
+ * @author MJ Fang
+ * @see ModelDeltaPublisher
+ * @see ModelDeltaSubscriber
+ * @since 2.4
+ */
+public final class ModelDelta {
+
+    /**
+     * The size of the frame header.
+     */
+    static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+
+    private static final byte TYPE_FULL = 1;
+    private static final byte TYPE_UPDATES = 2;
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    /**
+     * Creates a new delta with the full document of the model.
+     *
+     * @param sequence the sequence
+     * @param document the full document
+     * @return a new {@code ModelDelta}
+     */
+    public static ModelDelta full(long sequence, BsonDocument document) {
+        return new ModelDelta(TYPE_FULL, sequence, List.of(Objects.requireNonNull(document, "document must not be null")));
+    }
+
+    /**
+     * Creates a new delta with the updates of the model.
+     *
+     * @param sequence the sequence
+     * @param updates  the updates
+     * @return a new {@code ModelDelta}
+     */
+    public static ModelDelta updates(long sequence, List<? extends Bson> updates) {
+        var documents = new ArrayList<BsonDocument>(updates.size());
+        for (var update : updates) {
+            documents.add(update.toBsonDocument());
+        }
+        return new ModelDelta(TYPE_UPDATES, sequence, documents);
+    }
+
+    /**
+     * Decodes the delta from the binary frame.
+     *
+     * @param frame the binary frame
+     * @return the decoded {@code ModelDelta}
+     * @throws IllegalArgumentException if the frame is malformed
+     */
+    public static ModelDelta decode(byte[] frame) {
+        var buffer = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+        if (frame.length < HEADER_SIZE || buffer.getInt() != frame.length) {
+            throw new IllegalArgumentException("malformed delta frame");
+        }
+        var type = buffer.get();
+        if (type != TYPE_FULL && type != TYPE_UPDATES) {
+            throw new IllegalArgumentException("unknown delta type " + type);
+        }
+        var sequence = buffer.getLong();
+        var count = buffer.getInt();
+        var documents = new ArrayList<BsonDocument>(Math.max(0, count));
+        for (var i = 0; i < count; i++) {
+            var offset = buffer.position();
+            var length = buffer.remaining() >= 4 ? buffer.getInt(offset) : -1;
+            if (length < 5 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("malformed delta frame");
+            }
+            documents.add(new RawBsonDocument(frame, offset, length));
+            buffer.position(offset + length);
+        }
+        if (buffer.hasRemaining() || (type == TYPE_FULL && count != 1)) {
+            throw new IllegalArgumentException("malformed delta frame");
+        }
+        return new ModelDelta(type, sequence, documents);
+    }
+
+    private final byte type;
+    private final long sequence;
+    private final List<BsonDocument> documents;
+
+    private ModelDelta(byte type, long sequence, List<BsonDocument> documents) {
+        this.type = type;
+        this.sequence = sequence;
+        this.documents = documents;
+    }
+
+    /**
+     * Returns if this delta is the full document of the model.
+     *
+     * @return {@code true} if this delta is the full document
+     */
+    public boolean isFull() {
+        return type == TYPE_FULL;
+    }
+
+    /**
+     * Returns the sequence of this delta.
+     *
+     * @return the sequence
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the full document of the model.
+     *
+     * @return the full document
+     * @throws IllegalStateException if this delta is not the full document
+     */
+    public BsonDocument document() {
+        if (!isFull()) {
+            throw new IllegalStateException("not a full delta");
+        }
+        return documents.get(0);
+    }
+
+    /**
+     * Returns the updates of the model.
+     *
+     * @return the updates
+     * @throws IllegalStateException if this delta is the full document
+     */
+    public List<BsonDocument> updates() {
+        if (isFull()) {
+            throw new IllegalStateException("not an updates delta");
+        }
+        return documents;
+    }
+
+    /**
+     * Encodes this delta to the binary frame.
+     *
+     * @return the binary frame
+     */
+    public byte[] encode() {
+        try (var buffer = new BasicOutputBuffer(256)) {
+            buffer.writeInt32(0);
+            buffer.writeByte(type);
+            buffer.writeInt64(sequence);
+            buffer.writeInt32(documents.size());
+            for (var document : documents) {
+                if (document instanceof RawBsonDocument raw) {
+                    var bytes = raw.getByteBuffer();
+                    buffer.writeBytes(bytes.array(), bytes.position(), bytes.remaining());
+                } else {
+                    CODEC.encode(new BsonBinaryWriter(buffer), document, ENCODER_CONTEXT);
+                }
+            }
+            buffer.writeInt32(0, buffer.getPosition());
+            return buffer.toByteArray();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ModelDelta(" + (isFull() ? "full" : "updates") + ", " + sequence + ", " + documents + ")";
+    }
+
+}
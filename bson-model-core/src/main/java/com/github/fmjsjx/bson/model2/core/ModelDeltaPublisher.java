@@ -0,0 +1,239 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Publishes the {@link ModelDelta}s of a {@link RootModel} to the follower
+ * nodes through NIO channels.
+ * <p>
+ * A new subscriber receives the full document of the model first, and then
+ * the updates of each flush with continuous sequences. Typical usage in the
+ * flush handler of {@link ModelExecutor}:
+ * <pre>
+ * {@code
+ * var updates = player.toUpdates();
+ * // persist the updates
+ * publisher.publish(updates);
+ * player.reset();
+ * }
+ * </pre>
+ * <p>
+ * Selectable channels, e.g. {@code SocketChannel}s, are switched to the
+ * non-blocking mode, so a slow subscriber never blocks the publishing
+ * thread. The frames which can't be written immediately are queued for each
+ * subscriber, and written on the next {@link #publish(List)} or
+ * {@link #flush()}. Subscribers with more than the maximum pending deltas
+ * fall too far behind, and they are closed and removed, the same as the
+ * subscribers failing to be written.
+ * <p>
+ * This class is not thread-safe, it should be accessed only by the thread
+ * which is changing the model, e.g. in {@link ModelMailbox} commands and
+ * the flush handler.
+ *
+ * @param <R> the type of the root model
+ * @author MJ Fang
+ * @see ModelDelta
+ * @see ModelDeltaSubscriber
+ * @since 2.4
+ */
+public final class ModelDeltaPublisher<R extends RootModel<R>> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelDeltaPublisher.class);
+
+    /**
+     * The default maximum number of the pending deltas of each subscriber.
+     */
+    public static final int DEFAULT_MAX_PENDING_DELTAS = 1024;
+
+    private static final class Subscriber {
+
+        private final WritableByteChannel channel;
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+
+        private Subscriber(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Writes the pending frames until the channel can't accept more.
+         *
+         * @return {@code true} if all pending frames are written
+         */
+        private boolean flush() throws IOException {
+            var pending = this.pending;
+            for (var buffer = pending.peekFirst(); buffer != null; buffer = pending.peekFirst()) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return false;
+                }
+                pending.removeFirst();
+            }
+            return true;
+        }
+
+    }
+
+    private final R model;
+    private final int maxPendingDeltas;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long sequence;
+
+    /**
+     * Constructs a new {@link ModelDeltaPublisher} for the specified model,
+     * with {@link #DEFAULT_MAX_PENDING_DELTAS}.
+     *
+     * @param model the root model
+     */
+    public ModelDeltaPublisher(R model) {
+        this(model, DEFAULT_MAX_PENDING_DELTAS);
+    }
+
+    /**
+     * Constructs a new {@link ModelDeltaPublisher} for the specified model.
+     *
+     * @param model            the root model
+     * @param maxPendingDeltas the maximum number of the pending deltas of
+     *                         each subscriber
+     */
+    public ModelDeltaPublisher(R model, int maxPendingDeltas) {
+        if (maxPendingDeltas <= 0) {
+            throw new IllegalArgumentException("maxPendingDeltas must be positive");
+        }
+        this.model = Objects.requireNonNull(model, "model must not be null");
+        this.maxPendingDeltas = maxPendingDeltas;
+    }
+
+    /**
+     * Returns the sequence of the last published delta.
+     *
+     * @return the sequence
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the number of the subscribers.
+     *
+     * @return the number of the subscribers
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Adds a subscriber, and sends the full document of the model to it.
+     * <p>
+     * The model should not have any changes which are not published yet.
+     * If the channel is a {@link SelectableChannel}, it is switched to the
+     * non-blocking mode.
+     *
+     * @param channel the channel of the subscriber
+     * @throws IOException if any IO error occurs
+     */
+    public void subscribe(WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(channel, "channel must not be null");
+        if (channel instanceof SelectableChannel selectable) {
+            selectable.configureBlocking(false);
+        }
+        var subscriber = new Subscriber(channel);
+        subscriber.pending.add(ByteBuffer.wrap(ModelDelta.full(sequence, model.toBson()).encode()));
+        subscriber.flush();
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Publishes the updates of the model to all subscribers.
+     *
+     * @param updates the updates returned by {@link RootModel#toUpdates()}
+     * @return the published delta, or {@code null} if the updates are empty
+     */
+    public ModelDelta publish(List<? extends Bson> updates) {
+        if (updates.isEmpty()) {
+            return null;
+        }
+        var delta = ModelDelta.updates(++sequence, updates);
+        var frame = delta.encode();
+        var maxPendingDeltas = this.maxPendingDeltas;
+        for (var it = subscribers.iterator(); it.hasNext(); ) {
+            var subscriber = it.next();
+            if (subscriber.pending.size() >= maxPendingDeltas) {
+                logger.warn("Subscriber {} falls behind {} deltas at delta {}, remove it", subscriber.channel,
+                        maxPendingDeltas, sequence);
+                it.remove();
+                closeQuietly(subscriber.channel);
+                continue;
+            }
+            subscriber.pending.add(ByteBuffer.wrap(frame));
+            try {
+                subscriber.flush();
+            } catch (IOException e) {
+                logger.warn("Publish delta {} to subscriber {} failed, remove it", sequence, subscriber.channel, e);
+                it.remove();
+                closeQuietly(subscriber.channel);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Publishes the changes of the model to all subscribers.
+     * <p>
+     * This method is the same as {@code publish(model.toUpdates())}.
+     *
+     * @return the published delta, or {@code null} if there are no changes
+     */
+    public ModelDelta publish() {
+        return publish(model.toUpdates());
+    }
+
+    /**
+     * Writes the pending deltas to all subscribers, without blocking.
+     *
+     * @return {@code true} if all pending deltas are written
+     */
+    public boolean flush() {
+        var flushed = true;
+        for (var it = subscribers.iterator(); it.hasNext(); ) {
+            var subscriber = it.next();
+            try {
+                flushed &= subscriber.flush();
+            } catch (IOException e) {
+                logger.warn("Flush pending deltas to subscriber {} failed, remove it", subscriber.channel, e);
+                it.remove();
+                closeQuietly(subscriber.channel);
+            }
+        }
+        return flushed;
+    }
+
+    private static void closeQuietly(WritableByteChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Close subscriber {} failed", channel, e);
+        }
+    }
+
+    /**
+     * Closes all subscribers, the pending deltas are discarded.
+     */
+    @Override
+    public void close() {
+        subscribers.forEach(subscriber -> closeQuietly(subscriber.channel));
+        subscribers.clear();
+    }
+
+}
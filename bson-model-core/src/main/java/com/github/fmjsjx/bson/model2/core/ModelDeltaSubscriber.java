@@ -0,0 +1,155 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+
+/**
+ * Receives the {@link ModelDelta}s published by a
+ * {@link ModelDeltaPublisher}, and applies them to the follower model.
+ * <p>
+ * The deltas are applied without any change tracking, so the follower model
+ * is never marked as changed and can take over the leader at any time,
+ * with at most one flush behind.
+ * <p>
+ * This class is not thread-safe, the follower model should be read by other
+ * threads through {@link RootModel#readConsistent}.
+ *
+ * @param <R> the type of the root model
+ * @author MJ Fang
+ * @see ModelDelta
+ * @see ModelDeltaPublisher
+ * @since 2.4
+ */
+public final class ModelDeltaSubscriber<R extends RootModel<R>> implements Closeable {
+
+    private final ReadableByteChannel channel;
+    private final R model;
+    private final ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    private long sequence = -1;
+
+    /**
+     * Constructs a new {@link ModelDeltaSubscriber}.
+     *
+     * @param channel the channel connected to the publisher, in blocking mode
+     * @param model   the follower model
+     */
+    public ModelDeltaSubscriber(ReadableByteChannel channel, R model) {
+        this.channel = Objects.requireNonNull(channel, "channel must not be null");
+        this.model = Objects.requireNonNull(model, "model must not be null");
+    }
+
+    /**
+     * Returns the follower model.
+     *
+     * @return the follower model
+     */
+    public R model() {
+        return model;
+    }
+
+    /**
+     * Returns the sequence of the last applied delta.
+     *
+     * @return the sequence, or {@code -1} if the full document is not
+     * received yet
+     */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Reads the next delta from the channel.
+     *
+     * @return the next delta, or {@code null} if the channel reaches the end
+     * of stream
+     * @throws IOException if any IO error occurs
+     */
+    public ModelDelta read() throws IOException {
+        var header = this.header.clear();
+        if (!readFully(header, true)) {
+            return null;
+        }
+        var length = header.getInt(0);
+        if (length < ModelDelta.HEADER_SIZE) {
+            throw new StreamCorruptedException("invalid delta frame length " + length);
+        }
+        var frame = new byte[length];
+        var buffer = ByteBuffer.wrap(frame).put(header.flip());
+        readFully(buffer, false);
+        try {
+            return ModelDelta.decode(frame);
+        } catch (IllegalArgumentException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        }
+    }
+
+    private boolean readFully(ByteBuffer buffer, boolean allowEnd) throws IOException {
+        var start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (allowEnd && buffer.position() == start) {
+                    return false;
+                }
+                throw new EOFException("unexpected end of delta stream");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the delta to the follower model.
+     *
+     * @param delta the delta
+     * @throws IllegalStateException if the sequence of the delta is not
+     *                               continuous, or the full document is
+     *                               not received yet
+     */
+    public void apply(ModelDelta delta) {
+        var model = this.model;
+        if (delta.isFull()) {
+            model.load(delta.document());
+        } else {
+            if (sequence < 0) {
+                throw new IllegalStateException("the full document is not received yet");
+            }
+            if (delta.sequence() != sequence + 1) {
+                throw new IllegalStateException("delta sequence expected be " + (sequence + 1) + " but was " + delta.sequence());
+            }
+            UpdateApplier.apply(model, delta.updates());
+        }
+        sequence = delta.sequence();
+    }
+
+    /**
+     * Reads the next delta from the channel and applies it.
+     *
+     * @return {@code false} if the channel reaches the end of stream,
+     * {@code true} otherwise
+     * @throws IOException if any IO error occurs
+     */
+    public boolean applyNext() throws IOException {
+        var delta = read();
+        if (delta == null) {
+            return false;
+        }
+        apply(delta);
+        return true;
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException if any IO error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * A single-writer executor of {@link RootModel}s.
+ * <p>
+ * Each root model owns a {@link ModelMailbox}, all commands sent to a
+ * mailbox are executed serially, so one root model is touched by only one
+ * thread at a time without any locks. Mailboxes are drained on the given
+ * {@link Executor}, which is a virtual-thread-per-task executor by default
+ * when running on Java 21 or above.
+ * <p>
+ * After each drain batch, the flush handler is called on the same thread
+ * if the model has any changes. It is the place to persist
+ * {@code toUpdates()} and {@code reset()} the model.
+ *
+ * @param <R> the type of the root models
+ * @author MJ Fang
+ * @see ModelMailbox
+ * @since 2.4
+ */
+public final class ModelExecutor<R extends RootModel<R>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelExecutor.class);
+
+    /**
+     * The default maximum number of commands executed per drain.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService INSTANCE = createDefaultExecutor();
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.debug("Virtual threads are not available, use cached thread pool instead");
+            return Executors.newCachedThreadPool(r -> {
+                var thread = new Thread(r, "model-executor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Returns the default executor, which is a virtual-thread-per-task
+     * executor on Java 21 or above, or a cached thread pool otherwise.
+     *
+     * @return the default executor
+     */
+    public static ExecutorService defaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    private final Executor executor;
+    private final int batchSize;
+    private final Consumer<? super R> flushHandler;
+
+    /**
+     * Constructs a new {@link ModelExecutor} using the default executor
+     * without flush handler.
+     */
+    public ModelExecutor() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new {@link ModelExecutor} using the default executor.
+     *
+     * @param flushHandler the handler called after each drain when the model
+     *                     has any changes, may be {@code null}
+     */
+    public ModelExecutor(Consumer<? super R> flushHandler) {
+        this(defaultExecutor(), DEFAULT_BATCH_SIZE, flushHandler);
+    }
+
+    /**
+     * Constructs a new {@link ModelExecutor}.
+     *
+     * @param executor     the executor to drain mailboxes
+     * @param batchSize    the maximum number of commands executed per drain
+     * @param flushHandler the handler called after each drain when the model
+     *                     has any changes, may be {@code null}
+     */
+    public ModelExecutor(Executor executor, int batchSize, Consumer<? super R> flushHandler) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        this.batchSize = batchSize;
+        this.flushHandler = flushHandler;
+    }
+
+    /**
+     * Returns the {@link ModelMailbox} of the specified model, creates it at
+     * the first call.
+     * <p>
+     * Each model owns only one mailbox, so the same mailbox is returned for
+     * the same model. After the mailbox is created, the model should be
+     * accessed only through the mailbox.
+     *
+     * @param model the root model
+     * @return the {@code ModelMailbox} of the model
+     * @throws IllegalStateException if the model is already bound to the
+     *                               mailbox of another executor
+     */
+    @SuppressWarnings("unchecked")
+    public ModelMailbox<R> mailbox(R model) {
+        Objects.requireNonNull(model, "model must not be null");
+        var mailbox = (ModelMailbox<R>) model.bindMailbox(new ModelMailbox<>(this, model));
+        if (mailbox.modelExecutor() != this) {
+            throw new IllegalStateException("model is already bound to the mailbox of another executor");
+        }
+        return mailbox;
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    void flush(R model) {
+        var flushHandler = this.flushHandler;
+        if (flushHandler != null && model.anyChanged()) {
+            var event = ModelOperationEvent.start();
+            try {
+                flushHandler.accept(model);
+            } catch (Throwable e) {
+                logger.error("Unexpected error occurs when flushing model {}", model, e);
+            }
+            if (event != null) {
+                event.commit(model, ModelOperationEvent.FLUSH);
+            }
+        }
+    }
+
+}
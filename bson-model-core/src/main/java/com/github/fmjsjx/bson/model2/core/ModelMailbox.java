@@ -0,0 +1,140 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The serial mailbox of a {@link RootModel}.
+ * <p>
+ * Commands are executed one by one in the order they are sent, and at most
+ * one thread drains the mailbox at a time. If the executor rejects to drain
+ * the mailbox, the pending commands are removed and their futures are
+ * completed exceptionally.
+ *
+ * @param <R> the type of the root model
+ * @author MJ Fang
+ * @see ModelExecutor
+ * @since 2.4
+ */
+public final class ModelMailbox<R extends RootModel<R>> {
+
+    private static final class Command<R, T> {
+
+        private final Function<? super R, ? extends T> function;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Command(Function<? super R, ? extends T> function) {
+            this.function = function;
+        }
+
+        private void run(R model) {
+            try {
+                future.complete(function.apply(model));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+    }
+
+    private final ModelExecutor<R> modelExecutor;
+    private final R model;
+    private final ConcurrentLinkedQueue<Command<R, ?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    ModelMailbox(ModelExecutor<R> modelExecutor, R model) {
+        this.modelExecutor = modelExecutor;
+        this.model = model;
+    }
+
+    ModelExecutor<R> modelExecutor() {
+        return modelExecutor;
+    }
+
+    /**
+     * Sends a command which returns a result to this mailbox.
+     *
+     * @param <T>     the type of the result
+     * @param command the command
+     * @return a {@code CompletableFuture} completed with the result of the command
+     */
+    public <T> CompletableFuture<T> submit(Function<? super R, ? extends T> command) {
+        Objects.requireNonNull(command, "command must not be null");
+        var c = new Command<R, T>(command);
+        queue.offer(c);
+        schedule();
+        return c.future;
+    }
+
+    /**
+     * Sends a command to this mailbox.
+     *
+     * @param command the command
+     * @return a {@code CompletableFuture} completed when the command is done
+     */
+    public CompletableFuture<Void> execute(Consumer<? super R> command) {
+        Objects.requireNonNull(command, "command must not be null");
+        return submit(model -> {
+            command.accept(model);
+            return null;
+        });
+    }
+
+    /**
+     * Returns the number of pending commands.
+     *
+     * @return the number of pending commands
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    private void schedule() {
+        var queue = this.queue;
+        while (scheduled.compareAndSet(false, true)) {
+            try {
+                modelExecutor.executor().execute(this::drain);
+                return;
+            } catch (Throwable e) {
+                scheduled.set(false);
+                // no drain is scheduled, so the pending commands would never run
+                for (var command = queue.poll(); command != null; command = queue.poll()) {
+                    command.future.completeExceptionally(e);
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        var model = this.model;
+        var queue = this.queue;
+        try {
+            for (int i = 0, n = modelExecutor.batchSize(); i < n; i++) {
+                var command = queue.poll();
+                if (command == null) {
+                    break;
+                }
+                command.run(model);
+            }
+            modelExecutor.flush(model);
+        } finally {
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ModelMailbox(model=" + model.getClass().getSimpleName() + ", pending=" + queue.size() + ")";
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.util.ServiceLoader;
+
+/**
+ * The SPI to collect metrics of models.
+ * <p>
+ * All recording methods take only primitives and classes, so that
+ * implementations can record without any allocations. The metrics are
+ * recorded by {@link RootModel}s ({@code load}, {@code toBson} and
+ * {@code toUpdates}) and by models falling back to full updates.
+ * <p>
+ * The global instance is the first implementation found by
+ * {@link ServiceLoader}, or a no-op instance if there is none, and can be
+ * replaced by {@link #install(ModelMetrics)}.
+ *
+ * @author MJ Fang
+ * @see InMemoryModelMetrics
+ * @since 2.4
+ */
+public interface ModelMetrics {
+
+    /**
+     * Returns the no-op {@link ModelMetrics}.
+     *
+     * @return the no-op {@code ModelMetrics}
+     */
+    static ModelMetrics noop() {
+        return NoopModelMetrics.INSTANCE;
+    }
+
+    /**
+     * Returns the global {@link ModelMetrics}.
+     *
+     * @return the global {@code ModelMetrics}
+     */
+    static ModelMetrics current() {
+        return Holder.current;
+    }
+
+    /**
+     * Installs the global {@link ModelMetrics}.
+     *
+     * @param metrics the metrics, {@code null} means no-op
+     */
+    static void install(ModelMetrics metrics) {
+        Holder.current = metrics == null ? noop() : metrics;
+    }
+
+    /**
+     * Returns if this metrics is enabled or not.
+     * <p>
+     * Nothing will be recorded, even timing, if this method returns
+     * {@code false}.
+     *
+     * @return {@code true} if this metrics is enabled, {@code false} otherwise
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Returns if the encoded sizes should be measured or not.
+     * <p>
+     * Measuring sizes requires encoding the BSON values, so it is disabled
+     * by default.
+     *
+     * @return {@code true} if the encoded sizes should be measured, {@code false} otherwise
+     */
+    default boolean isSizeEnabled() {
+        return false;
+    }
+
+    /**
+     * Records a {@code load} of a root model.
+     *
+     * @param modelClass the class of the root model
+     * @param nanos      the time taken in nanoseconds
+     */
+    void recordLoad(Class<?> modelClass, long nanos);
+
+    /**
+     * Records a {@code toBson} of a root model.
+     *
+     * @param modelClass  the class of the root model
+     * @param nanos       the time taken in nanoseconds
+     * @param encodedSize the encoded size of the document, or {@code -1}
+     *                    if sizes are not enabled
+     */
+    void recordToBson(Class<?> modelClass, long nanos, long encodedSize);
+
+    /**
+     * Records a {@code toUpdates} of a root model.
+     *
+     * @param modelClass the class of the root model
+     * @param nanos      the time taken in nanoseconds
+     * @param updates    the number of the updates
+     */
+    void recordUpdates(Class<?> modelClass, long nanos, int updates);
+
+    /**
+     * Records the payload of a {@code $set} update.
+     * <p>
+     * This method is called only when sizes are enabled.
+     *
+     * @param modelClass the class of the root model
+     * @param bytes      the encoded size of the update
+     */
+    void recordSetPayload(Class<?> modelClass, long bytes);
+
+    /**
+     * Records a fallback to the full update of a model.
+     *
+     * @param modelClass the class of the root model
+     */
+    void recordFullUpdate(Class<?> modelClass);
+
+}
+
+final class Holder {
+
+    static volatile ModelMetrics current = ServiceLoader.load(ModelMetrics.class).findFirst()
+            .orElse(NoopModelMetrics.INSTANCE);
+
+    private Holder() {
+    }
+
+}
+
+final class NoopModelMetrics implements ModelMetrics {
+
+    static final NoopModelMetrics INSTANCE = new NoopModelMetrics();
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void recordLoad(Class<?> modelClass, long nanos) {
+    }
+
+    @Override
+    public void recordToBson(Class<?> modelClass, long nanos, long encodedSize) {
+    }
+
+    @Override
+    public void recordUpdates(Class<?> modelClass, long nanos, int updates) {
+    }
+
+    @Override
+    public void recordSetPayload(Class<?> modelClass, long bytes) {
+    }
+
+    @Override
+    public void recordFullUpdate(Class<?> modelClass) {
+    }
+
+    @Override
+    public String toString() {
+        return "NoopModelMetrics";
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+/**
+ * The JFR event of an operation on a model.
+ * <p>
+ * The event is disabled by default, enable it by the JFR settings, e.g.
+ * {@code -XX:StartFlightRecording:settings=profile,+com.github.fmjsjx.bson.model2.ModelOperation#enabled=true}
+ * on JDK 17+, or a custom {@code .jfc} file. When the event is disabled or
+ * no recording is running, {@link #start()} returns {@code null} and no
+ * event is created at all.
+ * <p>
+ * The encoded size is computed only when the event is about to be
+ * committed, after the duration is taken.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+@Name(ModelOperationEvent.NAME)
+@Label("Model Operation")
+@Category({"BSON Model"})
+@Description("An operation on a BSON model")
+@Enabled(false)
+@StackTrace(false)
+public final class ModelOperationEvent extends Event {
+
+    /**
+     * The name of this event.
+     */
+    public static final String NAME = "com.github.fmjsjx.bson.model2.ModelOperation";
+
+    /**
+     * The operation {@code load}.
+     */
+    public static final String LOAD = "load";
+    /**
+     * The operation {@code toBson}.
+     */
+    public static final String TO_BSON = "toBson";
+    /**
+     * The operation {@code toData}.
+     */
+    public static final String TO_DATA = "toData";
+    /**
+     * The operation {@code appendUpdates}.
+     */
+    public static final String APPEND_UPDATES = "appendUpdates";
+    /**
+     * The operation {@code toUpdates}.
+     */
+    public static final String TO_UPDATES = "toUpdates";
+    /**
+     * The operation {@code flush}.
+     */
+    public static final String FLUSH = "flush";
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(ModelOperationEvent.class);
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    /**
+     * Creates and begins a new event if the event is enabled.
+     *
+     * @return a new began event, or {@code null} if the event is disabled
+     */
+    public static ModelOperationEvent start() {
+        if (!EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        var event = new ModelOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Label("Model Class")
+    Class<?> modelClass;
+
+    @Label("Path")
+    String path;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Updates")
+    @Description("The number of updates produced")
+    int updates;
+
+    @Label("Encoded Size")
+    @Description("The encoded size of the BSON value, -1 if not applicable")
+    @DataAmount
+    long encodedSize = -1;
+
+    private ModelOperationEvent() {
+    }
+
+    /**
+     * Ends and commits this event.
+     *
+     * @param model     the model
+     * @param operation the operation
+     * @param updates   the number of updates produced
+     */
+    public void commit(BsonModel<?> model, String operation, int updates) {
+        end();
+        if (shouldCommit()) {
+            fill(model, operation);
+            this.updates = updates;
+            commit();
+        }
+    }
+
+    /**
+     * Ends and commits this event.
+     *
+     * @param model     the model
+     * @param operation the operation
+     * @param value     the loaded or encoded BSON value, may be {@code null}
+     */
+    public void commit(BsonModel<?> model, String operation, BsonValue value) {
+        end();
+        if (shouldCommit()) {
+            fill(model, operation);
+            encodedSize = encodedSize(value);
+            commit();
+        }
+    }
+
+    /**
+     * Ends and commits this event.
+     *
+     * @param model     the model
+     * @param operation the operation
+     */
+    public void commit(BsonModel<?> model, String operation) {
+        end();
+        if (shouldCommit()) {
+            fill(model, operation);
+            commit();
+        }
+    }
+
+    private void fill(BsonModel<?> model, String operation) {
+        modelClass = model.getClass();
+        path = model.path().value();
+        this.operation = operation;
+    }
+
+    private static long encodedSize(BsonValue value) {
+        if (value instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        if (value instanceof BsonDocument document) {
+            return new RawBsonDocument(document, CODEC).getByteBuffer().remaining();
+        }
+        if (value instanceof BsonArray array) {
+            // an array is encoded as a document with the indexes as keys, wrap it and
+            // minus the size of the wrapper: int32 size + type + "v\0" + terminator
+            return new RawBsonDocument(new BsonDocument("v", array), CODEC).getByteBuffer().remaining() - 8;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.bson.BsonDocument;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A copy-on-write snapshot of a {@link RootModel}.
+ * <p>
+ * A snapshot is created in O(1) by {@link RootModel#snapshot()} and shares
+ * the data with the live model at first. When a sub model is first changed
+ * after the snapshot was taken, the live model copies it, and its ancestors
+ * which are not copied yet, while the elements of the container models are
+ * still shared. So the cost of copying is proportional to the changed
+ * sub-trees but not the whole model, and the copies are shared by all
+ * pending snapshots taken at the same point. If the snapshot is read and
+ * released before any changes, no copy happens at all.
+ * <p>
+ * A snapshot can be read on any thread without locks. The readers never
+ * block the writer of the live model, instead, a reading is retried if the
+ * data it reads is being copied concurrently, so readers should not do
+ * heavy work in {@link #read(Function)}.
+ * <p>
+ * The changes through setters, container models, {@code load}s and
+ * {@code clean}s are all detected. Rolling back an {@link UndoLog} copies
+ * the whole data into the pending snapshots.
+ *
+ * @param <R> the type of the root model
+ * @author MJ Fang
+ * @see RootModel#snapshot()
+ * @since 2.4
+ */
+public final class ModelSnapshot<R extends RootModel<R>> {
+
+    private final R source;
+    private final SnapshotFrame frame;
+    private final AtomicBoolean frameReleased = new AtomicBoolean();
+    private volatile R model;
+    private volatile boolean released;
+
+    ModelSnapshot(R source, SnapshotFrame frame) {
+        this.source = source;
+        this.frame = frame;
+    }
+
+    /**
+     * Applies the given function on the data of this snapshot.
+     * <p>
+     * The model passed to the function must not be changed and must not be
+     * referenced after the function returns. The function may be applied
+     * more than once, so it must be free of side effects.
+     *
+     * @param <T>    the type of the result
+     * @param reader the function reading the model
+     * @return the result of the function
+     * @throws IllegalStateException if this snapshot has been already released
+     */
+    public <T> T read(Function<? super R, ? extends T> reader) {
+        var frame = this.frame;
+        for (; ; ) {
+            ensureNotReleased();
+            var model = this.model;
+            if (model != null) {
+                return reader.apply(model);
+            }
+            if (frame.retain()) {
+                try {
+                    return frame.read(source, reader);
+                } finally {
+                    frame.release();
+                }
+            }
+            // the frame was released concurrently, by model() or release()
+        }
+    }
+
+    /**
+     * Converts the data of this snapshot to a {@link BsonDocument}.
+     *
+     * @return a {@code BsonDocument}
+     */
+    public BsonDocument toBson() {
+        return read(RootModel::toBson);
+    }
+
+    /**
+     * Converts the data of this snapshot to a {@link JsonNode}.
+     *
+     * @return a {@code JsonNode}
+     */
+    public JsonNode toJsonNode() {
+        return read(RootModel::toJsonNode);
+    }
+
+    /**
+     * Converts the data of this snapshot to a data map.
+     *
+     * @return a data map
+     */
+    public Map<Object, Object> toData() {
+        return read(RootModel::toData);
+    }
+
+    /**
+     * Returns the copied model of this snapshot.
+     * <p>
+     * The whole data is copied on the caller thread without locks at the first
+     * call, the copy is shared by the snapshots taken at the same point, and
+     * then this snapshot will not be tracked by the live model anymore. The
+     * returned model must not be changed.
+     *
+     * @return the copied model
+     * @throws IllegalStateException if this snapshot has been already released
+     */
+    public R model() {
+        ensureNotReleased();
+        var model = this.model;
+        if (model == null) {
+            var frame = this.frame;
+            model = frame.deepCopy();
+            if (model == null) {
+                model = frame.cacheDeepCopy(read(RootModel::deepCopy));
+            }
+            this.model = model;
+            releaseFrame();
+        }
+        return model;
+    }
+
+    /**
+     * Releases this snapshot.
+     * <p>
+     * The live model will not copy the data for a released snapshot.
+     */
+    public void release() {
+        released = true;
+        model = null;
+        releaseFrame();
+    }
+
+    private void releaseFrame() {
+        if (frameReleased.compareAndSet(false, true)) {
+            frame.release();
+        }
+    }
+
+    /**
+     * Returns if this snapshot has been already released or not.
+     *
+     * @return {@code true} if this snapshot has been already released, {@code false} otherwise
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    private void ensureNotReleased() {
+        if (released) {
+            throw new IllegalStateException("the snapshot has been already released");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ModelSnapshot(source=" + source.getClass().getSimpleName() + ", copied=" + (model != null || frame.isCopied()) + ", released=" + released + ")";
+    }
+
+}
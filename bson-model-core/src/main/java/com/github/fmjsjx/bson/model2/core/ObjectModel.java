@@ -6,6 +6,7 @@ import com.mongodb.client.model.Updates;
 import org.bson.BsonDocument;
 import org.bson.conversions.Bson;
 
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -23,11 +24,28 @@ public abstract class ObjectModel<Self extends ObjectModel<Self>> extends Abstra
     @Override
     public int appendUpdates(List<Bson> updates) {
         var base = updates.size();
-        if (isFullyUpdate()) {
-            appendFullUpdate(updates);
-        } else {
-            if (!changedFields.isEmpty()) {
-                appendFieldUpdates(updates);
+        var profiler = ChangeProfiler.current();
+        if (profiler != null) {
+            profiler.beginUpdates();
+        }
+        try {
+            if (isFullyUpdate()) {
+                recordFullUpdate();
+                appendFullUpdate(updates);
+            } else {
+                if (!changedFields.isEmpty()) {
+                    appendFieldUpdates(updates);
+                    if (preferFullUpdate(updates, base, changedFields.cardinality())) {
+                        appendFullUpdate(updates);
+                    }
+                }
+            }
+            if (profiler != null) {
+                profiler.recordUpdates(this, updates, base);
+            }
+        } finally {
+            if (profiler != null) {
+                profiler.endUpdates();
             }
         }
         return updates.size() - base;
@@ -57,7 +75,7 @@ public abstract class ObjectModel<Self extends ObjectModel<Self>> extends Abstra
      */
     @SuppressWarnings("unchecked")
     protected Self fieldChanged(int index) {
-        changedFields.set(index);
+        markChanged(index);
         triggerChanged();
         return (Self) this;
     }
@@ -70,9 +88,8 @@ public abstract class ObjectModel<Self extends ObjectModel<Self>> extends Abstra
      */
     @SuppressWarnings("unchecked")
     protected Self fieldsChanged(int... indexes) {
-        var changedFields = this.changedFields;
         for (var index : indexes) {
-            changedFields.set(index);
+            markChanged(index);
         }
         triggerChanged();
         return (Self) this;
@@ -85,10 +102,144 @@ public abstract class ObjectModel<Self extends ObjectModel<Self>> extends Abstra
     }
 
     protected final void triggerChanged(int index) {
-        changedFields.set(index);
+        markChanged(index);
         triggerChanged();
     }
 
+    private void markChanged(int index) {
+        var profiler = ChangeProfiler.current();
+        if (profiler != null) {
+            var name = fieldName(index);
+            if (name != null) {
+                profiler.recordChange(this, name);
+            }
+        }
+        var changedFields = this.changedFields;
+        if (!changedFields.get(index)) {
+            changedFields.set(index);
+            var undoLog = undoLog();
+            if (undoLog != null) {
+                undoLog.append(() -> changedFields.clear(index));
+            }
+        }
+    }
+
+    /**
+     * Returns the BSON name of the field at the index.
+     * <p>
+     * The generated models override this method, and the default
+     * implementation returns the index as the name.
+     *
+     * @param index the field index
+     * @return the BSON name, or {@code null} if the field is not persisted
+     * @since 2.4
+     */
+    protected String fieldName(int index) {
+        return String.valueOf(index);
+    }
+
+    /**
+     * Appends the BSON value of the field with the specified BSON name into
+     * the destination document, the same as {@link #toBson()}.
+     * <p>
+     * The generated models override this method, and the default
+     * implementation appends nothing.
+     *
+     * @param name the BSON name of the field
+     * @param dest the destination document
+     * @return {@code true} if the field is persisted, {@code false} otherwise
+     * @see UpdateApplier#apply(RootModel, List)
+     * @since 2.4
+     */
+    protected boolean appendFieldBson(String name, BsonDocument dest) {
+        return false;
+    }
+
+    /**
+     * Loads the field with the specified BSON name from the source document,
+     * the same as {@code load(BsonDocument)}, without any change tracking.
+     * <p>
+     * The generated models override this method, and the default
+     * implementation loads nothing.
+     *
+     * @param name the BSON name of the field
+     * @param src  the source document
+     * @return {@code true} if the field is loaded, {@code false} otherwise
+     * @see UpdateApplier#apply(RootModel, List)
+     * @since 2.4
+     */
+    protected boolean loadField(String name, BsonDocument src) {
+        return false;
+    }
+
+    /**
+     * Returns the sub model of the field with the specified BSON name.
+     * <p>
+     * The generated models override this method, and the default
+     * implementation returns {@code null}.
+     *
+     * @param name the BSON name of the field
+     * @return the sub model, or {@code null} if the field is not a model or
+     * the value is {@code null}
+     * @see RootModel#applyChange(com.mongodb.client.model.changestream.UpdateDescription)
+     * @since 2.4
+     */
+    protected AbstractBsonModel<?, ?> fieldModel(String name) {
+        return null;
+    }
+
+    @Override
+    AbstractBsonModel<?, ?> snapshotChild(AbstractBsonModel<?, ?> child) {
+        return child.key instanceof String name ? fieldModel(name) : null;
+    }
+
+    @Override
+    void applyChanges(List<FieldChange> changes) {
+        beforeChange();
+        try {
+            var groups = FieldChange.groupByName(changes);
+            if (groups.containsKey(null)) {
+                // the changes on this model itself, e.g. truncation, so all
+                // changes are applied on the whole model in order, before
+                // anything is applied on the fields
+                super.applyChanges(changes);
+                return;
+            }
+            BsonDocument fields = null;
+            List<String> names = null;
+            List<Bson> updates = null;
+            for (var e : groups.entrySet()) {
+                var name = e.getKey();
+                var group = e.getValue();
+                var model = group.stream().allMatch(FieldChange::isRoutable) ? fieldModel(name) : null;
+                if (model != null) {
+                    model.applyChanges(FieldChange.children(group));
+                } else {
+                    // the whole field is updated and loaded again
+                    if (fields == null) {
+                        fields = new BsonDocument();
+                        names = new ArrayList<>();
+                        updates = new ArrayList<>();
+                    }
+                    appendFieldBson(name, fields);
+                    names.add(name);
+                    for (var change : group) {
+                        updates.add(change.toUpdate(""));
+                    }
+                }
+            }
+            if (fields != null) {
+                UpdateApplier.apply(fields, updates);
+                for (var name : names) {
+                    loadField(name, fields);
+                }
+            }
+            clearCachedBsonSize(null);
+        } finally {
+            afterChange();
+        }
+    }
+
     @Override
     public boolean anyChanged() {
         return isFullyUpdate() || changedFields.length() > 0;
@@ -100,7 +251,12 @@ public abstract class ObjectModel<Self extends ObjectModel<Self>> extends Abstra
         if (!src.isObject()) {
             throw new IllegalArgumentException("src expected be an OBJECT but was " + src.getNodeType());
         }
-        loadObjectNode(src);
+        beforeChange();
+        try {
+            loadObjectNode(src);
+        } finally {
+            afterChange();
+        }
         return (Self) this;
     }
 
@@ -126,7 +282,12 @@ public abstract class ObjectModel<Self extends ObjectModel<Self>> extends Abstra
     @Override
     public Self loadFastjson2Node(Object src) {
         if (src instanceof JSONObject jsonObject) {
-            loadJSONObject(jsonObject);
+            beforeChange();
+            try {
+                loadJSONObject(jsonObject);
+            } finally {
+                afterChange();
+            }
             return (Self) this;
         }
         throw new IllegalArgumentException("src expected be an JSONObject but was " + src.getClass().getSimpleName());
@@ -1,9 +1,18 @@
 package com.github.fmjsjx.bson.model2.core;
 
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.conversions.Bson;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * The abstract root implementation of {@link ObjectModel}.
@@ -15,6 +24,30 @@ import java.util.List;
  */
 public abstract class RootModel<Self extends RootModel<Self>> extends ObjectModel<Self> {
 
+    private static final VarHandle SEQUENCE;
+    private static final VarHandle MAILBOX;
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            SEQUENCE = lookup.findVarHandle(RootModel.class, "sequence", long.class);
+            MAILBOX = lookup.findVarHandle(RootModel.class, "mailbox", ModelMailbox.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private long sequence;
+    private int changeDepth;
+    private UndoLog undoLog;
+    private ArrayList<SnapshotFrame> frames;
+    private long frameEpoch;
+    private ChangeJournal changeJournal;
+    @SuppressWarnings("unused")
+    private volatile ModelMailbox<?> mailbox;
+
     @Override
     public <P extends BsonModel<?>> P parent() {
         return null;
@@ -32,16 +65,462 @@ public abstract class RootModel<Self extends RootModel<Self>> extends ObjectMode
      * @return the list of updates
      */
     public List<Bson> toUpdates() {
+        var event = ModelOperationEvent.start();
+        var startTime = metricsStartTime();
         var updates = new ArrayList<Bson>();
         appendUpdates(updates);
+        if (startTime != 0) {
+            metricsUpdated(startTime, updates);
+        }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_UPDATES, updates.size());
+        }
         return updates;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The installed {@link BsonSizeGuard} fires after the updates are
+     * appended.
+     */
+    @Override
+    public int appendUpdates(List<Bson> updates) {
+        var base = updates.size();
+        var count = super.appendUpdates(updates);
+        if (count > 0) {
+            var guard = BsonSizeGuard.current();
+            if (guard != null) {
+                guard.check(this, updates, base);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the estimated encoded size of the updates which will be
+     * returned by {@link #toUpdates()}.
+     *
+     * @return the estimated encoded size in bytes
+     * @since 2.4
+     */
+    public int estimateUpdatesSize() {
+        var updates = new ArrayList<Bson>();
+        super.appendUpdates(updates);
+        return BsonSizes.sizeOf(updates);
+    }
+
+    private void metricsUpdated(long startTime, List<Bson> updates) {
+        var metrics = ModelMetrics.current();
+        var modelClass = getClass();
+        metrics.recordUpdates(modelClass, System.nanoTime() - startTime, updates.size());
+        if (metrics.isSizeEnabled()) {
+            for (var update : updates) {
+                var document = update.toBsonDocument();
+                if ("$set".equals(document.getFirstKey())) {
+                    metrics.recordSetPayload(modelClass, encodedSize(document));
+                }
+            }
+        }
+    }
+
+    private static long encodedSize(BsonDocument document) {
+        if (document instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        return new RawBsonDocument(document, CODEC).getByteBuffer().remaining();
+    }
+
+    /**
+     * Returns the start time for {@link ModelMetrics}.
+     *
+     * @return the current value of {@link System#nanoTime()}, or {@code 0}
+     * if the metrics is disabled
+     * @since 2.4
+     */
+    protected final long metricsStartTime() {
+        return ModelMetrics.current().isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a {@code load} of this model into {@link ModelMetrics}.
+     *
+     * @param startTime the start time returned by {@link #metricsStartTime()}
+     * @since 2.4
+     */
+    protected final void metricsLoaded(long startTime) {
+        if (startTime != 0) {
+            ModelMetrics.current().recordLoad(getClass(), System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Records a {@code toBson} of this model into {@link ModelMetrics}.
+     *
+     * @param startTime the start time returned by {@link #metricsStartTime()}
+     * @param document  the encoded document
+     * @since 2.4
+     */
+    protected final void metricsEncoded(long startTime, BsonDocument document) {
+        if (startTime != 0) {
+            var nanos = System.nanoTime() - startTime;
+            var metrics = ModelMetrics.current();
+            metrics.recordToBson(getClass(), nanos, metrics.isSizeEnabled() ? encodedSize(document) : -1);
+        }
+    }
+
     @Override
     public DotNotationPath path() {
         return DotNotationPath.root();
     }
 
+    /**
+     * Begins to record mutations of this model into an {@link UndoLog}.
+     * <p>
+     * If there is already an active undo log, just returns it.
+     *
+     * @return the active {@code UndoLog}
+     * @since 2.4
+     */
+    public UndoLog beginUndoLog() {
+        var undoLog = this.undoLog;
+        if (undoLog == null) {
+            this.undoLog = undoLog = new UndoLog(this);
+        }
+        return undoLog;
+    }
+
+    /**
+     * Returns the active {@link UndoLog} of this model.
+     *
+     * @return the active {@code UndoLog}, or {@code null} if absent
+     * @since 2.4
+     */
+    @Override
+    public UndoLog undoLog() {
+        return undoLog;
+    }
+
+    /**
+     * Creates and returns a copy-on-write snapshot of this model in O(1).
+     * <p>
+     * Only the sub models changed after the snapshot was taken are copied,
+     * along with their ancestors, when they are first changed.
+     *
+     * @return a new {@code ModelSnapshot}
+     * @see ModelSnapshot
+     * @since 2.4
+     */
+    @SuppressWarnings("unchecked")
+    public ModelSnapshot<Self> snapshot() {
+        var frames = this.frames;
+        if (frames == null) {
+            this.frames = frames = new ArrayList<>();
+        } else {
+            frames.removeIf(SnapshotFrame::isReleased);
+        }
+        var sequence = (long) SEQUENCE.get(this);
+        var frame = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+        // the snapshots taken without any changes between them share the same frame
+        if (frame == null || (sequence & 1) != 0 || frame.sequence() != sequence || !frame.retain()) {
+            frame = new SnapshotFrame(sequence);
+            frames.add(frame);
+            frameEpoch = frame.epoch();
+        }
+        return new ModelSnapshot<>((Self) this, frame);
+    }
+
+    /**
+     * Copies the specified model, which is about to be changed, into the
+     * pending snapshots.
+     *
+     * @param model the model in this model
+     */
+    final void preserveForSnapshots(AbstractBsonModel<?, ?> model) {
+        var frames = this.frames;
+        if (frames != null && model.snapshotEpoch < frameEpoch) {
+            frames.removeIf(SnapshotFrame::isReleased);
+            for (var frame : frames) {
+                if (frame.epoch() > model.snapshotEpoch) {
+                    frame.preserve(this, model);
+                }
+            }
+            model.snapshotEpoch = frameEpoch;
+            if (frames.isEmpty()) {
+                this.frames = null;
+            }
+        }
+    }
+
+    /**
+     * Detaches the specified model, which is about to be unbound, from the
+     * pending snapshots.
+     *
+     * @param parent the parent of the model
+     * @param model  the model
+     */
+    final void detachFromSnapshots(AbstractBsonModel<?, ?> parent, AbstractBsonModel<?, ?> model) {
+        var frames = this.frames;
+        if (frames != null) {
+            for (var frame : frames) {
+                if (!frame.isReleased()) {
+                    frame.detach(parent, model);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the whole data into the pending snapshots, so they are not
+     * tracked anymore.
+     */
+    final void detachSnapshots() {
+        var frames = this.frames;
+        if (frames != null) {
+            this.frames = null;
+            for (var frame : frames) {
+                if (!frame.isReleased()) {
+                    frame.detachAll(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Binds the mailbox to this model if no mailbox is bound yet.
+     *
+     * @param mailbox the new mailbox
+     * @return the mailbox bound to this model
+     */
+    final ModelMailbox<?> bindMailbox(ModelMailbox<?> mailbox) {
+        var witness = (ModelMailbox<?>) MAILBOX.compareAndExchange(this, null, mailbox);
+        return witness == null ? mailbox : witness;
+    }
+
+    /**
+     * Enables the {@link ChangeJournal} of this model.
+     * <p>
+     * If the change journal is already enabled, just returns it.
+     *
+     * @param capacity the maximum number of versions kept in the journal
+     * @return the {@code ChangeJournal}
+     * @since 2.4
+     */
+    public ChangeJournal enableChangeJournal(int capacity) {
+        var changeJournal = this.changeJournal;
+        if (changeJournal == null) {
+            this.changeJournal = changeJournal = new ChangeJournal(this, capacity);
+        }
+        return changeJournal;
+    }
+
+    /**
+     * Returns the {@link ChangeJournal} of this model.
+     *
+     * @return the {@code ChangeJournal}, or {@code null} if not enabled
+     * @since 2.4
+     */
+    public ChangeJournal changeJournal() {
+        return changeJournal;
+    }
+
+    /**
+     * Returns the merged changes since the specified version.
+     *
+     * @param version the version of the client
+     * @return the merged changes
+     * @throws IllegalStateException if the change journal is not enabled
+     * @see ChangeJournal#deltaSince(long)
+     * @since 2.4
+     */
+    public ChangeJournal.Patch deltaSince(long version) {
+        var changeJournal = this.changeJournal;
+        if (changeJournal == null) {
+            throw new IllegalStateException("change journal is not enabled");
+        }
+        return changeJournal.deltaSince(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The changes are recorded into the {@link ChangeJournal} before reset
+     * if it is enabled.
+     */
+    @Override
+    public void reset() {
+        var changeJournal = this.changeJournal;
+        if (changeJournal != null && anyChanged()) {
+            changeJournal.record(toUpdateData(), toDeletedData());
+        }
+        super.reset();
+    }
+
+    /**
+     * Applies the update description of a MongoDB change stream event to
+     * this model.
+     * <p>
+     * The changes are routed down to the fields, map keys and list indexes,
+     * only the touched sub models are loaded again. This model will not be
+     * marked as changed, and the changes will not be recorded into the
+     * {@link UndoLog}.
+     *
+     * @param description the update description
+     * @return this model
+     * @since 2.4
+     */
+    @SuppressWarnings("unchecked")
+    public Self applyChange(UpdateDescription description) {
+        var changes = new ArrayList<FieldChange>();
+        var truncatedArrays = description.getTruncatedArrays();
+        if (truncatedArrays != null) {
+            for (var truncatedArray : truncatedArrays) {
+                changes.add(FieldChange.truncated(truncatedArray.getField(), truncatedArray.getNewSize()));
+            }
+        }
+        var updatedFields = description.getUpdatedFields();
+        if (updatedFields != null) {
+            for (var e : updatedFields.entrySet()) {
+                changes.add(FieldChange.updated(e.getKey(), e.getValue()));
+            }
+        }
+        var removedFields = description.getRemovedFields();
+        if (removedFields != null) {
+            for (var removedField : removedFields) {
+                changes.add(FieldChange.removed(removedField));
+            }
+        }
+        if (!changes.isEmpty()) {
+            applyChanges(changes);
+        }
+        return (Self) this;
+    }
+
+    /**
+     * Applies the MongoDB change stream event to this model.
+     * <p>
+     * The {@code update} events are applied by
+     * {@link #applyChange(UpdateDescription)}, and the {@code insert} and
+     * {@code replace} events load the full document.
+     *
+     * @param event the change stream event
+     * @return this model
+     * @throws IllegalArgumentException if the operation type is not supported
+     * @since 2.4
+     */
+    public Self applyChange(ChangeStreamDocument<?> event) {
+        var operationType = event.getOperationType();
+        if (operationType == OperationType.UPDATE && event.getUpdateDescription() != null) {
+            return applyChange(event.getUpdateDescription());
+        }
+        if ((operationType == OperationType.INSERT || operationType == OperationType.REPLACE)
+                && event.getFullDocument() instanceof Bson fullDocument) {
+            return load(fullDocument.toBsonDocument());
+        }
+        throw new IllegalArgumentException("unsupported change stream event: " + event.getOperationTypeString());
+    }
+
+    @Override
+    protected UndoLog beforeChange() {
+        prepareChange();
+        return undoLog;
+    }
+
+    @Override
+    final RootModel<?> prepareChange() {
+        if (changeDepth++ == 0) {
+            SEQUENCE.setOpaque(this, (long) SEQUENCE.get(this) + 1);
+            VarHandle.storeStoreFence();
+        }
+        preserveForSnapshots(this);
+        clearCachedBsonSize(undoLog);
+        return this;
+    }
+
+    @Override
+    protected void afterChange() {
+        if (changeDepth > 0 && --changeDepth == 0) {
+            SEQUENCE.setRelease(this, (long) SEQUENCE.get(this) + 1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Self root() {
+        return (Self) this;
+    }
+
+    /**
+     * Begins an optimistic read on this model from any thread.
+     * <p>
+     * This method spins while the data of this model is being changed, and
+     * returns a stamp which should be validated by {@link #validateRead(long)}
+     * after reading.
+     *
+     * @return the stamp
+     * @see #validateRead(long)
+     * @see #readConsistent(Function)
+     * @since 2.4
+     */
+    public final long beginRead() {
+        long sequence;
+        while (((sequence = (long) SEQUENCE.getAcquire(this)) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns whether the data of this model has not been changed since the
+     * specified stamp was returned by {@link #beginRead()}.
+     *
+     * @param stamp the stamp
+     * @return {@code true} if the values read after the stamp are consistent,
+     * {@code false} otherwise
+     * @since 2.4
+     */
+    public final boolean validateRead(long stamp) {
+        VarHandle.loadLoadFence();
+        return (long) SEQUENCE.getOpaque(this) == stamp;
+    }
+
+    /**
+     * Reads values of this model consistently from any thread without locks.
+     * <p>
+     * The reader will be retried if the data of this model is changed
+     * concurrently, so it must be free of side effects, and it should only
+     * read simple fields but not iterate over container models.
+     *
+     * @param <T>    the type of the result
+     * @param reader the function reading the values
+     * @return the result of the reader
+     * @since 2.4
+     */
+    @SuppressWarnings("unchecked")
+    public final <T> T readConsistent(Function<? super Self, ? extends T> reader) {
+        for (; ; ) {
+            var stamp = beginRead();
+            T result;
+            try {
+                result = reader.apply((Self) this);
+            } catch (RuntimeException e) {
+                if (validateRead(stamp)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (validateRead(stamp)) {
+                return result;
+            }
+        }
+    }
+
+    void releaseUndoLog(UndoLog undoLog) {
+        if (this.undoLog == undoLog) {
+            this.undoLog = null;
+        }
+    }
+
     @Override
     protected void emitChanged() {
         // do nothing for root model
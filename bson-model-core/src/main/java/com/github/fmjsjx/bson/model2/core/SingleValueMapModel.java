@@ -8,6 +8,7 @@ import com.mongodb.client.model.Updates;
 import org.bson.BsonDocument;
 import org.bson.conversions.Bson;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -97,6 +98,34 @@ public final class SingleValueMapModel<K, V> extends MapModel<K, V, SingleValueM
         return n;
     }
 
+    @Override
+    void applyChanges(List<FieldChange> changes) {
+        beforeChange();
+        try {
+            for (var change : changes) {
+                if (change.name() == null || !change.isLeaf() || !change.isReplacement()) {
+                    // changes inside the values, e.g. arrays, or operators
+                    super.applyChanges(changes);
+                    return;
+                }
+            }
+            var map = this.map;
+            var valueType = this.valueType;
+            for (var change : changes) {
+                var key = parseKey(change.name());
+                var value = change.kind() == FieldChange.Kind.UPDATED ? valueType.parse(change.value()) : null;
+                if (value == null) {
+                    map.remove(key);
+                } else {
+                    map.put(key, value);
+                }
+            }
+            clearCachedBsonSize(null);
+        } finally {
+            afterChange();
+        }
+    }
+
     @Override
     protected void clearMap() {
         map.clear();
@@ -104,6 +133,7 @@ public final class SingleValueMapModel<K, V> extends MapModel<K, V, SingleValueM
 
     @Override
     public BsonDocument toBson() {
+        var event = ModelOperationEvent.start();
         var map = this.map;
         var doc = new BsonDocument(Math.max(8, map.size()));
         var valueType = this.valueType;
@@ -113,6 +143,9 @@ public final class SingleValueMapModel<K, V> extends MapModel<K, V, SingleValueM
                 doc.append(e.getKey().toString(), valueType.toBsonValue(v));
             }
         }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_BSON, doc);
+        }
         return doc;
     }
 
@@ -135,14 +168,23 @@ public final class SingleValueMapModel<K, V> extends MapModel<K, V, SingleValueM
 
     @Override
     public SingleValueMapModel<K, V> load(BsonDocument src) {
-        clean();
-        var map = this.map;
-        var valueType = this.valueType;
-        for (var e : src.entrySet()) {
-            var value = valueType.parse(e.getValue());
-            if (value != null) {
-                map.put(parseKey(e.getKey()), value);
+        var event = ModelOperationEvent.start();
+        beforeChange();
+        try {
+            clean();
+            var map = this.map;
+            var valueType = this.valueType;
+            for (var e : src.entrySet()) {
+                var value = valueType.parse(e.getValue());
+                if (value != null) {
+                    map.put(parseKey(e.getKey()), value);
+                }
             }
+        } finally {
+            afterChange();
+        }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.LOAD, src);
         }
         return this;
     }
@@ -243,22 +285,45 @@ public final class SingleValueMapModel<K, V> extends MapModel<K, V, SingleValueM
             return remove(key);
         }
         var map = this.map;
-        var original = map.put(key, value);
+        var undoLog = beforeChange();
+        V original;
+        try {
+            original = map.put(key, value);
+        } finally {
+            afterChange();
+        }
+        logUndoValue(undoLog, key, original);
         triggerChanged(key);
         return original;
     }
 
     @Override
     public V remove(K key) {
-        var original = map.remove(key);
+        var undoLog = beforeChange();
+        V original;
+        try {
+            original = map.remove(key);
+        } finally {
+            afterChange();
+        }
+        if (original != null) {
+            logUndoValue(undoLog, key, original);
+        }
         triggerChanged(key);
         return original;
     }
 
     @Override
     public boolean remove(K key, V value) {
-        var removed = map.remove(key, value);
+        var undoLog = beforeChange();
+        boolean removed;
+        try {
+            removed = map.remove(key, value);
+        } finally {
+            afterChange();
+        }
         if (removed) {
+            logUndoValue(undoLog, key, value);
             triggerChanged(key);
         }
         return removed;
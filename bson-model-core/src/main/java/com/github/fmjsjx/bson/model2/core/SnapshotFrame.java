@@ -0,0 +1,260 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * The data shared by the {@link ModelSnapshot}s taken at the same point of a
+ * {@link RootModel}.
+ * <p>
+ * A frame shares all sub models with the live model at first. When a sub
+ * model is about to be changed, the live model copies it, and its ancestors
+ * which are not copied yet, into this frame. The elements of the container
+ * models are shared by the copies, so only the changed sub-trees are copied.
+ * <p>
+ * The copies are only accessed by the thread changing the live model, and
+ * the readers validate their reads by the version of the frame, like the
+ * sequence lock of the {@link RootModel}.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+final class SnapshotFrame {
+
+    private static final AtomicLong EPOCHS = new AtomicLong();
+    private static final AtomicInteger PENDING_COUNT = new AtomicInteger();
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(SnapshotFrame.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Returns if there are any pending frames in the process.
+     *
+     * @return {@code true} if there are any pending frames
+     */
+    static boolean anyPending() {
+        return PENDING_COUNT.get() > 0;
+    }
+
+    private final long epoch = EPOCHS.incrementAndGet();
+    private final long sequence;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final IdentityHashMap<AbstractBsonModel<?, ?>, AbstractBsonModel<?, ?>> copies = new IdentityHashMap<>();
+    private final AtomicReference<RootModel<?>> deepCopy = new AtomicReference<>();
+    @SuppressWarnings("unused")
+    private long version;
+    private RootModel<?> model;
+
+    SnapshotFrame(long sequence) {
+        this.sequence = sequence;
+        PENDING_COUNT.incrementAndGet();
+    }
+
+    long epoch() {
+        return epoch;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    boolean isCopied() {
+        return model != null;
+    }
+
+    /**
+     * Returns the deep copy cached by {@link #cacheDeepCopy(RootModel)}.
+     */
+    @SuppressWarnings("unchecked")
+    <R extends RootModel<R>> R deepCopy() {
+        return (R) deepCopy.get();
+    }
+
+    /**
+     * Caches the deep copy of the data of this frame, so it is shared by all
+     * snapshots of this frame.
+     *
+     * @return the cached deep copy
+     */
+    @SuppressWarnings("unchecked")
+    <R extends RootModel<R>> R cacheDeepCopy(R copy) {
+        var deepCopy = this.deepCopy;
+        return deepCopy.compareAndSet(null, copy) ? copy : (R) deepCopy.get();
+    }
+
+    /**
+     * Adds a reference to this frame.
+     *
+     * @return {@code false} if this frame has been already released
+     */
+    boolean retain() {
+        var references = this.references;
+        for (; ; ) {
+            var n = references.get();
+            if (n == 0) {
+                return false;
+            }
+            if (references.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        if (references.decrementAndGet() == 0) {
+            PENDING_COUNT.decrementAndGet();
+        }
+    }
+
+    boolean isReleased() {
+        return references.get() == 0;
+    }
+
+    /**
+     * Applies the reader on the data of this frame, retries if the data is
+     * copied concurrently.
+     */
+    @SuppressWarnings("unchecked")
+    <R extends RootModel<R>, T> T read(R source, Function<? super R, ? extends T> reader) {
+        for (; ; ) {
+            long version;
+            while (((version = (long) VERSION.getAcquire(this)) & 1) != 0) {
+                Thread.onSpinWait();
+            }
+            var model = this.model;
+            T result;
+            try {
+                result = reader.apply(model == null ? source : (R) model);
+            } catch (RuntimeException e) {
+                if (validate(version)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (validate(version)) {
+                return result;
+            }
+        }
+    }
+
+    private boolean validate(long version) {
+        VarHandle.loadLoadFence();
+        return (long) VERSION.getOpaque(this) == version;
+    }
+
+    private void beginWrite() {
+        VERSION.setOpaque(this, (long) VERSION.get(this) + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite() {
+        VERSION.setRelease(this, (long) VERSION.get(this) + 1);
+    }
+
+    /**
+     * Copies the live model, which is about to be changed, into this frame.
+     * <p>
+     * The ancestors of the model must have been already preserved.
+     */
+    void preserve(RootModel<?> root, AbstractBsonModel<?, ?> model) {
+        var copies = this.copies;
+        if (copies.containsKey(model)) {
+            return;
+        }
+        if (model == root) {
+            var copy = root.snapshotCopy();
+            beginWrite();
+            this.model = copy;
+            endWrite();
+            copies.put(root, copy);
+            return;
+        }
+        var parentCopy = model.parent instanceof AbstractBsonModel<?, ?> parent ? copies.get(parent) : null;
+        if (parentCopy == null) {
+            // the parent is not visible in this frame
+            return;
+        }
+        var child = parentCopy.snapshotChild(model);
+        if (child == null) {
+            // added after this frame was taken
+            return;
+        }
+        if (child != model) {
+            // already copied along with the parent
+            copies.put(model, child);
+            return;
+        }
+        var copy = model.snapshotCopy();
+        beginWrite();
+        try {
+            parentCopy.replaceSnapshotChild(model, copy);
+        } finally {
+            endWrite();
+        }
+        copies.put(model, copy);
+    }
+
+    /**
+     * Detaches the live model, which is about to be unbound from its parent,
+     * from this frame.
+     * <p>
+     * The detached model will not be tracked anymore, so the view of it in
+     * this frame is copied deeply.
+     */
+    void detach(AbstractBsonModel<?, ?> parent, AbstractBsonModel<?, ?> model) {
+        var copies = this.copies;
+        var parentCopy = copies.get(parent);
+        if (parentCopy == null) {
+            return;
+        }
+        var view = copies.remove(model);
+        if (view == null) {
+            view = parentCopy.snapshotChild(model);
+            if (view == null) {
+                return;
+            }
+            if (view == model) {
+                var copy = model.deepCopy();
+                beginWrite();
+                try {
+                    parentCopy.replaceSnapshotChild(model, copy);
+                } finally {
+                    endWrite();
+                }
+                return;
+            }
+        }
+        // the copy may still share elements with the live model
+        beginWrite();
+        try {
+            view.deepenSnapshotCopy();
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Copies the whole data of the live model into this frame, so this frame
+     * will not be tracked anymore.
+     */
+    void detachAll(RootModel<?> root) {
+        var view = model == null ? root : model;
+        var copy = view.deepCopy();
+        beginWrite();
+        model = copy;
+        endWrite();
+        copies.clear();
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The undo log of a {@link RootModel}.
+ * <p>
+ * When an undo log is active on a root model, every mutation on the model
+ * tree (generated setters, {@code MapModel.put/remove},
+ * {@code ListModel.set/append/remove}, ...) appends the action to revert it,
+ * including the reverting of the change-tracking states. So the cost of a
+ * rollback is proportional to the number of mutations made since the
+ * savepoint, but not the size of the model.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * {@code
+ * var undoLog = player.beginUndoLog();
+ * var savepoint = undoLog.savepoint();
+ * try {
+ *     // mutate the player
+ * } catch (Exception e) {
+ *     undoLog.rollbackTo(savepoint);
+ *     throw e;
+ * } finally {
+ *     undoLog.release();
+ * }
+ * }
+ * </pre>
+ * <p>
+ * Loading data ({@code load}) and resetting states ({@code reset}) are not
+ * recorded, so they should not be called while the undo log is active.
+ *
+ * @author MJ Fang
+ * @see RootModel#beginUndoLog()
+ * @since 2.4
+ */
+public final class UndoLog {
+
+    /**
+     * A savepoint of an {@link UndoLog}.
+     *
+     * @author MJ Fang
+     * @since 2.4
+     */
+    public static final class Savepoint {
+
+        private final UndoLog undoLog;
+        private final int position;
+
+        private Savepoint(UndoLog undoLog, int position) {
+            this.undoLog = undoLog;
+            this.position = position;
+        }
+
+        @Override
+        public String toString() {
+            return "Savepoint(" + position + ")";
+        }
+
+    }
+
+    // the number of the undo logs not released in this process
+    private static final AtomicInteger ACTIVE_COUNT = new AtomicInteger();
+
+    /**
+     * Returns if there is any undo log not released in this process.
+     * <p>
+     * Models look up the undo log through the parent chain only if this
+     * method returns {@code true}.
+     */
+    static boolean anyActive() {
+        return ACTIVE_COUNT.get() != 0;
+    }
+
+    private final RootModel<?> root;
+    private final ArrayList<Runnable> actions = new ArrayList<>();
+    private boolean rollingBack;
+    private boolean released;
+
+    UndoLog(RootModel<?> root) {
+        this.root = root;
+        ACTIVE_COUNT.incrementAndGet();
+    }
+
+    /**
+     * Returns the root model of this undo log.
+     *
+     * @param <R> the type of the root model
+     * @return the root model
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends RootModel<R>> R root() {
+        return (R) root;
+    }
+
+    /**
+     * Appends an action that reverts a mutation.
+     * <p>
+     * This method is generally called by models and the generated code.
+     *
+     * @param action the action that reverts a mutation
+     */
+    public void append(Runnable action) {
+        if (!rollingBack) {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * Returns the number of the recorded actions.
+     *
+     * @return the number of the recorded actions
+     */
+    public int size() {
+        return actions.size();
+    }
+
+    /**
+     * Creates and returns a new savepoint at the current position of this
+     * undo log.
+     *
+     * @return a new {@code Savepoint}
+     * @throws IllegalStateException if this undo log has been already released
+     */
+    public Savepoint savepoint() {
+        ensureNotReleased();
+        return new Savepoint(this, actions.size());
+    }
+
+    /**
+     * Reverts all mutations after the specified savepoint.
+     * <p>
+     * All savepoints created after the specified savepoint will be invalid
+     * after this method is called, but the specified savepoint can still be
+     * used.
+     *
+     * @param savepoint the savepoint
+     * @throws IllegalArgumentException if the savepoint is not created by this undo log
+     * @throws IllegalStateException    if this undo log has been already
+     *                                  released or the savepoint is invalid
+     */
+    public void rollbackTo(Savepoint savepoint) {
+        Objects.requireNonNull(savepoint, "savepoint must not be null");
+        ensureNotReleased();
+        if (savepoint.undoLog != this) {
+            throw new IllegalArgumentException("the savepoint is not created by this undo log");
+        }
+        var actions = this.actions;
+        var position = savepoint.position;
+        if (position > actions.size()) {
+            throw new IllegalStateException("the savepoint is invalid");
+        }
+        if (position == actions.size()) {
+            return;
+        }
+        // the actions change the data directly
+        root.detachSnapshots();
+        root.beforeChange();
+        rollingBack = true;
+        try {
+            for (var i = actions.size() - 1; i >= position; i--) {
+                actions.remove(i).run();
+            }
+        } finally {
+            rollingBack = false;
+            root.afterChange();
+        }
+    }
+
+    /**
+     * Releases this undo log.
+     * <p>
+     * All recorded actions will be discarded and the root model will stop
+     * recording mutations.
+     */
+    public void release() {
+        if (!released) {
+            released = true;
+            ACTIVE_COUNT.decrementAndGet();
+            actions.clear();
+            root.releaseUndoLog(this);
+        }
+    }
+
+    /**
+     * Returns if this undo log has been already released or not.
+     *
+     * @return {@code true} if this undo log has been already released, {@code false} otherwise
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    private void ensureNotReleased() {
+        if (released) {
+            throw new IllegalStateException("the undo log has been already released");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UndoLog(size=" + actions.size() + ", released=" + released + ")";
+    }
+
+}
@@ -0,0 +1,516 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.bson.BsonArray;
+import org.bson.BsonDecimal128;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonNumber;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Applies MongoDB update operators in memory, without any database.
+ * <p>
+ * The supported operators are {@code $set}, {@code $unset}, {@code $inc},
+ * {@code $push} (with {@code $each}, {@code $slice} and {@code $position}),
+ * {@code $pull}, {@code $addToSet} (with {@code $each}) and
+ * {@code $setOnInsert}, with dot notation paths. The conditions of
+ * {@code $pull} are limited to values, embedded document patterns,
+ * {@code $eq} and {@code $in}.
+ * <p>
+ * The updates can be applied to a mutable {@link BsonDocument}, or directly
+ * to a loaded {@link RootModel}, e.g. to keep a mirror copy coherent with
+ * the updates of each flush:
+ * <pre>
+ * {@code
+ * var updates = player.toUpdates();
+ * collection.updateOne(filter, Updates.combine(updates));
+ * UpdateApplier.apply(mirror, updates);
+ * }
+ * </pre>
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class UpdateApplier {
+
+    /**
+     * Applies the updates to the document.
+     *
+     * @param document the mutable document
+     * @param updates  the list of updates
+     * @return the document
+     */
+    public static BsonDocument apply(BsonDocument document, List<? extends Bson> updates) {
+        return apply(document, updates, false);
+    }
+
+    /**
+     * Applies the updates to the document.
+     *
+     * @param document the mutable document
+     * @param updates  the list of updates
+     * @param upsert   {@code true} if the document is inserted by the updates,
+     *                 so that {@code $setOnInsert} is applied
+     * @return the document
+     */
+    public static BsonDocument apply(BsonDocument document, List<? extends Bson> updates, boolean upsert) {
+        Objects.requireNonNull(document, "document must not be null");
+        for (var update : updates) {
+            applyUpdate(document, update.toBsonDocument(), upsert);
+        }
+        return document;
+    }
+
+    /**
+     * Applies the update to the document.
+     *
+     * @param document the mutable document
+     * @param update   the update
+     * @return the document
+     */
+    public static BsonDocument apply(BsonDocument document, Bson update) {
+        applyUpdate(Objects.requireNonNull(document, "document must not be null"), update.toBsonDocument(), false);
+        return document;
+    }
+
+    /**
+     * Applies the updates directly to the loaded model.
+     * <p>
+     * The updates are parsed into field changes and routed down the tree of
+     * models, the same as {@link RootModel#applyChange(com.mongodb.client.model.changestream.UpdateDescription)}.
+     * So only the fields on the paths of the updates are changed, and only
+     * the fields modified by operators other than {@code $set} and
+     * {@code $unset} are encoded and loaded again. The changed fields are not
+     * marked as changed, the same as {@link RootModel#load(BsonDocument)}.
+     *
+     * @param <M>     the type of the model
+     * @param model   the model
+     * @param updates the list of updates
+     * @return the model
+     */
+    public static <M extends RootModel<M>> M apply(M model, List<? extends Bson> updates) {
+        Objects.requireNonNull(model, "model must not be null");
+        var changes = new ArrayList<FieldChange>();
+        for (var update : updates) {
+            for (var operation : update.toBsonDocument().entrySet()) {
+                var operator = operation.getKey();
+                if (!(operation.getValue() instanceof BsonDocument fields)) {
+                    throw new IllegalArgumentException("the value of " + operator + " must be a document");
+                }
+                switch (operator) {
+                    case "$set" -> fields.forEach((path, value) -> changes.add(FieldChange.updated(path, value)));
+                    case "$unset" -> fields.keySet().forEach(path -> changes.add(FieldChange.removed(path)));
+                    case "$setOnInsert" -> {
+                        // the loaded model is never inserted
+                    }
+                    case "$inc", "$push", "$addToSet", "$pull" ->
+                            fields.forEach((path, value) -> changes.add(FieldChange.operated(operator, path, value)));
+                    default -> throw new IllegalArgumentException("unsupported update operator " + operator);
+                }
+            }
+        }
+        if (!changes.isEmpty()) {
+            model.applyChanges(changes);
+        }
+        return model;
+    }
+
+    private static void applyUpdate(BsonDocument document, BsonDocument update, boolean upsert) {
+        for (var operation : update.entrySet()) {
+            var operator = operation.getKey();
+            if (!(operation.getValue() instanceof BsonDocument fields)) {
+                throw new IllegalArgumentException("the value of " + operator + " must be a document");
+            }
+            switch (operator) {
+                case "$set" -> fields.forEach((path, value) -> set(document, path, value));
+                case "$setOnInsert" -> {
+                    if (upsert) {
+                        fields.forEach((path, value) -> set(document, path, value));
+                    }
+                }
+                case "$unset" -> fields.keySet().forEach(path -> unset(document, path));
+                case "$inc" -> fields.forEach((path, value) -> inc(document, path, value));
+                case "$push" -> fields.forEach((path, value) -> push(document, path, value));
+                case "$addToSet" -> fields.forEach((path, value) -> addToSet(document, path, value));
+                case "$pull" -> fields.forEach((path, value) -> pull(document, path, value));
+                default -> throw new IllegalArgumentException("unsupported update operator " + operator);
+            }
+        }
+    }
+
+    private static String[] split(String path) {
+        var count = 1;
+        for (var i = path.indexOf('.'); i != -1; i = path.indexOf('.', i + 1)) {
+            count++;
+        }
+        var segments = new String[count];
+        var start = 0;
+        for (var i = 0; i < count - 1; i++) {
+            var end = path.indexOf('.', start);
+            segments[i] = path.substring(start, end);
+            start = end + 1;
+        }
+        segments[count - 1] = path.substring(start);
+        return segments;
+    }
+
+    private static int toIndex(String segment, String path) {
+        var len = segment.length();
+        if (len == 0 || len > 9) {
+            throw new IllegalArgumentException("can't use the part \"" + segment + "\" of \"" + path + "\" as an array index");
+        }
+        var index = 0;
+        for (var i = 0; i < len; i++) {
+            var c = segment.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("can't use the part \"" + segment + "\" of \"" + path + "\" as an array index");
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    /**
+     * Returns the document or array holding the last segment of the path.
+     *
+     * @return the parent, or {@code null} if absent and {@code create} is
+     * {@code false}
+     */
+    private static BsonValue parent(BsonDocument document, String[] segments, String path, boolean create) {
+        BsonValue parent = document;
+        for (var i = 0; i < segments.length - 1; i++) {
+            var segment = segments[i];
+            var value = get(parent, segment, path);
+            if (value == null || value.isNull()) {
+                if (!create) {
+                    return null;
+                }
+                value = new BsonDocument();
+                put(parent, segment, value, path);
+            } else if (!value.isDocument() && !value.isArray()) {
+                throw new IllegalArgumentException("can't traverse the " + value.getBsonType() + " at \"" + segment + "\" of \"" + path + "\"");
+            }
+            parent = value;
+        }
+        return parent;
+    }
+
+    private static BsonValue get(BsonValue parent, String segment, String path) {
+        if (parent instanceof BsonDocument document) {
+            return document.get(segment);
+        }
+        var array = (BsonArray) parent;
+        var index = toIndex(segment, path);
+        return index < array.size() ? array.get(index) : null;
+    }
+
+    private static void put(BsonValue parent, String segment, BsonValue value, String path) {
+        if (parent instanceof BsonDocument document) {
+            document.put(segment, value);
+        } else {
+            var array = (BsonArray) parent;
+            var index = toIndex(segment, path);
+            // pad with nulls, the same as MongoDB
+            while (array.size() < index) {
+                array.add(BsonNull.VALUE);
+            }
+            if (index < array.size()) {
+                array.set(index, value);
+            } else {
+                array.add(value);
+            }
+        }
+    }
+
+    /**
+     * Returns a mutable copy of the value, so that the updates are never
+     * modified when they are applied to many documents.
+     */
+    private static BsonValue copy(BsonValue value) {
+        if (value instanceof BsonDocument document) {
+            var copy = new BsonDocument();
+            document.forEach((k, v) -> copy.put(k, copy(v)));
+            return copy;
+        } else if (value instanceof BsonArray array) {
+            var copy = new BsonArray(new ArrayList<>(array.size()));
+            for (var v : array) {
+                copy.add(copy(v));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static void set(BsonDocument document, String path, BsonValue value) {
+        var segments = split(path);
+        var parent = parent(document, segments, path, true);
+        put(parent, segments[segments.length - 1], copy(value), path);
+    }
+
+    private static void unset(BsonDocument document, String path) {
+        var segments = split(path);
+        var parent = parent(document, segments, path, false);
+        var segment = segments[segments.length - 1];
+        if (parent instanceof BsonDocument doc) {
+            doc.remove(segment);
+        } else if (parent instanceof BsonArray array) {
+            // unset of an array element sets it to null, the same as MongoDB
+            var index = toIndex(segment, path);
+            if (index < array.size()) {
+                array.set(index, BsonNull.VALUE);
+            }
+        }
+    }
+
+    private static void inc(BsonDocument document, String path, BsonValue increment) {
+        if (!(increment instanceof BsonNumber inc)) {
+            throw new IllegalArgumentException("can't $inc with a non-numeric value at \"" + path + "\"");
+        }
+        var segments = split(path);
+        var parent = parent(document, segments, path, true);
+        var segment = segments[segments.length - 1];
+        var value = get(parent, segment, path);
+        if (value == null) {
+            put(parent, segment, inc, path);
+        } else if (value instanceof BsonNumber num) {
+            put(parent, segment, add(num, inc), path);
+        } else {
+            throw new IllegalArgumentException("can't $inc the non-numeric " + value.getBsonType() + " at \"" + path + "\"");
+        }
+    }
+
+    private static BsonNumber add(BsonNumber a, BsonNumber b) {
+        if (a.isDecimal128() || b.isDecimal128()) {
+            return new BsonDecimal128(new Decimal128(a.decimal128Value().bigDecimalValue()
+                    .add(b.decimal128Value().bigDecimalValue())));
+        }
+        if (a.isDouble() || b.isDouble()) {
+            return new BsonDouble(a.doubleValue() + b.doubleValue());
+        }
+        if (a.isInt32() && b.isInt32()) {
+            var sum = (long) a.intValue() + b.intValue();
+            // overflow of int32 is promoted to int64, the same as MongoDB
+            return sum == (int) sum ? new BsonInt32((int) sum) : new BsonInt64(sum);
+        }
+        return new BsonInt64(Math.addExact(a.longValue(), b.longValue()));
+    }
+
+    private static BsonArray arrayToModify(BsonDocument document, String path, String operator) {
+        var segments = split(path);
+        var parent = parent(document, segments, path, true);
+        var segment = segments[segments.length - 1];
+        var value = get(parent, segment, path);
+        if (value == null) {
+            var array = new BsonArray();
+            put(parent, segment, array, path);
+            return array;
+        }
+        if (value instanceof BsonArray array) {
+            return array;
+        }
+        throw new IllegalArgumentException("can't " + operator + " to the non-array " + value.getBsonType() + " at \"" + path + "\"");
+    }
+
+    private static void push(BsonDocument document, String path, BsonValue value) {
+        var array = arrayToModify(document, path, "$push");
+        if (value instanceof BsonDocument modifiers && modifiers.containsKey("$each")) {
+            var each = modifiers.getArray("$each");
+            var position = modifiers.containsKey("$position") ? modifiers.getNumber("$position").intValue() : array.size();
+            if (position < 0) {
+                position = Math.max(0, array.size() + position);
+            } else if (position > array.size()) {
+                position = array.size();
+            }
+            for (var v : each) {
+                array.add(position++, copy(v));
+            }
+            if (modifiers.containsKey("$slice")) {
+                slice(array, modifiers.getNumber("$slice").intValue());
+            }
+        } else {
+            array.add(copy(value));
+        }
+    }
+
+    private static void slice(BsonArray array, int slice) {
+        var size = array.size();
+        if (slice >= 0) {
+            if (slice < size) {
+                array.subList(slice, size).clear();
+            }
+        } else if (-slice < size) {
+            array.subList(0, size + slice).clear();
+        }
+    }
+
+    private static void addToSet(BsonDocument document, String path, BsonValue value) {
+        var array = arrayToModify(document, path, "$addToSet");
+        if (value instanceof BsonDocument modifiers && modifiers.containsKey("$each")) {
+            for (var v : modifiers.getArray("$each")) {
+                if (!contains(array, v)) {
+                    array.add(copy(v));
+                }
+            }
+        } else if (!contains(array, value)) {
+            array.add(copy(value));
+        }
+    }
+
+    private static void pull(BsonDocument document, String path, BsonValue condition) {
+        var segments = split(path);
+        var parent = parent(document, segments, path, false);
+        if (parent == null) {
+            return;
+        }
+        var value = get(parent, segments[segments.length - 1], path);
+        if (value == null || value.isNull()) {
+            return;
+        }
+        if (!(value instanceof BsonArray array)) {
+            throw new IllegalArgumentException("can't $pull from the non-array " + value.getBsonType() + " at \"" + path + "\"");
+        }
+        array.removeIf(element -> matches(element, condition));
+    }
+
+    private static boolean matches(BsonValue element, BsonValue condition) {
+        if (condition instanceof BsonDocument doc && !doc.isEmpty()) {
+            if (doc.getFirstKey().startsWith("$")) {
+                for (var e : doc.entrySet()) {
+                    var matched = switch (e.getKey()) {
+                        case "$eq" -> valueEquals(element, e.getValue());
+                        case "$in" -> contains(e.getValue().asArray(), element);
+                        default -> throw new IllegalArgumentException("unsupported $pull condition " + e.getKey());
+                    };
+                    if (!matched) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (element instanceof BsonDocument elementDocument) {
+                // embedded document patterns match the elements with the fields
+                for (var e : doc.entrySet()) {
+                    var v = elementDocument.get(e.getKey());
+                    if (v == null || !matches(v, e.getValue())) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return valueEquals(element, condition);
+    }
+
+    private static boolean contains(BsonArray array, BsonValue value) {
+        for (var element : array) {
+            if (valueEquals(element, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns if the values are equal, the same as MongoDB, numbers of the
+     * different types are compared by the values, e.g. {@code 1},
+     * {@code NumberLong(1)} and {@code 1.0} are equal.
+     */
+    private static boolean valueEquals(BsonValue a, BsonValue b) {
+        if (a instanceof BsonNumber x && b instanceof BsonNumber y) {
+            return numberEquals(x, y);
+        }
+        if (a instanceof BsonArray x && b instanceof BsonArray y) {
+            var size = x.size();
+            if (size != y.size()) {
+                return false;
+            }
+            for (var i = 0; i < size; i++) {
+                if (!valueEquals(x.get(i), y.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof BsonDocument x && b instanceof BsonDocument y) {
+            // the order of the fields matters, the same as MongoDB
+            if (x.size() != y.size()) {
+                return false;
+            }
+            var it = y.entrySet().iterator();
+            for (var e : x.entrySet()) {
+                var f = it.next();
+                if (!e.getKey().equals(f.getKey()) || !valueEquals(e.getValue(), f.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.equals(b);
+    }
+
+    private static boolean numberEquals(BsonNumber a, BsonNumber b) {
+        if (a.isDecimal128() || b.isDecimal128()) {
+            var x = toBigDecimal(a);
+            var y = toBigDecimal(b);
+            if (x == null || y == null) {
+                // NaN or infinity
+                return doubleEquals(toDouble(a), toDouble(b));
+            }
+            return x.compareTo(y) == 0;
+        }
+        if (a.isDouble() && b.isDouble()) {
+            return doubleEquals(a.doubleValue(), b.doubleValue());
+        }
+        if (a.isDouble()) {
+            return doubleEquals(a.doubleValue(), b.longValue());
+        }
+        if (b.isDouble()) {
+            return doubleEquals(b.doubleValue(), a.longValue());
+        }
+        return a.longValue() == b.longValue();
+    }
+
+    private static boolean doubleEquals(double a, double b) {
+        return a == b || (Double.isNaN(a) && Double.isNaN(b));
+    }
+
+    private static boolean doubleEquals(double a, long b) {
+        // casting the long to double may lose the precision
+        return a >= -0x1p63 && a < 0x1p63 && (long) a == b && (double) (long) a == a;
+    }
+
+    private static double toDouble(BsonNumber number) {
+        return number.isDecimal128() ? number.asDecimal128().getValue().doubleValue() : number.doubleValue();
+    }
+
+    /**
+     * Returns the exact value of the number, or {@code null} if the number
+     * is NaN or infinity.
+     */
+    private static BigDecimal toBigDecimal(BsonNumber number) {
+        if (number.isDecimal128()) {
+            var value = number.asDecimal128().getValue();
+            // parsed from the string, because negative zero can't be converted
+            return value.isNaN() || value.isInfinite() ? null : new BigDecimal(value.toString());
+        }
+        if (number.isDouble()) {
+            var value = number.doubleValue();
+            return Double.isFinite(value) ? new BigDecimal(value) : null;
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    private UpdateApplier() {
+    }
+
+}
@@ -0,0 +1,556 @@
+package com.github.fmjsjx.bson.model2.core;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * A memory-mapped write-ahead log of the updates of {@link RootModel}s.
+ * <p>
+ * The updates returned by {@code toUpdates()} are appended with the
+ * identifier of the root model before {@code reset()}, so the changes not
+ * yet persisted into MongoDB can be recovered after a crash by
+ * {@link #replay(Path, BiConsumer)}. Typical usage in the flush handler of
+ * {@link ModelExecutor}:
+ * <pre>
+ * {@code
+ * var updates = player.toUpdates();
+ * wal.append(new BsonInt32(player.getId()), updates);
+ * player.reset();
+ * }
+ * </pre>
+ * And call {@link #checkpoint(long)} with the sequence of the last record
+ * whose updates are persisted into MongoDB.
+ * <p>
+ * The log is split into segment files of fixed size. Each record is:
+ * <pre>
+ * int32    payload length, in little-endian
+ * int32    CRC32C of the payload, in little-endian
+ * document payload {"i": identifier, "u": [updates]}
+ * </pre>
+ * The records written into the mapped segments survive the crash of the
+ * process, the {@link SyncPolicy} decides how often they are forced to the
+ * storage device to survive the crash of the operating system.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public final class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    /**
+     * The policies to force the appended records to the storage device.
+     *
+     * @author MJ Fang
+     * @since 2.4
+     */
+    public enum SyncPolicy {
+        /**
+         * Forces before each append returns. Concurrent appends are forced
+         * together as a group commit.
+         */
+        ALWAYS,
+        /**
+         * Forces once every group size appends.
+         */
+        GROUP,
+        /**
+         * Forces only on segment rotation, {@link #sync()} and
+         * {@link #close()}.
+         */
+        NONE
+    }
+
+    /**
+     * The default size of segments, {@code 64 MiB}.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    /**
+     * The default number of appends per force for {@link SyncPolicy#GROUP}.
+     */
+    public static final int DEFAULT_GROUP_SIZE = 64;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private static final MethodHandle INVOKE_CLEANER;
+
+    static {
+        MethodHandle invokeCleaner = null;
+        try {
+            var unsafeClass = Class.forName("sun.misc.Unsafe");
+            var theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner = MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (Exception | LinkageError e) {
+            logger.debug("Unmapping is unavailable, segments will be unmapped by GC", e);
+        }
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Unmaps the buffer immediately, so the file can be deleted on Windows.
+     * <p>
+     * The buffer must not be accessed anymore.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer != null && INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+            } catch (Throwable e) {
+                logger.debug("Unmap buffer failed", e);
+            }
+        }
+    }
+
+    /**
+     * A rotated segment.
+     *
+     * @param path         the path of the segment file
+     * @param buffer       the mapped buffer, or {@code null} if the segment
+     *                     is left by the previous log
+     * @param lastSequence the sequence of the last record, {@code 0} if the
+     *                     segment is left by the previous log
+     */
+    private record Segment(Path path, MappedByteBuffer buffer, long lastSequence) {
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final SyncPolicy syncPolicy;
+    private final int groupSize;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final ArrayDeque<Segment> rotatedSegments = new ArrayDeque<>();
+    private long segmentIndex;
+    private Path segmentPath;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long sequence;
+    private volatile long syncedSequence;
+    private boolean closed;
+
+    /**
+     * Constructs a new {@link WriteAheadLog} with the default segment size
+     * and {@link SyncPolicy#GROUP}.
+     *
+     * @param directory the directory of the segment files
+     * @throws IOException if any IO error occurs
+     */
+    public WriteAheadLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, SyncPolicy.GROUP, DEFAULT_GROUP_SIZE);
+    }
+
+    /**
+     * Constructs a new {@link WriteAheadLog}.
+     * <p>
+     * The existing segments in the directory are kept until the next
+     * {@link #checkpoint(long)}, and the records are appended into a new
+     * segment.
+     *
+     * @param directory   the directory of the segment files
+     * @param segmentSize the size of segments in bytes
+     * @param syncPolicy  the policy to force the appended records
+     * @param groupSize   the number of appends per force for
+     *                    {@link SyncPolicy#GROUP}
+     * @throws IOException if any IO error occurs
+     */
+    public WriteAheadLog(Path directory, int segmentSize, SyncPolicy syncPolicy, int groupSize) throws IOException {
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be greater than " + RECORD_HEADER_SIZE);
+        }
+        if (groupSize <= 0) {
+            throw new IllegalArgumentException("groupSize must be positive");
+        }
+        this.directory = Files.createDirectories(Objects.requireNonNull(directory, "directory must not be null"));
+        this.segmentSize = segmentSize;
+        this.syncPolicy = Objects.requireNonNull(syncPolicy, "syncPolicy must not be null");
+        this.groupSize = groupSize;
+        var segments = segments(directory);
+        for (var segment : segments) {
+            rotatedSegments.add(new Segment(segment, null, 0));
+        }
+        segmentIndex = segments.isEmpty() ? 0 : segmentIndex(segments.get(segments.size() - 1));
+        openSegment(segmentIndex + 1);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        var segments = new ArrayList<Path>();
+        if (Files.isDirectory(directory)) {
+            try (var stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                stream.forEach(segments::add);
+            }
+        }
+        // the indexes are zero padded, so just sort by names
+        segments.sort(null);
+        return segments;
+    }
+
+    private static long segmentIndex(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void openSegment(long index) throws IOException {
+        var path = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+        this.segmentIndex = index;
+        this.segmentPath = path;
+    }
+
+    /**
+     * Returns the sequence of the last appended record.
+     *
+     * @return the sequence
+     */
+    public long sequence() {
+        appendLock.lock();
+        try {
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the sequence of the last record forced to the storage device.
+     *
+     * @return the sequence
+     */
+    public long syncedSequence() {
+        return syncedSequence;
+    }
+
+    /**
+     * Appends the updates of the root model with the specified identifier.
+     *
+     * @param id      the identifier of the root model, e.g. {@code _id}
+     * @param updates the updates returned by {@code toUpdates()}
+     * @return the sequence of the record, or {@code 0} if the updates are
+     * empty
+     * @throws IOException if any IO error occurs
+     */
+    public long append(BsonValue id, List<? extends Bson> updates) throws IOException {
+        Objects.requireNonNull(id, "id must not be null");
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        var payload = encode(id, updates);
+        var crc = new CRC32C();
+        crc.update(payload);
+        var recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("record size " + recordSize + " exceeds segment size " + segmentSize);
+        }
+        long sequence;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            if (buffer.remaining() < recordSize) {
+                rotate();
+            }
+            var buffer = this.buffer;
+            var position = buffer.position();
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.put(position + RECORD_HEADER_SIZE, payload);
+            // the length is written at last, so a torn record is never read
+            buffer.putInt(position, payload.length);
+            buffer.position(position + recordSize);
+            sequence = ++this.sequence;
+        } finally {
+            appendLock.unlock();
+        }
+        switch (syncPolicy) {
+            case ALWAYS -> syncTo(sequence);
+            case GROUP -> {
+                if (sequence - syncedSequence >= groupSize) {
+                    syncTo(sequence);
+                }
+            }
+            case NONE -> {
+            }
+        }
+        return sequence;
+    }
+
+    private static byte[] encode(BsonValue id, List<? extends Bson> updates) {
+        var array = new BsonArray(updates.size());
+        for (var update : updates) {
+            array.add(update.toBsonDocument());
+        }
+        var document = new BsonDocument("i", id).append("u", array);
+        try (var out = new BasicOutputBuffer(256)) {
+            CODEC.encode(new BsonBinaryWriter(out), document, ENCODER_CONTEXT);
+            return out.toByteArray();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("write-ahead log is closed");
+        }
+    }
+
+    private void rotate() throws IOException {
+        buffer.force();
+        syncedSequence = sequence;
+        channel.close();
+        // the buffer may be still forced by syncTo, so it is unmapped on
+        // checkpoint, under the sync lock
+        rotatedSegments.add(new Segment(segmentPath, buffer, sequence));
+        openSegment(segmentIndex + 1);
+    }
+
+    private void syncTo(long sequence) {
+        syncLock.lock();
+        try {
+            // the records may be forced by another thread, as a group commit
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            long target;
+            MappedByteBuffer buffer;
+            appendLock.lock();
+            try {
+                if (closed) {
+                    // all records are forced on close
+                    return;
+                }
+                target = this.sequence;
+                buffer = this.buffer;
+            } finally {
+                appendLock.unlock();
+            }
+            buffer.force();
+            if (target > syncedSequence) {
+                syncedSequence = target;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces all appended records to the storage device.
+     *
+     * @throws IOException if any IO error occurs
+     */
+    public void sync() throws IOException {
+        appendLock.lock();
+        try {
+            ensureOpen();
+        } finally {
+            appendLock.unlock();
+        }
+        syncTo(Long.MAX_VALUE);
+    }
+
+    /**
+     * Deletes the segments whose last record is at or before the specified
+     * sequence, it should be called after the updates of all records up to
+     * the sequence are persisted into MongoDB.
+     * <p>
+     * The segments left by the previous log are deleted by any checkpoint.
+     * The records after the sequence are always kept, so some records at or
+     * before the sequence may be kept along with them in the same segment.
+     *
+     * @param sequence the sequence of the last persisted record
+     * @throws IOException if any IO error occurs
+     */
+    public void checkpoint(long sequence) throws IOException {
+        // no segments are being forced while they are unmapped
+        syncLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                ensureOpen();
+                if (sequence > this.sequence) {
+                    throw new IllegalArgumentException("sequence " + sequence
+                            + " is greater than the last appended sequence " + this.sequence);
+                }
+                if (sequence == this.sequence && buffer.position() > 0) {
+                    // all records of the current segment are persisted
+                    rotate();
+                }
+                var rotatedSegments = this.rotatedSegments;
+                for (var segment = rotatedSegments.peekFirst(); segment != null && segment.lastSequence() <= sequence;
+                     segment = rotatedSegments.peekFirst()) {
+                    unmap(segment.buffer());
+                    Files.deleteIfExists(segment.path());
+                    rotatedSegments.removeFirst();
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces all appended records, and closes this log.
+     *
+     * @throws IOException if any IO error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                buffer.force();
+                syncedSequence = sequence;
+                channel.close();
+                unmap(buffer);
+                for (var segment : rotatedSegments) {
+                    unmap(segment.buffer());
+                }
+                rotatedSegments.clear();
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Replays all records in the segment files of the directory.
+     * <p>
+     * Replaying stops at the first torn or corrupted record of each segment.
+     * To replay into MongoDB:
+     * <pre>
+     * {@code
+     * WriteAheadLog.replay(directory, (id, updates) ->
+     *         collection.updateOne(Filters.eq(id), Updates.combine(updates)));
+     * }
+     * </pre>
+     *
+     * @param directory the directory of the segment files
+     * @param handler   the handler accepts the identifiers and the updates
+     * @return the number of the replayed records
+     * @throws IOException if any IO error occurs
+     */
+    public static long replay(Path directory, BiConsumer<? super BsonValue, ? super List<BsonDocument>> handler)
+            throws IOException {
+        Objects.requireNonNull(handler, "handler must not be null");
+        var count = 0L;
+        for (var segment : segments(directory)) {
+            MappedByteBuffer mapped;
+            try (var channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            try {
+                var buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+                while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                    var position = buffer.position();
+                    var length = buffer.getInt(position);
+                    if (length <= 0 || length > buffer.remaining() - RECORD_HEADER_SIZE) {
+                        break;
+                    }
+                    var payload = new byte[length];
+                    buffer.get(position + RECORD_HEADER_SIZE, payload);
+                    var crc = new CRC32C();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                        logger.warn("Corrupted record at {} of segment {}, skip the rest", position, segment);
+                        break;
+                    }
+                    var document = new RawBsonDocument(payload);
+                    var updates = new ArrayList<BsonDocument>();
+                    for (var update : document.getArray("u")) {
+                        updates.add(update.asDocument());
+                    }
+                    handler.accept(document.get("i"), updates);
+                    buffer.position(position + RECORD_HEADER_SIZE + length);
+                    count++;
+                }
+            } finally {
+                // unmapped immediately, so the segment can be deleted on Windows
+                unmap(mapped);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replays all records in the segment files of the directory into the
+     * root models by {@link UpdateApplier}.
+     * <p>
+     * The root models with any record replayed are marked as fully update,
+     * so the next {@code toUpdates()} returns the whole document with the
+     * recovered changes, which must be persisted before the next
+     * {@link #checkpoint(long)} removes the replayed records.
+     *
+     * @param <R>       the type of the root models
+     * @param directory the directory of the segment files
+     * @param models    the function returns the loaded root model with the
+     *                  identifier, or {@code null} to skip the record
+     * @return the number of the replayed records
+     * @throws IOException if any IO error occurs
+     */
+    public static <R extends RootModel<R>> long replay(Path directory, Function<? super BsonValue, ? extends R> models)
+            throws IOException {
+        Objects.requireNonNull(models, "models must not be null");
+        return replay(directory, (id, updates) -> {
+            var model = models.apply(id);
+            if (model != null) {
+                UpdateApplier.apply(model, updates).fullyUpdate(true);
+            }
+        });
+    }
+
+}
@@ -1,15 +1,21 @@
 package com.github.fmjsjx.bson.model.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.NullNode;
+import com.github.fmjsjx.libcommon.json.JsonException;
 import com.github.fmjsjx.bson.model2.core.SingleValueTypes;
 import org.bson.*;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.types.Decimal128;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
@@ -710,4 +716,172 @@ public class BsonUtilTest {
         assertEquals(0, array.get(8).asDocument().size());
     }
 
+    @Test
+    public void testParseToRawBson() {
+        var json = ("{\"s\":\"str\",\"i\":123,\"l\":1234567890123,\"d\":1.2,\"dec\":1.2345678901234567,\"e\":1e3,"
+                + "\"big\":12345678901234567890,\"b\":true,\"n\":null,\"a\":[1,\"2\",{\"x\":[]}],\"o\":{\"k\":{}}}")
+                .getBytes(StandardCharsets.UTF_8);
+        BsonDocument expected = BsonUtil.parseToBson(json);
+        var raw = BsonUtil.parseToRawBson(json);
+        assertEquals(expected, raw);
+        assertEquals(123, raw.getInt32("i").getValue());
+        assertEquals(1234567890123L, raw.getInt64("l").getValue());
+        assertEquals(1.2, raw.getDouble("d").getValue());
+        assertTrue(raw.get("dec").isDecimal128());
+        assertTrue(raw.get("e").isDecimal128());
+        assertTrue(raw.get("big").isDecimal128());
+        assertEquals(expected, BsonUtil.parseToRawBson(new ByteArrayInputStream(json)));
+        // the pooled buffer is reused
+        assertEquals(raw, BsonUtil.parseToRawBson(json));
+        assertThrows(JsonException.class, () -> BsonUtil.parseToRawBson("[1]".getBytes(StandardCharsets.UTF_8)));
+
+        // numbers with exponent
+        json = "{\"e\":1e3,\"ne\":-1e3,\"pe\":2E+5,\"me\":5e-3,\"de\":1.5e3,\"nde\":-2.5E-3}"
+                .getBytes(StandardCharsets.UTF_8);
+        expected = BsonUtil.parseToBson(json);
+        raw = BsonUtil.parseToRawBson(json);
+        assertEquals(expected, raw);
+        assertTrue(raw.get("e").isDecimal128());
+        assertTrue(raw.get("ne").isDecimal128());
+        assertTrue(raw.get("me").isDecimal128());
+        assertEquals(1500.0, raw.getDouble("de").getValue());
+        assertEquals(-0.0025, raw.getDouble("nde").getValue());
+    }
+
+    @Test
+    public void testBsonJsonTranscoder() throws Exception {
+        var document = new BsonDocument("s", new BsonString("str"))
+                .append("i", new BsonInt32(1))
+                .append("l", new BsonInt64(1234567890123L))
+                .append("d", new BsonDouble(1.5))
+                .append("dec", new BsonDecimal128(Decimal128.parse("1.23")))
+                .append("b", BsonBoolean.TRUE)
+                .append("n", BsonNull.VALUE)
+                .append("dt", new BsonDateTime(1700000000000L))
+                .append("ts", new BsonTimestamp(1700000000, 1))
+                .append("oid", new BsonObjectId(new ObjectId()))
+                .append("uuid", new BsonBinary(UUID.randomUUID()))
+                .append("sym", new BsonSymbol("ignored"))
+                .append("a", new BsonArray(List.of(new BsonInt32(1), new BsonSymbol("ignored"), new BsonArray(),
+                        new BsonArray(List.of(new BsonString("x"), new BsonString("y"))), new BsonDocument("k", new BsonInt32(2)))))
+                .append("o", new BsonDocument("e", new BsonDocument()));
+        var raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        var mapper = new ObjectMapper();
+        var expected = BsonUtil.toObjectNode(document);
+
+        var out = new StringWriter();
+        try (var generator = mapper.createGenerator(out)) {
+            BsonJsonTranscoder.transcode(raw, generator);
+        }
+        var json = mapper.writeValueAsString(expected);
+        assertEquals(json, out.toString());
+        assertEquals(json, new String(BsonJsonTranscoder.toJsonBytes(raw), StandardCharsets.UTF_8));
+        assertEquals(json, BsonJsonTranscoder.toJsonString(raw));
+        assertEquals(0, raw.getByteBuffer().asNIO().position());
+    }
+
+    @Test
+    public void testLazyMap() {
+        var uuid = UUID.randomUUID();
+        var document = new BsonDocument("s", new BsonString("str"))
+                .append("i", new BsonInt32(1))
+                .append("n", BsonNull.VALUE)
+                .append("uuid", new BsonBinary(uuid))
+                .append("sym", new BsonSymbol("ignored"))
+                .append("a", new BsonArray(List.of(new BsonInt32(1), new BsonSymbol("ignored"), BsonNull.VALUE,
+                        new BsonDocument("k", new BsonInt64(2)))))
+                .append("o", new BsonDocument("e", new BsonDocument("x", new BsonDouble(1.5))));
+        var map = BsonUtil.lazyMap(document);
+        assertEquals("str", map.get("s"));
+        assertEquals(1, map.get("i"));
+        assertTrue(map.containsKey("n"));
+        assertNull(map.get("n"));
+        assertFalse(map.containsKey("sym"));
+        assertFalse(map.containsKey("absent"));
+        assertEquals(uuid.toString(), map.get("uuid"));
+        assertSame(map.get("o"), map.get("o"));
+        List<?> list = (List<?>) map.get("a");
+        assertEquals(3, list.size());
+        assertNull(list.get(1));
+        assertEquals(2L, ((Map<?, ?>) list.get(2)).get("k"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", 1));
+        assertEquals(BsonUtil.toMap(document), map);
+
+        var raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        var rawMap = BsonUtil.lazyMap(raw);
+        assertEquals(1.5, ((Map<?, ?>) ((Map<?, ?>) rawMap.get("o")).get("e")).get("x"));
+        assertEquals(6, rawMap.size());
+        assertEquals(BsonUtil.toMap(document), rawMap);
+        assertEquals(BsonUtil.toList(document.getArray("a")), BsonUtil.lazyList(raw.getArray("a")));
+    }
+
+    @Test
+    public void testBsonPath() throws Exception {
+        var document = new BsonDocument("a", new BsonDocument("b", new BsonInt32(3))
+                .append("l", new BsonInt64(Long.MAX_VALUE))
+                .append("d", new BsonDouble(1.5))
+                .append("s", new BsonString("str"))
+                .append("n", BsonNull.VALUE)
+                .append("arr", new BsonArray(List.of(new BsonInt32(0), new BsonDocument("x", new BsonInt32(7))))));
+        var raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        var bDoc = Document.parse(document.toJson());
+        var node = new ObjectMapper().readTree(document.toJson());
+        for (var doc : List.of(document, raw)) {
+            assertEquals(3, BsonPath.of("a.b").getInt(doc, -1));
+            assertEquals(Long.MAX_VALUE, BsonPath.of("a", "l").getLong(doc, -1));
+            assertEquals(1.5, BsonPath.of("a.d").getDouble(doc, 0));
+            assertEquals("str", BsonPath.of("a.s").getString(doc));
+            assertEquals(-1, BsonPath.of("a.n").getInt(doc, -1));
+            assertEquals(-1, BsonPath.of("a.absent.b").getInt(doc, -1));
+            assertEquals(7, BsonPath.of("a", "arr", 1, "x").getInt(doc, -1));
+            assertEquals(7, BsonPath.of("a.arr.1.x").getInt(doc, -1));
+            assertEquals(-1, BsonPath.of("a.arr.2.x").getInt(doc, -1));
+            assertEquals(new BsonDocument("x", new BsonInt32(7)), BsonPath.of("a.arr.1").getDocument(doc));
+            assertNull(BsonPath.of("a.n").getDocument(doc));
+            assertThrows(ClassCastException.class, () -> BsonPath.of("a.s").getInt(doc, -1));
+            assertThrows(ClassCastException.class, () -> BsonPath.of("a.b.c").getInt(doc, -1));
+            assertThrows(ClassCastException.class, () -> BsonPath.of("a.arr.x").getInt(doc, -1));
+        }
+        assertEquals(3, BsonPath.of("a.b").getInt(bDoc, -1));
+        assertEquals(7, BsonPath.of("a.arr.1.x").getInt(bDoc, -1));
+        assertEquals(-1, BsonPath.of("a.n").getLong(bDoc, -1));
+        assertEquals("str", BsonPath.of("a.s").getString(bDoc));
+        assertEquals(new Document("x", 7), BsonPath.of("a.arr.1").getDocument(bDoc));
+        assertThrows(ClassCastException.class, () -> BsonPath.of("a.s").getInt(bDoc, -1));
+        assertEquals(3, BsonPath.of("a.b").getInt(node, -1));
+        assertEquals(7, BsonPath.of("a.arr.1.x").getInt(node, -1));
+        assertEquals(Long.MAX_VALUE, BsonPath.of("a.l").getLong(node, -1));
+        assertEquals(-1, BsonPath.of("a.n").getInt(node, -1));
+        assertEquals("str", BsonPath.of("a.s").getString(node));
+        assertEquals(7, BsonPath.of("a.arr.1").getDocument(node).get("x").intValue());
+        assertThrows(ClassCastException.class, () -> BsonPath.of("a.s").getInt(node, -1));
+        assertEquals(BsonPath.of("a", "arr", 1), BsonPath.of("a.arr.1"));
+        assertThrows(IllegalArgumentException.class, () -> BsonPath.of("a..b"));
+    }
+
+    @Test
+    public void testParseNumbers() {
+        var doc = BsonUtil.parseToDocument("{\"a\":[0,-0,1,-1,2147483647,-2147483648,2147483648,-2147483649," +
+                "123456789012345678,9223372036854775807,9223372036854775808,1.5,-0.0,0.1,12345.678901234,123456.78901234567," +
+                "1e3,1.5E2,-12.5e-1]}");
+        assertEquals(List.of(0, 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 2147483648L, -2147483649L,
+                123456789012345678L, Long.MAX_VALUE, Decimal128.parse("9223372036854775808"), 1.5, -0.0, 0.1,
+                12345.678901234, Decimal128.parse("123456.78901234567"), Decimal128.parse("1e3"), 150.0, -1.25),
+                doc.getList("a", Object.class));
+        BsonArray array = BsonUtil.parseToBson("[1,2147483648,0.1,123456.78901234567,-1e3]");
+        assertEquals(new BsonArray(List.of(new BsonInt32(1), new BsonInt64(2147483648L), new BsonDouble(0.1),
+                new BsonDecimal128(Decimal128.parse("123456.78901234567")),
+                new BsonDecimal128(Decimal128.parse("-1e3")))), array);
+        var random = new Random(0);
+        for (var i = 0; i < 10000; i++) {
+            var str = String.format(Locale.ROOT, "%." + random.nextInt(10) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8)));
+            Object expected = str.length() > 15 ? Decimal128.parse(str) : Double.valueOf(str);
+            if (str.indexOf('.') == -1) {
+                expected = Integer.valueOf(str);
+            }
+            assertEquals(expected, BsonUtil.parseToDocument("{\"v\":" + str + "}").get("v"), str);
+        }
+    }
+
 }
@@ -5,6 +5,8 @@ require 'yaml'
 require 'json'
 require 'fileutils'
 
+# the variable of the estimated BSON size, see FieldConf#generate_append_bson_size_code
+BsonSizeVar = Struct.new(:name)
 
 class ModelConf
 
@@ -155,6 +157,7 @@ class ModelConf
     code << generate_fields_accessors_code
     code << generate_fields_changed_code
     code << generate_to_bson_code
+    code << generate_compute_bson_size_code
     code << generate_load_code
     code << generate_to_json_node_code
     code << generate_to_fastjson2_node_code
@@ -166,7 +169,13 @@ class ModelConf
     code << generate_clean_code
     code << generate_deep_copy_code
     code << generate_deep_copy_from_code
+    code << generate_snapshot_copy_code
+    code << generate_snapshot_copy_from_code
     code << generate_append_field_updates_code
+    code << generate_field_name_code
+    code << generate_append_field_bson_code
+    code << generate_load_field_code
+    code << generate_field_model_code
     code << generate_load_object_node_code
     code << generate_load_json_object_code
     code << generate_append_update_data_code
@@ -225,6 +234,8 @@ class ModelConf
     if fields.empty?
       code << "        return new BsonDocument();\n"
     else
+      code << generate_start_event_code
+      code << generate_start_metrics_code
       code << "        var #{bson_var} = new BsonDocument();\n"
       fields.map do |field|
         field.generate_append_to_bson_code(bson_var)
@@ -233,23 +244,91 @@ class ModelConf
       end.each do |c|
         code << c
       end
+      code << generate_record_metrics_code('metricsEncoded', bson_var)
+      code << generate_commit_event_code('TO_BSON', bson_var)
       code << "        return #{bson_var};\n"
     end
     code << "    }\n\n"
   end
 
+  def generate_compute_bson_size_code
+    size_var = variable_name('size')
+    code = "    @Override\n"
+    code << "    protected int computeBsonSize() {\n"
+    fields = reality_fields
+    if fields.empty?
+      code << "        return BsonSizes.EMPTY_DOCUMENT_SIZE;\n"
+    else
+      code << "        var #{size_var} = BsonSizes.EMPTY_DOCUMENT_SIZE;\n"
+      fields.each do |field|
+        code << field.generate_append_bson_size_code(size_var)
+      end
+      code << "        return #{size_var};\n"
+    end
+    code << "    }\n\n"
+  end
+
+  # JFR events are only emitted by root models, nested models are covered by their roots
+  def generate_start_event_code
+    if @type == 'root'
+      "        var #{variable_name('event')} = ModelOperationEvent.start();\n"
+    else
+      ''
+    end
+  end
+
+  def generate_commit_event_code(operation, value_var = nil)
+    unless @type == 'root'
+      return ''
+    end
+    event_var = variable_name('event')
+    code = "        if (#{event_var} != null) {\n"
+    if value_var.nil?
+      code << "            #{event_var}.commit(this, ModelOperationEvent.#{operation});\n"
+    else
+      code << "            #{event_var}.commit(this, ModelOperationEvent.#{operation}, #{value_var});\n"
+    end
+    code << "        }\n"
+  end
+
+  # metrics are only recorded by root models, like JFR events
+  def generate_start_metrics_code
+    if @type == 'root'
+      "        var #{variable_name('startTime')} = metricsStartTime();\n"
+    else
+      ''
+    end
+  end
+
+  def generate_record_metrics_code(method, value_var = nil)
+    unless @type == 'root'
+      return ''
+    end
+    args = [variable_name('startTime'), value_var].compact.join(', ')
+    "        #{method}(#{args});\n"
+  end
+
   def generate_load_code
     src_var = variable_name('src')
     code = "    @Override\n"
     code << "    public #@name load(BsonDocument #{src_var}) {\n"
-    code << "        resetStates();\n"
+    code << generate_start_event_code
+    code << generate_start_metrics_code
+    code << "        beforeChange();\n"
+    code << "        try {\n"
+    code << "            resetStates();\n"
     @fields.map do |field|
       field.generate_load_code(src_var)
     end.select do |c|
       not c.nil?
     end.each do |c|
-      code << c
+      code << indent_code(c)
     end
+    code << "        } finally {\n"
+    code << "            afterChange();\n"
+    code << "        }\n"
+    code << generate_record_metrics_code('metricsLoaded')
+    code << generate_commit_event_code('LOAD', src_var)
     code << "        return this;\n"
     code << "    }\n\n"
   end
@@ -299,6 +378,7 @@ class ModelConf
     data_var = variable_name('data')
     code = "    @Override\n"
     code << "    public Map<Object, Object> toData() {\n"
+    code << generate_start_event_code
     code << "        var #{data_var} = new LinkedHashMap<>();\n"
     @fields.map do |field|
       field.generate_put_to_data_code(data_var)
@@ -307,6 +387,7 @@ class ModelConf
     end.each do |c|
       code << c
     end
+    code << generate_commit_event_code('TO_DATA')
     code << "        return #{data_var};\n"
     code << "    }\n\n"
   end
@@ -433,14 +514,19 @@ class ModelConf
     code << "    public #@name clean() {\n"
     fields = @fields.select { |field| not field.virtual? }
     unless fields.empty?
+      code << "        beforeChange();\n"
+      code << "        try {\n"
       fields.map do |field|
         field.generate_clean_code
       end.select do |c|
         not c.nil?
       end.each do |c|
-        code << c
+        code << indent_code(c)
       end
-      code << "        resetStates();\n"
+      code << "            resetStates();\n"
+      code << "        } finally {\n"
+      code << "            afterChange();\n"
+      code << "        }\n"
     end
     code << "        return this;\n"
     code << "    }\n\n"
@@ -473,6 +559,34 @@ class ModelConf
     code << "    }\n\n"
   end
 
+  def generate_snapshot_copy_code
+    copy_var = variable_name('copy')
+    code = "    @Override\n"
+    code << "    protected #@name snapshotCopy() {\n"
+    code << "        var #{copy_var} = new #@name();\n"
+    code << "        #{copy_var}.snapshotCopyFrom(this);\n"
+    code << "        return #{copy_var};\n"
+    code << "    }\n\n"
+  end
+
+  def generate_snapshot_copy_from_code
+    src_var = variable_name('src')
+    code = "    @Override\n"
+    code << "    protected void snapshotCopyFrom(#@name #{src_var}) {\n"
+    @fields.select { |field| not field.virtual? }.map do |field|
+      field.generate_snapshot_copy_from_code(src_var)
+    end.select do |c|
+      not c.nil?
+    end.each do |c|
+      code << c
+    end
+    code << "    }\n\n"
+  end
+
+  def indent_code(code)
+    code.lines.map { |line| line.strip.empty? ? line : "    #{line}" }.join
+  end
+
   def generate_append_field_updates_code
     updates_var = variable_name('updates')
     code = "    @Override\n"
@@ -490,6 +604,83 @@ class ModelConf
     code << "    }\n\n"
   end
 
+  def generate_field_name_code
+    code = "    @Override\n"
+    code << "    protected String fieldName(int index) {\n"
+    fields = reality_fields
+    if fields.empty?
+      code << "        return null;\n"
+    else
+      code << "        return switch (index) {\n"
+      fields.each do |field|
+        code << "            case #{field.index} -> #{field.bname_const_field_name};\n"
+      end
+      code << "            default -> null;\n"
+      code << "        };\n"
+    end
+    code << "    }\n\n"
+  end
+
+  # the statements of each field are the same as toBson/load, in switch blocks
+  def generate_field_switch_code(name_var, cases)
+    if cases.empty?
+      return "        return false;\n"
+    end
+    code = "        switch (#{name_var}) {\n"
+    cases.each do |bname_const, c|
+      code << "            case #{bname_const} -> {\n"
+      code << c.gsub(/^(?=.)/, '        ')
+      code << "            }\n"
+    end
+    code << "            default -> {\n"
+    code << "                return false;\n"
+    code << "            }\n"
+    code << "        }\n"
+    code << "        return true;\n"
+  end
+
+  def generate_append_field_bson_code
+    name_var = variable_name('name')
+    dest_var = variable_name('dest')
+    cases = reality_fields.map do |field|
+      [field.bname_const_field_name, field.generate_append_to_bson_code(dest_var)]
+    end.select { |_, c| not c.nil? }
+    code = "    @Override\n"
+    code << "    protected boolean appendFieldBson(String #{name_var}, BsonDocument #{dest_var}) {\n"
+    code << generate_field_switch_code(name_var, cases)
+    code << "    }\n\n"
+  end
+
+  def generate_load_field_code
+    name_var = variable_name('name')
+    src_var = variable_name('src')
+    cases = @fields.map do |field|
+      [field.bname_const_field_name, field.generate_load_code(src_var)]
+    end.select { |_, c| not c.nil? }
+    code = "    @Override\n"
+    code << "    protected boolean loadField(String #{name_var}, BsonDocument #{src_var}) {\n"
+    code << generate_field_switch_code(name_var, cases)
+    code << "    }\n\n"
+  end
+
+  def generate_field_model_code
+    name_var = variable_name('name')
+    fields = reality_fields.select { |field| field.is_a?(ModelFieldConf) }
+    code = "    @Override\n"
+    code << "    protected AbstractBsonModel<?, ?> fieldModel(String #{name_var}) {\n"
+    if fields.empty?
+      code << "        return null;\n"
+    else
+      code << "        return switch (#{name_var}) {\n"
+      fields.each do |field|
+        code << "            case #{field.bname_const_field_name} -> this.#{field.name};\n"
+      end
+      code << "            default -> null;\n"
+      code << "        };\n"
+    end
+    code << "    }\n\n"
+  end
+
   def generate_load_object_node_code
     src_var = variable_name('src')
     code = "    @Override\n"
@@ -728,6 +919,10 @@ class FieldConf
           cfg.transient
         when 'hidden'
           cfg.hidden
+        when 'consistent-read'
+          cfg.consistent_read
+        when 'concurrent'
+          cfg.concurrent
         end
       end
       if field_cfg.has_key? 'default'
@@ -780,6 +975,8 @@ class FieldConf
     @hidden = false
     @increment_1 = false
     @increment_n = false
+    @consistent_read = false
+    @concurrent = false
     @sources = []
     @associates = []
   end
@@ -851,6 +1048,24 @@ class FieldConf
     @increment_n
   end
 
+  def consistent_read(consistent_read = true)
+    @consistent_read = consistent_read
+    self
+  end
+
+  def consistent_read?
+    @consistent_read
+  end
+
+  def concurrent(concurrent = true)
+    @concurrent = concurrent
+    self
+  end
+
+  def concurrent?
+    @concurrent
+  end
+
   def bind(parent_model, index)
     @parent_model = parent_model
     @index = index
@@ -979,6 +1194,10 @@ class FieldConf
   def generate_accessors_code
     code = generate_getter_code
     code << "\n"
+    if consistent_read?
+      code << generate_consistent_read_code
+      code << "\n"
+    end
     setter_code = generate_setter_code
     unless setter_code.nil?
       code << setter_code
@@ -987,13 +1206,14 @@ class FieldConf
     if required? and %w(int long).member?(@type)
       if increment_1?
         code << "    public #{generic_type} increase#{camcel_name}() {\n"
+        code << generate_change_code('        ', "++this.#@name;\n")
         code << "        #{generate_field_changed_code}\n"
-        code << "        return ++#@name;\n"
+        code << "        return this.#@name;\n"
         code << "    }\n\n"
       end
       if increment_n?
         code << "    public #{generic_type} add#{camcel_name}(#{generic_type} #@name) {\n"
-        code << "        #@name = this.#@name += #@name;\n"
+        code << generate_change_code('        ', "#@name = this.#@name += #@name;\n")
         code << "        #{generate_field_changed_code}\n"
         code << "        return #@name;\n"
         code << "    }\n\n"
@@ -1012,6 +1232,27 @@ class FieldConf
     code << "    }\n"
   end
 
+  def generate_consistent_read_code
+    unless single_value?
+      raise "consistent-read is unsupported for `#@type` field `#@name`"
+    end
+    root_var = variable_name_global('root')
+    stamp_var = variable_name_global('stamp')
+    code = "    public #{generic_type} read#{camcel_name}() {\n"
+    code << "        var #{root_var} = root();\n"
+    code << "        if (#{root_var} == null) {\n"
+    code << "            return #{getter_name}();\n"
+    code << "        }\n"
+    code << "        for (; ; ) {\n"
+    code << "            var #{stamp_var} = #{root_var}.beginRead();\n"
+    code << "            var #@name = #{getter_name}();\n"
+    code << "            if (#{root_var}.validateRead(#{stamp_var})) {\n"
+    code << "                return #@name;\n"
+    code << "            }\n"
+    code << "        }\n"
+    code << "    }\n"
+  end
+
   def generate_setter_code
     if virtual?
       return nil
@@ -1035,11 +1276,31 @@ class FieldConf
     else
       code << "        if (!Objects.equals(#@name, this.#@name)) {\n"
     end
-    code << "            this.#@name = #@name;\n"
+    code << generate_change_code('            ', "this.#@name = #@name;\n")
     code << "            #{generate_field_changed_code}\n"
     code << "        }\n"
   end
 
+  def generate_change_code(indent, body)
+    undo_log_var = variable_name_global('undoLog')
+    code = "#{indent}var #{undo_log_var} = beforeChange();\n"
+    code << "#{indent}try {\n"
+    code << generate_undo_code("#{indent}    ")
+    code << body.lines.map { |line| "#{indent}    #{line}" }.join
+    code << "#{indent}} finally {\n"
+    code << "#{indent}    afterChange();\n"
+    code << "#{indent}}\n"
+  end
+
+  def generate_undo_code(indent)
+    undo_log_var = variable_name_global('undoLog')
+    original_var = variable_name('Original')
+    code = "#{indent}if (#{undo_log_var} != null) {\n"
+    code << "#{indent}    var #{original_var} = this.#@name;\n"
+    code << "#{indent}    #{undo_log_var}.append(() -> this.#@name = #{original_var});\n"
+    code << "#{indent}}\n"
+  end
+
   def generate_field_changed_code
     if @associates.empty?
       "fieldChanged(#@index);"
@@ -1063,15 +1324,28 @@ class FieldConf
 
   def generate_append_value_to_bson_code(bsovar_n, bson_value_factory)
     if required?
-      "        #{bsovar_n}.append(#{bname_const_field_name}, #{bson_value_factory});\n"
+      "        #{generate_append_value_statement(bsovar_n, bson_value_factory)}\n"
     else
       code = "        var #@name = this.#@name;\n"
       code << "        if (#@name != null) {\n"
-      code << "            #{bsovar_n}.append(#{bname_const_field_name}, #{bson_value_factory});\n"
+      code << "            #{generate_append_value_statement(bsovar_n, bson_value_factory)}\n"
       code << "        }\n"
     end
   end
 
+  def generate_append_value_statement(bsovar_n, bson_value_factory)
+    if bsovar_n.is_a?(BsonSizeVar)
+      "#{bsovar_n.name} += BsonSizes.elementSize(#{bname_const_field_name}, #{bson_value_factory});"
+    else
+      "#{bsovar_n}.append(#{bname_const_field_name}, #{bson_value_factory});"
+    end
+  end
+
+  # the size of each field is estimated from the same BSON value as toBson
+  def generate_append_bson_size_code(size_var)
+    generate_append_to_bson_code(BsonSizeVar.new(size_var))
+  end
+
   def generate_load_code(src_var)
     if virtual? or transient?
       return nil
@@ -1187,6 +1461,10 @@ class FieldConf
     "        #@name = #{src_var}.#@name;\n"
   end
 
+  def generate_snapshot_copy_from_code(src_var)
+    generate_deep_copy_from_code(src_var)
+  end
+
   def generate_append_updates_code(updates_var)
     generate_reality_append_updates_code(updates_var, "#{updates_var}.add(Updates.set(path().resolve(#{bname_const_field_name}).value(), #@name))")
   end
@@ -1329,7 +1607,7 @@ class PrimitiveFieldConf < FieldConf
     else
       code << "        if (!Objects.equals(#@name, this.#@name)) {\n"
     end
-    code << "            this.#@name = #@name;\n"
+    code << generate_change_code('            ', "this.#@name = #@name;\n")
     code << "            #{generate_field_changed_code}\n"
     code << "        }\n"
   end
@@ -2279,7 +2557,7 @@ class PrimitiveArrayFieldConf < FieldConf
       code << "        Objects.requireNonNull(#@name, \"#@name must not be null\");\n"
     end
     code << "        if (!Arrays.equals(#@name, this.#@name)) {\n"
-    code << "            this.#@name = #@name;\n"
+    code << generate_change_code('            ', "this.#@name = #@name;\n")
     code << "            #{generate_field_changed_code}\n"
     code << "        }\n"
   end
@@ -2918,20 +3196,40 @@ class ModelFieldConf < FieldConf
     code = ''
     code << "        if (#@name != null) {\n"
     code << "            #@name.mustUnbound();\n"
-    code << "            this.#@name = #@name.parent(this).key(#{bname_const_field_name}).index(#@index).fullyUpdate(true);\n"
+    code << generate_change_code('            ', "this.#@name = #@name.parent(this).key(#{bname_const_field_name}).index(#@index).fullyUpdate(true);\n")
     code << "            #{generate_field_changed_code}\n"
     code << "        } else {\n"
     code << "            #@name = this.#@name;\n"
     code << "            if (#@name != null) {\n"
-    code << "                #@name.unbind();\n"
-    code << "                this.#@name = null;\n"
+    code << generate_change_code('                ', "#@name.unbind();\nthis.#@name = null;\n")
     code << "                #{generate_field_changed_code}\n"
     code << "            }\n"
     code << "        }\n"
   end
 
+  def generate_undo_code(indent)
+    undo_log_var = variable_name_global('undoLog')
+    original_var = variable_name('Original')
+    current_var = variable_name('Current')
+    code = "#{indent}if (#{undo_log_var} != null) {\n"
+    code << "#{indent}    var #{original_var} = this.#@name;\n"
+    code << "#{indent}    #{undo_log_var}.append(() -> {\n"
+    code << "#{indent}        var #{current_var} = this.#@name;\n"
+    code << "#{indent}        if (#{current_var} != null) {\n"
+    code << "#{indent}            #{current_var}.unbind();\n"
+    code << "#{indent}        }\n"
+    code << "#{indent}        this.#@name = #{original_var} == null ? null : #{original_var}.parent(this).key(#{bname_const_field_name}).index(#@index);\n"
+    code << "#{indent}    });\n"
+    code << "#{indent}}\n"
+  end
+
   def generate_append_to_bson_code(bsovar_n)
-    generate_append_value_to_bson_code(bsovar_n, "#@name.toBson()")
+    if bsovar_n.is_a?(BsonSizeVar)
+      # sub models estimate their sizes by themselves, with caches
+      generate_append_value_to_bson_code(bsovar_n, "#@name.estimateBsonSize()")
+    else
+      generate_append_value_to_bson_code(bsovar_n, "#@name.toBson()")
+    end
   end
 
   def generate_load_model_code(src_var, factor)
@@ -3047,6 +3345,15 @@ class ModelFieldConf < FieldConf
     end
   end
 
+  def generate_snapshot_copy_from_code(src_var)
+    if required?
+      "        copyForSnapshot(#{src_var}.#@name, #@name);\n"
+    else
+      code = "        var #@name = #{src_var}.#@name;\n"
+      code << "        this.#@name = #@name == null ? null : copyForSnapshot(#@name).parent(this).key(#{bname_const_field_name}).index(#@index);\n"
+    end
+  end
+
   def generate_append_updates_code(updates_var)
     generate_reality_append_updates_code(updates_var, "#@name.appendUpdates(#{updates_var})")
   end
@@ -3233,7 +3540,12 @@ class MapFieldConf < ModelFieldConf
 
   def generic_type
     if @value == 'object'
+      if concurrent?
+        raise "concurrent map with object values is unsupported for field `#@name`"
+      end
       "DefaultMapModel<#{key_type}, #@model>"
+    elsif concurrent?
+      "ConcurrentMapModel<#{key_type}, #{value_type}>"
     else
       "SingleValueMapModel<#{key_type}, #{value_type}>"
     end
@@ -3268,13 +3580,14 @@ class MapFieldConf < ModelFieldConf
         raise "unsupported key type `#@key`"
       end
     else
+      map_class = concurrent? ? 'ConcurrentMapModel' : 'SingleValueMapModel'
       case @key
       when 'int'
-        "SingleValueMapModel.integerKeysMap(#{single_value_type})"
+        "#{map_class}.integerKeysMap(#{single_value_type})"
       when 'long'
-        "SingleValueMapModel.longKeysMap(#{single_value_type})"
+        "#{map_class}.longKeysMap(#{single_value_type})"
       when 'string'
-        "SingleValueMapModel.stringKeysMap(#{single_value_type})"
+        "#{map_class}.stringKeysMap(#{single_value_type})"
       else
         raise "unsupported key type `#@key`"
       end
@@ -3482,6 +3795,260 @@ class BsonDocumentFieldConf < FieldConf
 end
 
 
+class BenchmarkConf
+
+  MAX_DEPTH = 3
+
+  class << self
+    def from(benchmark_cfg, package)
+      benchmark_cfg = {} unless benchmark_cfg.is_a?(Hash)
+      sizes = benchmark_cfg.fetch('sizes', [10, 100, 1000]).map { |size| Integer(size) }
+      BenchmarkConf.new(benchmark_cfg.fetch('package', "#{package}.benchmarks"), package, sizes)
+    end
+  end
+
+  attr_reader :package
+
+  def initialize(package, model_package, sizes)
+    @package = package
+    @model_package = model_package
+    @sizes = sizes
+  end
+
+  def generate_data_factory_code(models)
+    code = "package #@package;\n\n"
+    code << "import #@model_package.*;\n"
+    code << "import org.bson.*;\n"
+    code << "import org.bson.types.ObjectId;\n\n"
+    code << "import java.time.*;\n"
+    code << "import java.util.*;\n"
+    code << "import java.util.function.Supplier;\n\n"
+    code << "/**\n"
+    code << " * Factory of the synthetic data for the benchmarks.\n"
+    code << " * <p>\n"
+    code << " * Every persistent field is filled, and each map, list and array field\n"
+    code << " * is filled with {@code size} elements. Nested models are filled up to\n"
+    code << " * #{MAX_DEPTH} levels deep.\n"
+    code << " */\n"
+    code << "public final class BenchmarkDataFactory {\n\n"
+    code << "    private static final int MAX_DEPTH = #{MAX_DEPTH};\n"
+    code << "    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);\n\n"
+    models.each do |model|
+      code << generate_create_code(model)
+      code << generate_fill_code(model)
+    end
+    code << "    private static <T> List<T> listOf(int size, Supplier<T> supplier) {\n"
+    code << "        var list = new ArrayList<T>(size);\n"
+    code << "        for (var i = 0; i < size; i++) {\n"
+    code << "            list.add(supplier.get());\n"
+    code << "        }\n"
+    code << "        return list;\n"
+    code << "    }\n\n"
+    code << "    private BenchmarkDataFactory() {\n"
+    code << "    }\n\n"
+    code << "}\n"
+  end
+
+  def generate_create_code(model)
+    code = "    /**\n"
+    code << "     * Creates a new {@link #{model.name}} filled with synthetic data.\n"
+    code << "     * <p>\n"
+    code << "     * All fields of the returned model are changed.\n"
+    code << "     *\n"
+    code << "     * @param random the random number generator\n"
+    code << "     * @param size   the number of elements of each map, list and array field\n"
+    code << "     * @return a new {@code #{model.name}}\n"
+    code << "     */\n"
+    code << "    public static #{model.name} create#{model.name}(Random random, int size) {\n"
+    code << "        return fill#{model.name}(new #{model.name}(), random, size, MAX_DEPTH);\n"
+    code << "    }\n\n"
+  end
+
+  def generate_fill_code(model)
+    code = "    private static #{model.name} fill#{model.name}(#{model.name} model, Random random, int size, int depth) {\n"
+    model.reality_fields.each do |field|
+      field_code = generate_fill_field_code(field)
+      code << field_code unless field_code.nil?
+    end
+    code << "        return model;\n"
+    code << "    }\n\n"
+  end
+
+  def generate_fill_field_code(field)
+    case field.type
+    when 'object'
+      code = "        if (depth > 0) {\n"
+      if field.required?
+        code << "            fill#{field.model}(model.#{field.getter_name}(), random, size, depth - 1);\n"
+      else
+        code << "            model.#{field.setter_name}(fill#{field.model}(new #{field.model}(), random, size, depth - 1));\n"
+      end
+      code << "        }\n"
+    when 'map'
+      value_code = if field.value == 'object'
+                     "fill#{field.model}(new #{field.model}(), random, size, depth - 1)"
+                   else
+                     simple_value_code(field.value)
+                   end
+      key_code = case field.key
+                 when 'int'
+                   'i + 1'
+                 when 'long'
+                   'i + 1L'
+                 else
+                   '"key-" + i'
+                 end
+      code = ''
+      indent = '        '
+      if field.value == 'object'
+        code << "        if (depth > 0) {\n"
+        indent = '            '
+      end
+      if field.required?
+        code << "#{indent}var #{field.name} = model.#{field.getter_name}();\n"
+      else
+        code << "#{indent}var #{field.name} = #{field.map_init_code};\n"
+      end
+      code << "#{indent}for (var i = 0; i < size; i++) {\n"
+      code << "#{indent}    #{field.name}.put(#{key_code}, #{value_code});\n"
+      code << "#{indent}}\n"
+      unless field.required?
+        code << "#{indent}model.#{field.setter_name}(#{field.name});\n"
+      end
+      code << "        }\n" if field.value == 'object'
+      code
+    when 'list'
+      code = "        if (depth > 0) {\n"
+      if field.required?
+        code << "            var #{field.name} = model.#{field.getter_name}();\n"
+      else
+        code << "            var #{field.name} = new #{field.generic_type}(#{field.model}::new);\n"
+      end
+      code << "            for (var i = 0; i < size; i++) {\n"
+      code << "                #{field.name}.append(fill#{field.model}(new #{field.model}(), random, size, depth - 1));\n"
+      code << "            }\n"
+      unless field.required?
+        code << "            model.#{field.setter_name}(#{field.name});\n"
+      end
+      code << "        }\n"
+    when 'std-list'
+      if field.value == 'object'
+        code = "        if (depth > 0) {\n"
+        code << "            model.#{field.setter_name}(listOf(size, () -> fill#{field.model}(new #{field.model}(), random, size, depth - 1)));\n"
+        code << "        }\n"
+      else
+        "        model.#{field.setter_name}(listOf(size, () -> #{simple_value_code(field.value)}));\n"
+      end
+    when 'int-array'
+      "        model.#{field.setter_name}(random.ints(size, 0, 1000).toArray());\n"
+    when 'long-array'
+      "        model.#{field.setter_name}(random.longs(size, 0, 1_000_000L).toArray());\n"
+    when 'double-array'
+      "        model.#{field.setter_name}(random.doubles(size).toArray());\n"
+    else
+      "        model.#{field.setter_name}(#{simple_value_code(field.type)});\n"
+    end
+  end
+
+  def simple_value_code(type)
+    case type
+    when 'int'
+      'random.nextInt(1000)'
+    when 'long'
+      'random.nextLong(1_000_000L)'
+    when 'double'
+      'random.nextDouble() * 1000'
+    when 'boolean'
+      'random.nextBoolean()'
+    when 'string'
+      '"string-" + random.nextInt(1_000_000)'
+    when 'date'
+      'BASE_TIME.toLocalDate().plusDays(random.nextInt(365))'
+    when 'time'
+      'LocalTime.ofSecondOfDay(random.nextInt(86400))'
+    when 'datetime'
+      'BASE_TIME.plusSeconds(random.nextInt(31_536_000))'
+    when 'object-id'
+      'new ObjectId()'
+    when 'uuid', 'uuid-legacy'
+      'new UUID(random.nextLong(), random.nextLong())'
+    when 'bson-document'
+      'new BsonDocument("key", new BsonString("value-" + random.nextInt(1000)))'
+    else
+      raise "unsupported benchmark value type `#{type}`"
+    end
+  end
+
+  def generate_benchmark_code(model)
+    code = "package #@package;\n\n"
+    ["#@model_package.#{model.name}",
+     'com.fasterxml.jackson.databind.JsonNode',
+     'org.bson.BsonDocument',
+     'org.bson.conversions.Bson',
+     'org.openjdk.jmh.annotations.*'].sort.each { |import| code << "import #{import};\n" }
+    code << "\n"
+    code << "import java.util.List;\n"
+    code << "import java.util.Map;\n"
+    code << "import java.util.Random;\n"
+    code << "import java.util.concurrent.TimeUnit;\n\n"
+    code << "/**\n"
+    code << " * Benchmarks of the {@link #{model.name}} model on synthetic data.\n"
+    code << " */\n"
+    code << "@State(Scope.Thread)\n"
+    code << "@BenchmarkMode(Mode.AverageTime)\n"
+    code << "@OutputTimeUnit(TimeUnit.MICROSECONDS)\n"
+    code << "@Warmup(iterations = 3, time = 2)\n"
+    code << "@Measurement(iterations = 5, time = 2)\n"
+    code << "@Fork(1)\n"
+    code << "public class #{model.name}Benchmark {\n\n"
+    code << "    @Param({#{@sizes.map { |size| "\"#{size}\"" }.join(', ')}})\n"
+    code << "    int size;\n\n"
+    code << "    #{model.name} model;\n"
+    code << "    #{model.name} changedModel;\n"
+    code << "    BsonDocument bson;\n\n"
+    code << "    @Setup\n"
+    code << "    public void setup() {\n"
+    code << "        model = BenchmarkDataFactory.create#{model.name}(new Random(size), size);\n"
+    code << "        model.reset();\n"
+    code << "        changedModel = BenchmarkDataFactory.create#{model.name}(new Random(size), size);\n"
+    code << "        bson = model.toBson();\n"
+    code << "    }\n\n"
+    code << "    @Benchmark\n"
+    code << "    public #{model.name} load() {\n"
+    code << "        return new #{model.name}().load(bson);\n"
+    code << "    }\n\n"
+    code << "    @Benchmark\n"
+    code << "    public BsonDocument toBson() {\n"
+    code << "        return model.toBson();\n"
+    code << "    }\n\n"
+    code << "    @Benchmark\n"
+    code << "    public JsonNode toJsonNode() {\n"
+    code << "        return model.toJsonNode();\n"
+    code << "    }\n\n"
+    code << "    @Benchmark\n"
+    code << "    public Map<Object, Object> toData() {\n"
+    code << "        return model.toData();\n"
+    code << "    }\n\n"
+    code << "    @Benchmark\n"
+    code << "    public #{model.name} deepCopy() {\n"
+    code << "        return model.deepCopy();\n"
+    code << "    }\n\n"
+    if model.type == 'root'
+      code << "    @Benchmark\n"
+      code << "    public List<Bson> toUpdates() {\n"
+      code << "        return changedModel.toUpdates();\n"
+      code << "    }\n\n"
+      code << "    @Benchmark\n"
+      code << "    public Map<Object, Object> toUpdateData() {\n"
+      code << "        return changedModel.toUpdateData();\n"
+      code << "    }\n\n"
+    end
+    code << "}\n"
+  end
+
+end
+
+
 cfg = YAML.load_file(ARGV[0])
 
 if cfg.has_key? 'java-package'
@@ -3489,14 +4056,15 @@ if cfg.has_key? 'java-package'
 end
 
 model_names = Set.new
-cfg['models'].map do |model_cfg|
+models = cfg['models'].map do |model_cfg|
   model = ModelConf.from(model_cfg)
   if model_names.member?(model.name)
     raise "duplicated model name `#{model.name}`"
   end
   model_names << model.name
   model
-end.each do |model|
+end
+models.each do |model|
   package_dir = File.join(ARGV[1], File.join(cfg['package'].split('.')))
   unless File.directory?(package_dir)
     FileUtils.mkdir_p(package_dir)
@@ -3510,4 +4078,24 @@ end.each do |model|
   puts "OK"
 end
 
+if cfg.has_key? 'benchmark'
+  benchmark = BenchmarkConf.from(cfg['benchmark'], cfg['package'])
+  # benchmarks are usually compiled in another source set, which can be specified by the 3rd argument
+  package_dir = File.join(ARGV[2] || ARGV[1], File.join(benchmark.package.split('.')))
+  unless File.directory?(package_dir)
+    FileUtils.mkdir_p(package_dir)
+  end
+  files = { 'BenchmarkDataFactory.java' => benchmark.generate_data_factory_code(models) }
+  models.each do |model|
+    files["#{model.name}Benchmark.java"] = benchmark.generate_benchmark_code(model)
+  end
+  files.each do |filename, code|
+    puts "Generating #{filename} ... (on path: #{package_dir})"
+    File.open(File.join(package_dir, filename), 'w') do |io|
+      io.syswrite(code)
+    end
+    puts "OK"
+  end
+end
+
 puts "Done."
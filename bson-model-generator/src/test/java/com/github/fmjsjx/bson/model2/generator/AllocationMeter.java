@@ -0,0 +1,116 @@
+package com.github.fmjsjx.bson.model2.generator;
+
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * A JUnit extension measuring the bytes allocated by the current thread.
+ * <p>
+ * Register it by {@code @ExtendWith(AllocationMeter.class)} and declare an
+ * {@code AllocationMeter} parameter on the test method. Tests are skipped
+ * if the JVM does not support measuring thread allocated memory.
+ * <p>
+ * Each measured action is warmed up first, then the minimum bytes of
+ * several runs is taken, so that the lazy initializations and the noise
+ * of the JIT compilation are excluded.
+ * <p>
+ * The budgets are measured with compressed oops, and are scaled by
+ * {@value #UNCOMPRESSED_OOPS_FACTOR} when compressed oops are off. Tests
+ * are skipped if the state of compressed oops is unknown.
+ *
+ * @author MJ Fang
+ * @since 2.4
+ */
+public class AllocationMeter implements BeforeEachCallback, ParameterResolver {
+
+    private static final int DEFAULT_WARMUP = 2000;
+    private static final int DEFAULT_ROUNDS = 20;
+    private static final double UNCOMPRESSED_OOPS_FACTOR = 1.5;
+
+    private static final com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    private static final Boolean compressedOops = compressedOops();
+
+    private static Boolean compressedOops() {
+        try {
+            var bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return bean == null ? null : Boolean.valueOf(bean.getVMOption("UseCompressedOops").getValue());
+        } catch (IllegalArgumentException e) {
+            // the option does not exist, e.g. not a 64-bit HotSpot VM
+            return null;
+        }
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        assumeTrue(threadMXBean != null, "thread allocated memory is not supported");
+        assumeTrue(compressedOops != null, "the state of compressed oops is unknown");
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == AllocationMeter.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return this;
+    }
+
+    /**
+     * Returns the bytes allocated by one run of the specified action.
+     *
+     * @param action the action
+     * @return the allocated bytes
+     */
+    public long measure(Runnable action) {
+        for (var i = 0; i < DEFAULT_WARMUP; i++) {
+            action.run();
+        }
+        var bean = threadMXBean;
+        var min = Long.MAX_VALUE;
+        for (var i = 0; i < DEFAULT_ROUNDS; i++) {
+            var start = bean.getCurrentThreadAllocatedBytes();
+            action.run();
+            var allocated = bean.getCurrentThreadAllocatedBytes() - start;
+            if (allocated < min) {
+                min = allocated;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Asserts that one run of the specified action allocates no more than
+     * the given budget.
+     *
+     * @param budget the maximum allocated bytes, measured with compressed
+     *               oops
+     * @param name   the name of the operation
+     * @param action the action
+     */
+    public void assertAllocation(long budget, String name, Runnable action) {
+        var limit = compressedOops ? budget : (long) (budget * UNCOMPRESSED_OOPS_FACTOR);
+        var allocated = measure(action);
+        assertTrue(allocated <= limit, () -> name + " allocated " + allocated + " bytes, over the budget " + limit + " bytes");
+    }
+
+}
@@ -1,24 +1,67 @@
 package com.github.fmjsjx.bson.model2.generator;
 
 import com.alibaba.fastjson2.JSONWriter;
+import com.github.fmjsjx.bson.model2.core.BsonSizeExceededException;
+import com.github.fmjsjx.bson.model2.core.BsonSizeGuard;
+import com.github.fmjsjx.bson.model2.core.BsonSizes;
+import com.github.fmjsjx.bson.model2.core.ChangeJournal;
+import com.github.fmjsjx.bson.model2.core.ChangeProfiler;
+import com.github.fmjsjx.bson.model2.core.FullUpdatePolicy;
+import com.github.fmjsjx.bson.model2.core.InMemoryModelMetrics;
+import com.github.fmjsjx.bson.model2.core.ModelExecutor;
+import com.github.fmjsjx.bson.model2.core.ModelDelta;
+import com.github.fmjsjx.bson.model2.core.ModelDeltaPublisher;
+import com.github.fmjsjx.bson.model2.core.ModelDeltaSubscriber;
+import com.github.fmjsjx.bson.model2.core.ModelMetrics;
+import com.github.fmjsjx.bson.model2.core.ModelOperationEvent;
+import com.github.fmjsjx.bson.model2.core.SingleValueMapModel;
+import com.github.fmjsjx.bson.model2.core.UpdateApplier;
+import com.github.fmjsjx.bson.model2.core.WriteAheadLog;
 import com.github.fmjsjx.bson.model2.generator.model.Equipment;
 import com.github.fmjsjx.bson.model2.generator.model.GisCoordinates;
+import com.github.fmjsjx.bson.model2.generator.model.Guild;
 import com.github.fmjsjx.bson.model2.generator.model.Player;
+import com.github.fmjsjx.bson.model2.generator.model.Wallet;
 import com.github.fmjsjx.libcommon.json.Fastjson2Library;
 import com.github.fmjsjx.libcommon.json.Jackson2Library;
 import com.github.fmjsjx.libcommon.util.DateTimeUtil;
+import com.mongodb.client.model.PushOptions;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.TruncatedArray;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.bson.*;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TestModel {
 
@@ -276,4 +319,837 @@ public class TestModel {
         );
     }
 
+    @Test
+    public void testUndoLog() {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        var expected = player.toBson();
+        var gis = player.getBasicInfo().getGis();
+
+        var undoLog = player.beginUndoLog();
+        var savepoint = undoLog.savepoint();
+        player.getWallet().addCoinTotal(10);
+        player.getWallet().increaseAd();
+        player.getBasicInfo().setName("changed");
+        player.getBasicInfo().setGis(null);
+        player.getItems().put(1001, 5);
+        player.getItems().remove(2001);
+        player.getItems().put(3001, 1);
+        player.getEquipments().remove(equipment.getId());
+        player.getEquipments().put("new", testEquipment1());
+        assertTrue(player.anyChanged());
+
+        undoLog.rollbackTo(savepoint);
+        assertFalse(player.anyChanged());
+        assertEquals(0, player.toUpdates().size());
+        assertEquals(expected, player.toBson());
+        assertSame(gis, player.getBasicInfo().getGis());
+        assertEquals("bi.g", gis.path().value());
+        assertSame(player.getEquipments(), equipment.parent());
+
+        player.getWallet().setDiamond(5);
+        var nested = undoLog.savepoint();
+        player.getWallet().setDiamond(8);
+        player.getItems().clear();
+        undoLog.rollbackTo(nested);
+        assertEquals(5, player.getWallet().getDiamond());
+        assertEquals(3, player.getItems().get(1001));
+        assertEquals(List.of(Updates.set("w.d", 5L)), player.toUpdates());
+
+        undoLog.release();
+        assertNull(player.undoLog());
+        assertThrows(IllegalStateException.class, () -> undoLog.rollbackTo(savepoint));
+    }
+
+    @Test
+    public void testSnapshot() {
+        var player = testPlayer1();
+        player.reset();
+        var expected = player.toBson();
+
+        var snapshot = player.snapshot();
+        assertEquals(expected, snapshot.toBson());
+        snapshot.release();
+        player.getWallet().setDiamond(10);
+        assertThrows(IllegalStateException.class, snapshot::toBson);
+
+        expected = player.toBson();
+        var snapshot1 = player.snapshot();
+        var snapshot2 = player.snapshot();
+        player.getWallet().addCoinTotal(100);
+        player.getItems().put(3001, 1);
+        player.getBasicInfo().setGis(null);
+        assertNotEquals(expected, player.toBson());
+        assertEquals(expected, snapshot1.toBson());
+        assertSame(snapshot1.model(), snapshot2.model());
+        assertEquals(Long.valueOf(10), snapshot2.<Long>read(p -> p.getWallet().getDiamond()));
+        assertNotNull(snapshot2.model().getBasicInfo().getGis());
+    }
+
+    @Test
+    public void testSnapshotThenLoad() {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        var expected = player.toBson();
+
+        var snapshot = player.snapshot();
+        var loaded = testPlayer1();
+        loaded.getWallet().setCoinTotal(500);
+        loaded.getBasicInfo().setGis(null);
+        player.load(loaded.toBson());
+        assertEquals(loaded.toBson(), player.toBson());
+        assertEquals(expected, snapshot.toBson());
+        // the removed equipment is detached from the snapshot
+        equipment.setAtk(99);
+        assertEquals(expected, snapshot.toBson());
+        player.clean();
+        assertEquals(expected, snapshot.toBson());
+        assertEquals(expected, snapshot.model().toBson());
+        snapshot.release();
+    }
+
+    @Test
+    public void testSnapshotCopyOnWrite() {
+        var player = testPlayer1();
+        var equipment1 = testEquipment1();
+        var equipment2 = testEquipment1();
+        player.getEquipments().put(equipment1.getId(), equipment1);
+        player.getEquipments().put(equipment2.getId(), equipment2);
+        player.reset();
+        var expected1 = player.toBson();
+
+        var snapshot1 = player.snapshot();
+        equipment1.setAtk(20);
+        var expected2 = player.toBson();
+        var snapshot2 = player.snapshot();
+        equipment1.setAtk(30);
+        equipment2.setAtk(40);
+        var removed = player.getEquipments().remove(equipment2.getId());
+        removed.setDef(50);
+        var equipment3 = testEquipment1();
+        player.getEquipments().put(equipment3.getId(), equipment3);
+        equipment3.setAtk(60);
+        assertEquals(expected1, snapshot1.toBson());
+        assertEquals(expected2, snapshot2.toBson());
+        assertEquals(10, snapshot1.<Integer>read(p -> p.getEquipments().get(equipment1.getId()).getAtk()));
+        assertEquals(20, snapshot2.<Integer>read(p -> p.getEquipments().get(equipment1.getId()).getAtk()));
+        // the unchanged sub models are never copied
+        assertSame(player.getItems().get(1001), snapshot1.<Integer>read(p -> p.getItems().get(1001)));
+
+        var undoLog = player.beginUndoLog();
+        var savepoint = undoLog.savepoint();
+        var snapshot3 = player.snapshot();
+        var expected3 = player.toBson();
+        equipment1.setAtk(70);
+        undoLog.rollbackTo(savepoint);
+        undoLog.release();
+        assertEquals(expected3, snapshot3.toBson());
+        assertEquals(expected1, snapshot1.toBson());
+        snapshot1.release();
+        snapshot2.release();
+        snapshot3.release();
+    }
+
+    @Test
+    public void testModelExecutor() throws Exception {
+        var player = testPlayer1();
+        player.reset();
+        var flushed = new AtomicInteger();
+        var executor = new ModelExecutor<Player>(p -> {
+            flushed.incrementAndGet();
+            p.reset();
+        });
+        var mailbox = executor.mailbox(player);
+        var threads = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<CompletableFuture<Long>>();
+            for (var i = 0; i < 1000; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> mailbox.submit(p -> p.getWallet().addCoinTotal(1)), threads).thenCompose(f -> f));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(Long.valueOf(1100), mailbox.submit(p -> p.getWallet().getCoinTotal()).get());
+        assertTrue(flushed.get() > 0);
+        assertFalse(mailbox.<Boolean>submit(Player::anyChanged).get());
+        var failure = mailbox.submit(p -> {
+            throw new IllegalStateException("test");
+        });
+        assertThrows(Exception.class, failure::get);
+        assertEquals(Long.valueOf(1100), mailbox.submit(p -> p.getWallet().getCoinTotal()).get());
+        // one mailbox per model
+        assertSame(mailbox, executor.mailbox(player));
+        assertThrows(IllegalStateException.class, () -> new ModelExecutor<Player>().mailbox(player));
+    }
+
+    @Test
+    public void testModelMailboxRejected() {
+        var executor = new ModelExecutor<Player>(command -> {
+            throw new RejectedExecutionException("test");
+        }, ModelExecutor.DEFAULT_BATCH_SIZE, null);
+        var mailbox = executor.mailbox(testPlayer1());
+        var future = mailbox.submit(p -> p.getWallet().getCoinTotal());
+        assertTrue(future.isCompletedExceptionally());
+        var e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(0, mailbox.pendingCount());
+    }
+
+    @Test
+    public void testReadConsistent() {
+        var player = testPlayer1();
+        assertEquals(100, player.getWallet().readCoin());
+        var stamp = player.beginRead();
+        assertTrue(player.validateRead(stamp));
+        player.getWallet().addCoinUsed(30);
+        assertFalse(player.validateRead(stamp));
+        assertEquals(70, player.getWallet().readCoin());
+        stamp = player.beginRead();
+        player.getItems().put(3001, 1);
+        assertFalse(player.validateRead(stamp));
+        assertEquals(List.of(70L, 1), player.readConsistent(p -> List.of(p.getWallet().getCoin(), p.getItems().get(3001))));
+        var wallet = new Wallet();
+        wallet.setCoinTotal(5);
+        assertEquals(5, wallet.readCoin());
+    }
+
+    @Test
+    public void testConcurrentMapModel() throws Exception {
+        var guild = new Guild();
+        guild.setId(1);
+        guild.reset();
+        var bank = guild.getBank();
+        var threads = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (var i = 0; i < 8; i++) {
+                var memberId = i % 4;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (var j = 0; j < 1000; j++) {
+                        bank.merge(memberId, 1L, Long::sum);
+                    }
+                }, threads));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+        } finally {
+            threads.shutdown();
+        }
+        for (var i = 0; i < 4; i++) {
+            assertEquals(2000L, bank.get(i));
+        }
+        assertFalse(guild.anyChanged());
+        var updates = bank.drainUpdates();
+        assertEquals(4, updates.size());
+        assertTrue(updates.contains(Updates.set("b.0", new BsonInt64(2000))));
+        assertTrue(bank.drainUpdates().isEmpty());
+        bank.remove(0);
+        bank.compute(1, (k, v) -> v == null ? 1 : v + 1);
+        updates = bank.drainUpdates();
+        assertEquals(2, updates.size());
+        assertTrue(updates.contains(Updates.unset("b.0")));
+        assertEquals(2001L, bank.get(1));
+        // resetting the guild must keep the changes not drained yet
+        bank.put(2, 1L);
+        guild.setId(2);
+        guild.reset();
+        assertFalse(guild.anyChanged());
+        updates = bank.drainUpdates();
+        assertEquals(List.of(Updates.set("b.2", new BsonInt64(1))), updates);
+    }
+
+    @Test
+    @ExtendWith(AllocationMeter.class)
+    public void testAllocationBudgets(AllocationMeter meter) {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        var bson = player.toBson();
+        var updates = new ArrayList<Bson>();
+        // budgets are about 1.3x of the bytes measured with compressed oops
+        meter.assertAllocation(4480, "toBson", player::toBson);
+        meter.assertAllocation(4480, "load", () -> new Player().load(bson));
+        meter.assertAllocation(0, "appendUpdates without changes", () -> {
+            updates.clear();
+            player.appendUpdates(updates);
+        });
+        player.getWallet().addCoinTotal(10);
+        player.getItems().put(1001, 5);
+        equipment.setAtk(20);
+        meter.assertAllocation(552, "appendUpdates", () -> {
+            updates.clear();
+            player.appendUpdates(updates);
+        });
+        assertEquals(3, updates.size());
+    }
+
+    @Test
+    public void testModelOperationEvents() throws Exception {
+        var player = testPlayer1();
+        var file = Files.createTempFile("model-operation", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable(ModelOperationEvent.NAME);
+            recording.start();
+            var bson = player.toBson();
+            new Player().load(bson);
+            player.toData();
+            player.toUpdates();
+            recording.stop();
+            recording.dump(file);
+            var events = RecordingFile.readAllEvents(file);
+            var operations = events.stream()
+                    .filter(e -> e.getClass("modelClass").getName().equals(Player.class.getName()))
+                    .map(e -> e.getString("operation")).toList();
+            assertEquals(List.of(ModelOperationEvent.TO_BSON, ModelOperationEvent.LOAD, ModelOperationEvent.TO_DATA, ModelOperationEvent.TO_UPDATES), operations);
+            var toBson = events.stream().filter(e -> e.getString("operation").equals(ModelOperationEvent.TO_BSON)
+                    && e.getClass("modelClass").getName().equals(Player.class.getName())).findFirst().orElseThrow();
+            assertEquals(new RawBsonDocument(bson, new BsonDocumentCodec()).getByteBuffer().remaining(), toBson.getLong("encodedSize"));
+            var toUpdates = events.stream().filter(e -> e.getString("operation").equals(ModelOperationEvent.TO_UPDATES)).findFirst().orElseThrow();
+            assertEquals(14, toUpdates.getInt("updates"));
+            assertTrue(events.stream().anyMatch(e -> "i".equals(e.getString("path")) && e.getString("operation").equals(ModelOperationEvent.APPEND_UPDATES)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testChangeProfiler() {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        var profiler = ChangeProfiler.start();
+        try {
+            for (var i = 0; i < 20; i++) {
+                player.getWallet().addCoinTotal(1);
+            }
+            for (var i = 0; i < 10; i++) {
+                player.getItems().put(1001 + i, i + 1);
+            }
+            equipment.setAtk(20);
+            assertEquals(12, player.toUpdates().size());
+        } finally {
+            profiler.stop();
+        }
+        assertFalse(profiler.isRunning());
+        var stats = profiler.stats().stream().collect(Collectors.toMap(ChangeProfiler.PathStats::path, s -> s));
+        assertEquals(20, stats.get("w.ct").changes());
+        assertEquals(1, stats.get("w.ct").updates());
+        assertEquals(10, stats.get("i.*").changes());
+        assertEquals(10, stats.get("i.*").updates());
+        assertEquals(1, stats.get("e.*.a").changes());
+        assertEquals(1, stats.get("e.*.a").updates());
+        assertTrue(stats.get("e.*.a").bytes() > 0);
+        assertEquals(0, stats.get("w").updates());
+        assertEquals("w.ct", profiler.topChanges(1).get(0).path());
+        assertEquals("i.*", profiler.topBytes(1).get(0).path());
+        player.getWallet().addCoinTotal(1);
+        assertEquals(20, profiler.stats().stream().filter(e -> e.path().equals("w.ct")).findFirst().orElseThrow().changes());
+    }
+
+    @Test
+    public void testChangeProfilerReusedList() {
+        var player = testPlayer1();
+        player.reset();
+        var wallet = player.getWallet();
+        var updates = new ArrayList<Bson>();
+        var profiler = ChangeProfiler.start();
+        try {
+            // the claims must not leak between calls on the same list
+            for (var i = 0; i < 3; i++) {
+                wallet.addCoinTotal(1);
+                updates.clear();
+                assertEquals(1, wallet.appendUpdates(updates));
+                wallet.reset();
+            }
+        } finally {
+            profiler.stop();
+        }
+        assertEquals(3, profiler.stats().stream().filter(e -> e.path().equals("w.ct")).findFirst().orElseThrow().updates());
+    }
+
+    @Test
+    public void testModelMetrics() {
+        assertFalse(ModelMetrics.current().isEnabled());
+        var metrics = new InMemoryModelMetrics(true);
+        ModelMetrics.install(metrics);
+        try {
+            var document = testPlayer1().toBson();
+            var player = new Player().load(document);
+            player.getWallet().addCoinTotal(1);
+            var equipment = testEquipment1();
+            player.getEquipments().put(equipment.getId(), equipment);
+            var updates = player.toUpdates();
+            var stats = metrics.get(Player.class);
+            assertNotNull(stats);
+            assertEquals(1, stats.loadNanos().count());
+            assertEquals(1, stats.toBsonNanos().count());
+            assertEquals(1, stats.documentBytes().count());
+            var size = new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer().remaining();
+            assertEquals(size, stats.documentBytes().max());
+            assertEquals(1, stats.updates().count());
+            assertEquals(updates.size(), stats.updates().max());
+            assertEquals(updates.size(), stats.setPayloadBytes().count());
+            assertTrue(stats.setPayloadBytes().percentile(50) > 0);
+            assertTrue(stats.setPayloadBytes().percentile(100) <= stats.setPayloadBytes().max());
+            assertEquals(1, stats.fullUpdates());
+        } finally {
+            ModelMetrics.install(null);
+        }
+        assertFalse(ModelMetrics.current().isEnabled());
+    }
+
+    @Test
+    public void testEstimateBsonSize() {
+        var codec = new BsonDocumentCodec();
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.getBasicInfo().setName("测试");
+        assertEquals(new RawBsonDocument(player.toBson(), codec).getByteBuffer().remaining(), player.estimateBsonSize());
+        player.reset();
+        var cached = player.estimateBsonSize();
+        assertEquals(cached, player.estimateBsonSize());
+
+        equipment.setAtk(1000);
+        player.getItems().put(3001, 1);
+        assertEquals(new RawBsonDocument(player.toBson(), codec).getByteBuffer().remaining(), player.estimateBsonSize());
+        assertEquals(BsonSizes.sizeOf(player.toUpdates()), player.estimateUpdatesSize());
+
+        var undoLog = player.beginUndoLog();
+        var savepoint = undoLog.savepoint();
+        player.getItems().put(3002, 1);
+        var changed = player.estimateBsonSize();
+        undoLog.rollbackTo(savepoint);
+        undoLog.release();
+        assertTrue(player.estimateBsonSize() < changed);
+        assertEquals(new RawBsonDocument(player.toBson(), codec).getByteBuffer().remaining(), player.estimateBsonSize());
+        player.reset();
+
+        var exceeded = new AtomicInteger();
+        BsonSizeGuard.install(BsonSizeGuard.callback(cached, (model, documentSize, updatesSize) -> {
+            assertSame(player, model);
+            assertTrue(documentSize > cached);
+            assertTrue(updatesSize > 0);
+            exceeded.incrementAndGet();
+        }));
+        try {
+            player.getItems().put(3003, 1);
+            assertFalse(player.toUpdates().isEmpty());
+            assertEquals(1, exceeded.get());
+            BsonSizeGuard.install(BsonSizeGuard.reject(cached));
+            var updates = new ArrayList<Bson>();
+            assertThrows(BsonSizeExceededException.class, () -> player.appendUpdates(updates));
+            assertTrue(updates.isEmpty());
+        } finally {
+            BsonSizeGuard.install(null);
+        }
+        assertFalse(player.toUpdates().isEmpty());
+    }
+
+    @Test
+    public void testFullUpdatePolicy() {
+        var player = testPlayer1();
+        player.reset();
+        for (var i = 0; i < 10; i++) {
+            player.getItems().put(3001 + i, i + 1);
+        }
+        assertEquals(10, player.toUpdates().size());
+
+        FullUpdatePolicy.override(SingleValueMapModel.class, FullUpdatePolicy.of(1.0, 2));
+        try {
+            var updates = player.toUpdates();
+            assertEquals(1, updates.size());
+            assertEquals(Updates.set("i", player.getItems().toBson()).toBsonDocument(), updates.get(0).toBsonDocument());
+            player.reset();
+            player.getItems().put(1001, 5);
+            assertEquals(List.of(Updates.set("i.1001", new BsonInt32(5)).toBsonDocument()),
+                    player.toUpdates().stream().map(Bson::toBsonDocument).toList());
+            player.reset();
+
+            for (var i = 0; i < 4; i++) {
+                player.getWallet().addCoinTotal(1);
+            }
+            player.getWallet().setDiamond(10);
+            player.getWallet().setAd(2);
+            assertTrue(player.toUpdates().size() > 1);
+            FullUpdatePolicy.global(FullUpdatePolicy.of(1.0, 2));
+            updates = player.toUpdates();
+            assertEquals(1, updates.size());
+            assertEquals("w", updates.get(0).toBsonDocument().getDocument("$set").getFirstKey());
+        } finally {
+            FullUpdatePolicy.global(null);
+            FullUpdatePolicy.override(SingleValueMapModel.class, null);
+        }
+        assertFalse(FullUpdatePolicy.global().isEnabled());
+    }
+
+    @Test
+    public void testUpdateApplier() {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        var document = player.toBson();
+        var mirror = new Player().load(document.clone());
+        player.getWallet().addCoinTotal(10);
+        player.getItems().remove(2001);
+        player.getItems().put(3001, 2);
+        player.getBasicInfo().setAvatar(null);
+        player.getBasicInfo().getGis().setHeight(1.5);
+        equipment.setAtk(20);
+        var updates = player.toUpdates();
+        assertEquals(player.toBson(), UpdateApplier.apply(document, updates));
+        assertSame(mirror, UpdateApplier.apply(mirror, updates));
+        assertEquals(player.toBson(), mirror.toBson());
+        assertFalse(mirror.anyChanged());
+        assertEquals(player.estimateBsonSize(), mirror.estimateBsonSize());
+
+        // the changes are routed to the sub models, which are not loaded again
+        var mirrorEquipment = mirror.getEquipments().get(equipment.getId());
+        var operators = List.of(Updates.inc("w.ct", 5), Updates.inc("i.1001", 1),
+                Updates.set("e." + equipment.getId() + ".a", 30), Updates.setOnInsert("w.cu", 1));
+        UpdateApplier.apply(document, operators);
+        UpdateApplier.apply(mirror, operators);
+        assertEquals(document, mirror.toBson());
+        assertSame(mirrorEquipment, mirror.getEquipments().get(equipment.getId()));
+        assertEquals(30, mirrorEquipment.getAtk());
+        assertFalse(mirror.anyChanged());
+        assertEquals(document, new Player().load(mirror.toBson()).toBson());
+
+        var doc = new BsonDocument("a", new BsonInt32(Integer.MAX_VALUE))
+                .append("arr", new BsonArray(List.of(new BsonInt32(1), new BsonInt32(2), new BsonInt32(3))))
+                .append("es", new BsonArray(List.of(new BsonDocument("k", new BsonInt32(1)).append("v", new BsonInt32(1)),
+                        new BsonDocument("k", new BsonInt32(2)))));
+        var ops = List.of(Updates.inc("a", 1), Updates.inc("b.c", 1.5),
+                Updates.pushEach("arr", List.of(4, 5), new PushOptions().slice(-4)), Updates.addToSet("arr", 5),
+                Updates.addEachToSet("s", List.of(1, 1, 2)), Updates.pull("arr", 3), Updates.unset("arr.0"),
+                Updates.pull("es", new Document("k", 1)), Updates.setOnInsert("x", 1));
+        var pushed = new BsonArray(List.of(new BsonInt32(1)));
+        var push = Updates.push("p", pushed);
+        UpdateApplier.apply(doc, ops);
+        UpdateApplier.apply(doc, push);
+        assertEquals(new BsonDocument("a", new BsonInt64(Integer.MAX_VALUE + 1L))
+                .append("arr", new BsonArray(List.of(BsonNull.VALUE, new BsonInt32(4), new BsonInt32(5))))
+                .append("es", new BsonArray(List.of(new BsonDocument("k", new BsonInt32(2)))))
+                .append("b", new BsonDocument("c", new BsonDouble(1.5)))
+                .append("s", new BsonArray(List.of(new BsonInt32(1), new BsonInt32(2))))
+                .append("p", new BsonArray(List.of(pushed))), doc);
+        doc.getArray("p").get(0).asArray().add(new BsonInt32(2));
+        assertEquals(1, pushed.size());
+        assertEquals(new BsonDocument("x", new BsonInt32(1)),
+                UpdateApplier.apply(new BsonDocument(), List.of(Updates.setOnInsert("x", 1)), true));
+        // numbers of the different types are compared by the values, the same as MongoDB
+        var numbers = new BsonDocument("n", new BsonArray(List.of(new BsonInt32(1), new BsonInt64(2), new BsonDouble(2.5),
+                new BsonDecimal128(Decimal128.parse("3.0")), new BsonArray(List.of(new BsonInt32(4))),
+                new BsonDocument("k", new BsonInt64(5)))));
+        UpdateApplier.apply(numbers, List.of(Updates.addEachToSet("n", List.of(1L, 2.0, 3, 4.5)),
+                Updates.pull("n", new Document("$in", List.of(1.0, 2.5))), Updates.pull("n", List.of(4L)),
+                Updates.pull("n", new Document("k", 5.0)), Updates.pull("n", new BsonDecimal128(Decimal128.parse("2")))));
+        assertEquals(new BsonDocument("n", new BsonArray(List.of(new BsonDecimal128(Decimal128.parse("3.0")),
+                new BsonDouble(4.5)))), numbers);
+        assertThrows(IllegalArgumentException.class, () -> UpdateApplier.apply(doc, Updates.inc("s", 1)));
+        assertThrows(IllegalArgumentException.class, () -> UpdateApplier.apply(doc, Updates.mul("a", 2)));
+    }
+
+    @Test
+    public void testApplyChange() {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        var mirror = new Player().load(player.toBson());
+        var equipment2 = testEquipment1();
+        var loginDay = player.getBasicInfo().getLoginDays().get(0);
+        player.getWallet().setCoinTotal(110);
+        player.getItems().remove(2001);
+        player.getItems().put(3001, 2);
+        player.getBasicInfo().setAvatar(null);
+        player.getBasicInfo().setLoginDays(List.of(loginDay));
+        equipment.setAtk(20);
+        player.getEquipments().put(equipment2.getId(), equipment2.deepCopy());
+
+        var description = new UpdateDescription(List.of("i.2001", "bi.a"),
+                new BsonDocument("w.ct", new BsonInt32(110)).append("i.3001", new BsonInt32(2))
+                        .append("e." + equipment.getId() + ".a", new BsonInt32(20))
+                        .append("e." + equipment2.getId(), equipment2.toBson()),
+                List.of(new TruncatedArray("bi.ld", 1)));
+        var basicInfo = mirror.getBasicInfo();
+        var mirrorEquipment = mirror.getEquipments().get(equipment.getId());
+        var event = new ChangeStreamDocument<BsonDocument>("update", null, null, null, null, null, null, null, null,
+                description, null, null, null, null, null);
+        assertSame(mirror, mirror.applyChange(event));
+        assertEquals(player.toBson(), mirror.toBson());
+        assertFalse(mirror.anyChanged());
+        assertEquals(player.estimateBsonSize(), mirror.estimateBsonSize());
+        // only the touched sub models are loaded again
+        assertSame(basicInfo, mirror.getBasicInfo());
+        assertSame(mirrorEquipment, mirror.getEquipments().get(equipment.getId()));
+
+        var replace = new ChangeStreamDocument<>("replace", null, null, null, null, testPlayer1().toBson(), null, null,
+                null, null, null, null, null, null, null);
+        assertEquals(replace.getFullDocument(), mirror.applyChange(replace).toBson());
+        var delete = new ChangeStreamDocument<BsonDocument>("delete", null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> mirror.applyChange(delete));
+    }
+
+    @Test
+    public void testModelDelta() throws Exception {
+        var player = testPlayer1();
+        player.reset();
+        try (var server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             var publisher = new ModelDeltaPublisher<>(player);
+             var subscriber = new ModelDeltaSubscriber<>(SocketChannel.open(server.getLocalAddress()), new Player())) {
+            publisher.subscribe(server.accept());
+            assertTrue(subscriber.applyNext());
+            assertEquals(0, subscriber.sequence());
+            assertEquals(player.toBson(), subscriber.model().toBson());
+
+            var equipment = testEquipment1();
+            player.getEquipments().put(equipment.getId(), equipment);
+            player.getWallet().addCoinTotal(10);
+            player.getItems().remove(2001);
+            assertEquals(1, publisher.publish().sequence());
+            player.reset();
+            assertNull(publisher.publish());
+            player.getBasicInfo().setAvatar(null);
+            equipment.setAtk(20);
+            var delta = publisher.publish();
+            player.reset();
+            assertEquals(delta.toString(), ModelDelta.decode(delta.encode()).toString());
+
+            assertTrue(subscriber.applyNext());
+            assertTrue(subscriber.applyNext());
+            assertEquals(2, subscriber.sequence());
+            assertEquals(player.toBson(), subscriber.model().toBson());
+            assertFalse(subscriber.model().anyChanged());
+            assertThrows(IllegalStateException.class, () -> subscriber.apply(delta));
+
+            publisher.close();
+            assertEquals(0, publisher.subscriberCount());
+            assertFalse(subscriber.applyNext());
+        }
+    }
+
+    @Test
+    public void testModelDeltaPublisherSlowSubscriber() throws Exception {
+        var player = testPlayer1();
+        player.reset();
+        var pipe = Pipe.open();
+        try (var publisher = new ModelDeltaPublisher<>(player, 2); var source = pipe.source()) {
+            var sink = pipe.sink();
+            publisher.subscribe(sink);
+            assertFalse(sink.isBlocking());
+            // the sink is never read, so the large deltas fill the pipe
+            var updates = List.of(Updates.set("x", "x".repeat(256 * 1024)));
+            for (var i = 0; i < 2; i++) {
+                assertNotNull(publisher.publish(updates));
+                assertEquals(1, publisher.subscriberCount());
+            }
+            assertFalse(publisher.flush());
+            // never blocks, and the subscriber falling too far behind is removed
+            assertNotNull(publisher.publish(updates));
+            assertEquals(0, publisher.subscriberCount());
+            assertFalse(sink.isOpen());
+            assertTrue(publisher.flush());
+        }
+    }
+
+    @Test
+    public void testChangeJournal() {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        assertThrows(IllegalStateException.class, () -> player.deltaSince(0));
+        var journal = player.enableChangeJournal(2);
+        assertSame(journal, player.enableChangeJournal(8));
+        assertTrue(player.deltaSince(0).isEmpty());
+
+        player.getWallet().setCoinTotal(110);
+        player.getItems().remove(2001);
+        player.getEquipments().remove(equipment.getId());
+        player.reset();
+        player.getItems().put(2001, 5);
+        player.getBasicInfo().setAvatar(null);
+        equipment.setAtk(20);
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        assertEquals(2, journal.version());
+
+        var json = Jackson2Library.defaultInstance();
+        var patch = player.deltaSince(0);
+        assertEquals(2, patch.version());
+        assertFalse(patch.isFullSync());
+        assertEquals("""
+                {"wallet":{"coinTotal":110,"coin":110},"equipments":{"${id}":{"id":"${id}","refId":1,"atk":20,"def":0,"hp":0,"extension":{"key1":"value1"}}},"items":{"2001":5}}"""
+                .replace("${id}", equipment.getId()), json.dumpsToString(patch.updateData()));
+        // the equipment is deleted and then added again
+        assertEquals("{\"equipments\":{\"${id}\":1},\"basicInfo\":{\"avatar\":1}}".replace("${id}", equipment.getId()),
+                json.dumpsToString(patch.deletedData()));
+        patch = player.deltaSince(1);
+        assertEquals("{\"basicInfo\":{\"avatar\":1}}", json.dumpsToString(patch.deletedData()));
+        assertFalse(patch.updateData().containsKey("wallet"));
+        assertTrue(player.deltaSince(2).isEmpty());
+
+        player.getItems().remove(2001);
+        player.reset();
+        patch = player.deltaSince(1);
+        assertEquals("{\"basicInfo\":{\"avatar\":1},\"items\":{\"2001\":1}}", json.dumpsToString(patch.deletedData()));
+        assertFalse(patch.updateData().containsKey("items"));
+        patch = player.deltaSince(0);
+        assertTrue(patch.isFullSync());
+        assertEquals(3, patch.version());
+        assertEquals(json.dumpsToString(player.toData()), json.dumpsToString(patch.data()));
+        assertTrue(player.deltaSince(4).isFullSync());
+    }
+
+    @Test
+    public void testChangeJournalReplacedValue() {
+        var player = testPlayer1();
+        var equipment = testEquipment1();
+        player.getEquipments().put(equipment.getId(), equipment);
+        player.reset();
+        var client = player.toData();
+        player.enableChangeJournal(8);
+
+        player.getEquipments().remove(equipment.getId());
+        player.reset();
+        // the new equipment has fewer keys than the removed one
+        var replaced = new Equipment();
+        replaced.setId(equipment.getId());
+        replaced.setRefId(2);
+        player.getEquipments().put(replaced.getId(), replaced);
+        player.reset();
+        var patch = player.deltaSince(0);
+        assertEquals(2, patch.version());
+        assertEquals(player.toData(), applyPatch(client, patch));
+
+        replaced.setExtension(new BsonDocument("key2", new BsonString("value2")));
+        player.reset();
+        replaced.setExtension(null);
+        replaced.setAtk(5);
+        player.reset();
+        patch = player.deltaSince(0);
+        assertEquals(4, patch.version());
+        assertEquals(Map.of(replaced.getId(), 1), patch.deletedData().get("equipments"));
+        assertEquals(player.toData(), applyPatch(client, patch));
+    }
+
+    /**
+     * Applies the patch to a copy of the client data, the deleted data first.
+     */
+    private static Map<Object, Object> applyPatch(Map<Object, Object> data, ChangeJournal.Patch patch) {
+        var copy = copyData(data);
+        applyDeleted(copy, patch.deletedData());
+        applyUpdated(copy, patch.updateData());
+        return copy;
+    }
+
+    private static Map<Object, Object> copyData(Map<?, ?> data) {
+        var copy = new LinkedHashMap<Object, Object>();
+        data.forEach((k, v) -> copy.put(k, v instanceof Map<?, ?> m ? copyData(m) : v));
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void applyDeleted(Map<Object, Object> data, Map<?, ?> deleted) {
+        deleted.forEach((k, v) -> {
+            if (v instanceof Map<?, ?> m) {
+                if (data.get(k) instanceof Map<?, ?> nested) {
+                    applyDeleted((Map<Object, Object>) nested, m);
+                }
+            } else {
+                data.remove(k);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void applyUpdated(Map<Object, Object> data, Map<?, ?> updated) {
+        updated.forEach((k, v) -> {
+            if (v instanceof Map<?, ?> m) {
+                if (!(data.get(k) instanceof Map<?, ?>)) {
+                    data.put(k, new LinkedHashMap<>());
+                }
+                applyUpdated((Map<Object, Object>) data.get(k), m);
+            } else {
+                data.put(k, v);
+            }
+        });
+    }
+
+    @Test
+    public void testWriteAheadLog() throws Exception {
+        var directory = Files.createTempDirectory("wal");
+        try {
+            var player = testPlayer1();
+            player.reset();
+            var mirror = new Player().load(player.toBson());
+            var id = new BsonInt32(player.getId());
+            try (var wal = new WriteAheadLog(directory, 512, WriteAheadLog.SyncPolicy.GROUP, 2)) {
+                assertEquals(0, wal.append(id, player.toUpdates()));
+                for (var i = 0; i < 10; i++) {
+                    player.getWallet().addCoinTotal(10);
+                    player.getItems().put(3000 + i, i);
+                    assertEquals(i + 1, wal.append(id, player.toUpdates()));
+                    player.reset();
+                }
+                assertTrue(wal.syncedSequence() >= 9);
+                assertEquals(10, WriteAheadLog.replay(directory, (BsonValue v) -> v.equals(id) ? mirror : null));
+                assertEquals(player.toBson(), mirror.toBson());
+                // the recovered changes must be persisted with the next flush
+                assertTrue(mirror.anyChanged());
+                mirror.getWallet().addCoinTotal(1);
+                assertEquals(List.of(Updates.set("", mirror.toBson()).toBsonDocument()),
+                        mirror.toUpdates().stream().map(Bson::toBsonDocument).toList());
+                mirror.reset();
+                assertFalse(mirror.anyChanged());
+                try (var stream = Files.list(directory)) {
+                    assertTrue(stream.count() > 1);
+                }
+
+                long files;
+                try (var stream = Files.list(directory)) {
+                    files = stream.count();
+                }
+                assertThrows(IllegalArgumentException.class, () -> wal.checkpoint(11));
+                // only the segments whose last record is at or before 5 are deleted
+                wal.checkpoint(5);
+                try (var stream = Files.list(directory)) {
+                    assertTrue(stream.count() < files);
+                }
+                var replayed = WriteAheadLog.replay(directory, (v, u) -> {
+                });
+                assertTrue(replayed >= 5 && replayed < 10, "replayed " + replayed);
+                wal.checkpoint(10);
+                assertEquals(0, WriteAheadLog.replay(directory, (v, updates) -> fail()));
+                player.getBasicInfo().setAvatar(null);
+                wal.append(id, player.toUpdates());
+                wal.sync();
+                assertEquals(11, wal.syncedSequence());
+            }
+            var updates = new ArrayList<List<BsonDocument>>();
+            assertEquals(1, WriteAheadLog.replay(directory, (v, u) -> updates.add(u)));
+            assertEquals(player.toUpdates().stream().map(Bson::toBsonDocument).toList(), updates.get(0));
+            try (var wal = new WriteAheadLog(directory)) {
+                wal.checkpoint(wal.sequence());
+            }
+            assertEquals(0, WriteAheadLog.replay(directory, (v, u) -> fail()));
+        } finally {
+            try (var stream = Files.list(directory)) {
+                for (var path : stream.toList()) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
 }
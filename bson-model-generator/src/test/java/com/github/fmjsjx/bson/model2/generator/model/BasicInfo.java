@@ -43,7 +43,16 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
     public void setName(String name) {
         Objects.requireNonNull(name, "name must not be null");
         if (!name.equals(this.name)) {
-            this.name = name;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var nameOriginal = this.name;
+                    undoLog.append(() -> this.name = nameOriginal);
+                }
+                this.name = name;
+            } finally {
+                afterChange();
+            }
             fieldChanged(0);
         }
     }
@@ -54,7 +63,16 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
 
     public void setAvatar(String avatar) {
         if (!Objects.equals(avatar, this.avatar)) {
-            this.avatar = avatar;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var avatarOriginal = this.avatar;
+                    undoLog.append(() -> this.avatar = avatarOriginal);
+                }
+                this.avatar = avatar;
+            } finally {
+                afterChange();
+            }
             fieldChanged(1);
         }
     }
@@ -66,7 +84,16 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
     public void setLastLoginTime(LocalDateTime lastLoginTime) {
         Objects.requireNonNull(lastLoginTime, "lastLoginTime must not be null");
         if (!lastLoginTime.equals(this.lastLoginTime)) {
-            this.lastLoginTime = lastLoginTime;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var lastLoginTimeOriginal = this.lastLoginTime;
+                    undoLog.append(() -> this.lastLoginTime = lastLoginTimeOriginal);
+                }
+                this.lastLoginTime = lastLoginTime;
+            } finally {
+                afterChange();
+            }
             fieldsChanged(2, 4);
         }
     }
@@ -77,7 +104,16 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
 
     public void setLoginDays(List<LocalDate> loginDays) {
         if (!Objects.equals(loginDays, this.loginDays)) {
-            this.loginDays = loginDays;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var loginDaysOriginal = this.loginDays;
+                    undoLog.append(() -> this.loginDays = loginDaysOriginal);
+                }
+                this.loginDays = loginDays;
+            } finally {
+                afterChange();
+            }
             fieldChanged(3);
         }
     }
@@ -92,7 +128,16 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
 
     public void setWorkTimes(List<LocalTime> workTimes) {
         if (!Objects.equals(workTimes, this.workTimes)) {
-            this.workTimes = workTimes;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var workTimesOriginal = this.workTimes;
+                    undoLog.append(() -> this.workTimes = workTimesOriginal);
+                }
+                this.workTimes = workTimes;
+            } finally {
+                afterChange();
+            }
             fieldChanged(5);
         }
     }
@@ -104,13 +149,43 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
     public void setGis(GisCoordinates gis) {
         if (gis != null) {
             gis.mustUnbound();
-            this.gis = gis.parent(this).key(BNAME_GIS).index(6).fullyUpdate(true);
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var gisOriginal = this.gis;
+                    undoLog.append(() -> {
+                        var gisCurrent = this.gis;
+                        if (gisCurrent != null) {
+                            gisCurrent.unbind();
+                        }
+                        this.gis = gisOriginal == null ? null : gisOriginal.parent(this).key(BNAME_GIS).index(6);
+                    });
+                }
+                this.gis = gis.parent(this).key(BNAME_GIS).index(6).fullyUpdate(true);
+            } finally {
+                afterChange();
+            }
             fieldChanged(6);
         } else {
             gis = this.gis;
             if (gis != null) {
-                gis.unbind();
-                this.gis = null;
+                var undoLog = beforeChange();
+                try {
+                    if (undoLog != null) {
+                        var gisOriginal = this.gis;
+                        undoLog.append(() -> {
+                            var gisCurrent = this.gis;
+                            if (gisCurrent != null) {
+                                gisCurrent.unbind();
+                            }
+                            this.gis = gisOriginal == null ? null : gisOriginal.parent(this).key(BNAME_GIS).index(6);
+                        });
+                    }
+                    gis.unbind();
+                    this.gis = null;
+                } finally {
+                    afterChange();
+                }
                 fieldChanged(6);
             }
         }
@@ -122,7 +197,16 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
 
     public void setBirthday(LocalDate birthday) {
         if (!Objects.equals(birthday, this.birthday)) {
-            this.birthday = birthday;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var birthdayOriginal = this.birthday;
+                    undoLog.append(() -> this.birthday = birthdayOriginal);
+                }
+                this.birthday = birthday;
+            } finally {
+                afterChange();
+            }
             fieldChanged(7);
         }
     }
@@ -133,7 +217,16 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
 
     public void setBirthtime(LocalTime birthtime) {
         if (!Objects.equals(birthtime, this.birthtime)) {
-            this.birthtime = birthtime;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var birthtimeOriginal = this.birthtime;
+                    undoLog.append(() -> this.birthtime = birthtimeOriginal);
+                }
+                this.birthtime = birthtime;
+            } finally {
+                afterChange();
+            }
             fieldChanged(8);
         }
     }
@@ -206,32 +299,69 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
         return bson;
     }
 
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        size += BsonSizes.elementSize(BNAME_NAME, new BsonString(name));
+        var avatar = this.avatar;
+        if (avatar != null) {
+            size += BsonSizes.elementSize(BNAME_AVATAR, new BsonString(avatar));
+        }
+        size += BsonSizes.elementSize(BNAME_LAST_LOGIN_TIME, BsonUtil.toBsonDateTime(lastLoginTime));
+        var loginDays = this.loginDays;
+        if (loginDays != null) {
+            size += BsonSizes.elementSize(BNAME_LOGIN_DAYS, BsonUtil.toBsonArray(loginDays, v -> new BsonInt32(DateTimeUtil.toNumber(v))));
+        }
+        var workTimes = this.workTimes;
+        if (workTimes != null) {
+            size += BsonSizes.elementSize(BNAME_WORK_TIMES, BsonUtil.toBsonArray(workTimes, v -> new BsonInt32(DateTimeUtil.toNumber(v))));
+        }
+        var gis = this.gis;
+        if (gis != null) {
+            size += BsonSizes.elementSize(BNAME_GIS, gis.estimateBsonSize());
+        }
+        var birthday = this.birthday;
+        if (birthday != null) {
+            size += BsonSizes.elementSize(BNAME_BIRTHDAY, new BsonInt32(DateTimeUtil.toNumber(birthday)));
+        }
+        var birthtime = this.birthtime;
+        if (birthtime != null) {
+            size += BsonSizes.elementSize(BNAME_BIRTHTIME, new BsonInt32(DateTimeUtil.toNumber(birthtime)));
+        }
+        return size;
+    }
+
     @Override
     public BasicInfo load(BsonDocument src) {
-        resetStates();
-        name = BsonUtil.stringValue(src, BNAME_NAME).orElse("");
-        avatar = BsonUtil.stringValue(src, BNAME_AVATAR).orElse(null);
-        lastLoginTime = BsonUtil.dateTimeValue(src, BNAME_LAST_LOGIN_TIME).orElseGet(LocalDateTime::now);
-        loginDays = BsonUtil.arrayValue(src, BNAME_LOGIN_DAYS, (BsonNumber v) -> DateTimeUtil.toDate(v.intValue())).orElse(null);
-        workTimes = BsonUtil.arrayValue(src, BNAME_WORK_TIMES, (BsonNumber v) -> DateTimeUtil.toTime(v.intValue())).orElse(null);
-        BsonUtil.documentValue(src, BNAME_GIS).ifPresentOrElse(
-                v -> {
-                    var gis = this.gis;
-                    if (gis != null) {
-                        gis.unbind();
+        beforeChange();
+        try {
+            resetStates();
+            name = BsonUtil.stringValue(src, BNAME_NAME).orElse("");
+            avatar = BsonUtil.stringValue(src, BNAME_AVATAR).orElse(null);
+            lastLoginTime = BsonUtil.dateTimeValue(src, BNAME_LAST_LOGIN_TIME).orElseGet(LocalDateTime::now);
+            loginDays = BsonUtil.arrayValue(src, BNAME_LOGIN_DAYS, (BsonNumber v) -> DateTimeUtil.toDate(v.intValue())).orElse(null);
+            workTimes = BsonUtil.arrayValue(src, BNAME_WORK_TIMES, (BsonNumber v) -> DateTimeUtil.toTime(v.intValue())).orElse(null);
+            BsonUtil.documentValue(src, BNAME_GIS).ifPresentOrElse(
+                    v -> {
+                        var gis = this.gis;
+                        if (gis != null) {
+                            gis.unbind();
+                        }
+                        this.gis = new GisCoordinates().load(v).parent(this).key(BNAME_GIS).index(6);
+                    },
+                    () -> {
+                        var gis = this.gis;
+                        if (gis != null) {
+                            gis.unbind();
+                            this.gis = null;
+                        }
                     }
-                    this.gis = new GisCoordinates().load(v).parent(this).key(BNAME_GIS).index(6);
-                },
-                () -> {
-                    var gis = this.gis;
-                    if (gis != null) {
-                        gis.unbind();
-                        this.gis = null;
-                    }
-                }
-        );
-        birthday = BsonUtil.intValue(src, BNAME_BIRTHDAY).stream().mapToObj(DateTimeUtil::toDate).findFirst().orElse(null);
-        birthtime = BsonUtil.intValue(src, BNAME_BIRTHTIME).stream().mapToObj(DateTimeUtil::toTime).findFirst().orElse(null);
+            );
+            birthday = BsonUtil.intValue(src, BNAME_BIRTHDAY).stream().mapToObj(DateTimeUtil::toDate).findFirst().orElse(null);
+            birthtime = BsonUtil.intValue(src, BNAME_BIRTHTIME).stream().mapToObj(DateTimeUtil::toTime).findFirst().orElse(null);
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -446,19 +576,24 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
 
     @Override
     public BasicInfo clean() {
-        name = "";
-        avatar = null;
-        lastLoginTime = LocalDateTime.now();
-        loginDays = null;
-        workTimes = null;
-        var gis = this.gis;
-        if (gis != null) {
-            gis.clean().unbind();
-            this.gis = null;
+        beforeChange();
+        try {
+            name = "";
+            avatar = null;
+            lastLoginTime = LocalDateTime.now();
+            loginDays = null;
+            workTimes = null;
+            var gis = this.gis;
+            if (gis != null) {
+                gis.clean().unbind();
+                this.gis = null;
+            }
+            birthday = null;
+            birthtime = null;
+            resetStates();
+        } finally {
+            afterChange();
         }
-        birthday = null;
-        birthtime = null;
-        resetStates();
         return this;
     }
 
@@ -500,6 +635,36 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
         birthtime = src.birthtime;
     }
 
+    @Override
+    protected BasicInfo snapshotCopy() {
+        var copy = new BasicInfo();
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(BasicInfo src) {
+        name = src.name;
+        avatar = src.avatar;
+        lastLoginTime = src.lastLoginTime;
+        var loginDays = src.loginDays;
+        if (loginDays != null) {
+            this.loginDays = new ArrayList<>(src.loginDays);
+        } else {
+            this.loginDays = null;
+        }
+        var workTimes = src.workTimes;
+        if (workTimes != null) {
+            this.workTimes = new ArrayList<>(src.workTimes);
+        } else {
+            this.workTimes = null;
+        }
+        var gis = src.gis;
+        this.gis = gis == null ? null : copyForSnapshot(gis).parent(this).key(BNAME_GIS).index(6);
+        birthday = src.birthday;
+        birthtime = src.birthtime;
+    }
+
     @Override
     protected void appendFieldUpdates(List<Bson> updates) {
         var changedFields = this.changedFields;
@@ -562,6 +727,130 @@ public class BasicInfo extends ObjectModel<BasicInfo> {
         }
     }
 
+    @Override
+    protected String fieldName(int index) {
+        return switch (index) {
+            case 0 -> BNAME_NAME;
+            case 1 -> BNAME_AVATAR;
+            case 2 -> BNAME_LAST_LOGIN_TIME;
+            case 3 -> BNAME_LOGIN_DAYS;
+            case 5 -> BNAME_WORK_TIMES;
+            case 6 -> BNAME_GIS;
+            case 7 -> BNAME_BIRTHDAY;
+            case 8 -> BNAME_BIRTHTIME;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected boolean appendFieldBson(String name1, BsonDocument dest) {
+        switch (name1) {
+            case BNAME_NAME -> {
+                dest.append(BNAME_NAME, new BsonString(name));
+            }
+            case BNAME_AVATAR -> {
+                var avatar = this.avatar;
+                if (avatar != null) {
+                    dest.append(BNAME_AVATAR, new BsonString(avatar));
+                }
+            }
+            case BNAME_LAST_LOGIN_TIME -> {
+                dest.append(BNAME_LAST_LOGIN_TIME, BsonUtil.toBsonDateTime(lastLoginTime));
+            }
+            case BNAME_LOGIN_DAYS -> {
+                var loginDays = this.loginDays;
+                if (loginDays != null) {
+                    dest.append(BNAME_LOGIN_DAYS, BsonUtil.toBsonArray(loginDays, v -> new BsonInt32(DateTimeUtil.toNumber(v))));
+                }
+            }
+            case BNAME_WORK_TIMES -> {
+                var workTimes = this.workTimes;
+                if (workTimes != null) {
+                    dest.append(BNAME_WORK_TIMES, BsonUtil.toBsonArray(workTimes, v -> new BsonInt32(DateTimeUtil.toNumber(v))));
+                }
+            }
+            case BNAME_GIS -> {
+                var gis = this.gis;
+                if (gis != null) {
+                    dest.append(BNAME_GIS, gis.toBson());
+                }
+            }
+            case BNAME_BIRTHDAY -> {
+                var birthday = this.birthday;
+                if (birthday != null) {
+                    dest.append(BNAME_BIRTHDAY, new BsonInt32(DateTimeUtil.toNumber(birthday)));
+                }
+            }
+            case BNAME_BIRTHTIME -> {
+                var birthtime = this.birthtime;
+                if (birthtime != null) {
+                    dest.append(BNAME_BIRTHTIME, new BsonInt32(DateTimeUtil.toNumber(birthtime)));
+                }
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean loadField(String name1, BsonDocument src) {
+        switch (name1) {
+            case BNAME_NAME -> {
+                name = BsonUtil.stringValue(src, BNAME_NAME).orElse("");
+            }
+            case BNAME_AVATAR -> {
+                avatar = BsonUtil.stringValue(src, BNAME_AVATAR).orElse(null);
+            }
+            case BNAME_LAST_LOGIN_TIME -> {
+                lastLoginTime = BsonUtil.dateTimeValue(src, BNAME_LAST_LOGIN_TIME).orElseGet(LocalDateTime::now);
+            }
+            case BNAME_LOGIN_DAYS -> {
+                loginDays = BsonUtil.arrayValue(src, BNAME_LOGIN_DAYS, (BsonNumber v) -> DateTimeUtil.toDate(v.intValue())).orElse(null);
+            }
+            case BNAME_WORK_TIMES -> {
+                workTimes = BsonUtil.arrayValue(src, BNAME_WORK_TIMES, (BsonNumber v) -> DateTimeUtil.toTime(v.intValue())).orElse(null);
+            }
+            case BNAME_GIS -> {
+                BsonUtil.documentValue(src, BNAME_GIS).ifPresentOrElse(
+                        v -> {
+                            var gis = this.gis;
+                            if (gis != null) {
+                                gis.unbind();
+                            }
+                            this.gis = new GisCoordinates().load(v).parent(this).key(BNAME_GIS).index(6);
+                        },
+                        () -> {
+                            var gis = this.gis;
+                            if (gis != null) {
+                                gis.unbind();
+                                this.gis = null;
+                            }
+                        }
+                );
+            }
+            case BNAME_BIRTHDAY -> {
+                birthday = BsonUtil.intValue(src, BNAME_BIRTHDAY).stream().mapToObj(DateTimeUtil::toDate).findFirst().orElse(null);
+            }
+            case BNAME_BIRTHTIME -> {
+                birthtime = BsonUtil.intValue(src, BNAME_BIRTHTIME).stream().mapToObj(DateTimeUtil::toTime).findFirst().orElse(null);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected AbstractBsonModel<?, ?> fieldModel(String name1) {
+        return switch (name1) {
+            case BNAME_GIS -> this.gis;
+            default -> null;
+        };
+    }
+
     @Override
     protected void loadObjectNode(JsonNode src) {
         resetStates();
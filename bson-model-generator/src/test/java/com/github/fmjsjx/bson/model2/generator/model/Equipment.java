@@ -34,7 +34,16 @@ public class Equipment extends ObjectModel<Equipment> {
     public void setId(String id) {
         Objects.requireNonNull(id, "id must not be null");
         if (!id.equals(this.id)) {
-            this.id = id;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var idOriginal = this.id;
+                    undoLog.append(() -> this.id = idOriginal);
+                }
+                this.id = id;
+            } finally {
+                afterChange();
+            }
             fieldChanged(0);
         }
     }
@@ -45,7 +54,16 @@ public class Equipment extends ObjectModel<Equipment> {
 
     public void setRefId(int refId) {
         if (refId != this.refId) {
-            this.refId = refId;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var refIdOriginal = this.refId;
+                    undoLog.append(() -> this.refId = refIdOriginal);
+                }
+                this.refId = refId;
+            } finally {
+                afterChange();
+            }
             fieldChanged(1);
         }
     }
@@ -56,7 +74,16 @@ public class Equipment extends ObjectModel<Equipment> {
 
     public void setAtk(int atk) {
         if (atk != this.atk) {
-            this.atk = atk;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var atkOriginal = this.atk;
+                    undoLog.append(() -> this.atk = atkOriginal);
+                }
+                this.atk = atk;
+            } finally {
+                afterChange();
+            }
             fieldChanged(2);
         }
     }
@@ -67,7 +94,16 @@ public class Equipment extends ObjectModel<Equipment> {
 
     public void setDef(int def) {
         if (def != this.def) {
-            this.def = def;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var defOriginal = this.def;
+                    undoLog.append(() -> this.def = defOriginal);
+                }
+                this.def = def;
+            } finally {
+                afterChange();
+            }
             fieldChanged(3);
         }
     }
@@ -78,7 +114,16 @@ public class Equipment extends ObjectModel<Equipment> {
 
     public void setHp(int hp) {
         if (hp != this.hp) {
-            this.hp = hp;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var hpOriginal = this.hp;
+                    undoLog.append(() -> this.hp = hpOriginal);
+                }
+                this.hp = hp;
+            } finally {
+                afterChange();
+            }
             fieldChanged(4);
         }
     }
@@ -89,7 +134,16 @@ public class Equipment extends ObjectModel<Equipment> {
 
     public void setExtension(BsonDocument extension) {
         if (!Objects.equals(extension, this.extension)) {
-            this.extension = extension;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var extensionOriginal = this.extension;
+                    undoLog.append(() -> this.extension = extensionOriginal);
+                }
+                this.extension = extension;
+            } finally {
+                afterChange();
+            }
             fieldChanged(5);
         }
     }
@@ -133,15 +187,35 @@ public class Equipment extends ObjectModel<Equipment> {
         return bson;
     }
 
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        size += BsonSizes.elementSize(BNAME_ID, new BsonString(id));
+        size += BsonSizes.elementSize(BNAME_REF_ID, new BsonInt32(refId));
+        size += BsonSizes.elementSize(BNAME_ATK, new BsonInt32(atk));
+        size += BsonSizes.elementSize(BNAME_DEF, new BsonInt32(def));
+        size += BsonSizes.elementSize(BNAME_HP, new BsonInt32(hp));
+        var extension = this.extension;
+        if (extension != null) {
+            size += BsonSizes.elementSize(BNAME_EXTENSION, extension);
+        }
+        return size;
+    }
+
     @Override
     public Equipment load(BsonDocument src) {
-        resetStates();
-        id = BsonUtil.stringValue(src, BNAME_ID).orElse("");
-        refId = BsonUtil.intValue(src, BNAME_REF_ID).orElse(0);
-        atk = BsonUtil.intValue(src, BNAME_ATK).orElse(0);
-        def = BsonUtil.intValue(src, BNAME_DEF).orElse(0);
-        hp = BsonUtil.intValue(src, BNAME_HP).orElse(0);
-        extension = BsonUtil.documentValue(src, BNAME_EXTENSION).orElse(null);
+        beforeChange();
+        try {
+            resetStates();
+            id = BsonUtil.stringValue(src, BNAME_ID).orElse("");
+            refId = BsonUtil.intValue(src, BNAME_REF_ID).orElse(0);
+            atk = BsonUtil.intValue(src, BNAME_ATK).orElse(0);
+            def = BsonUtil.intValue(src, BNAME_DEF).orElse(0);
+            hp = BsonUtil.intValue(src, BNAME_HP).orElse(0);
+            extension = BsonUtil.documentValue(src, BNAME_EXTENSION).orElse(null);
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -248,13 +322,18 @@ public class Equipment extends ObjectModel<Equipment> {
 
     @Override
     public Equipment clean() {
-        id = "";
-        refId = 0;
-        atk = 0;
-        def = 0;
-        hp = 0;
-        extension = null;
-        resetStates();
+        beforeChange();
+        try {
+            id = "";
+            refId = 0;
+            atk = 0;
+            def = 0;
+            hp = 0;
+            extension = null;
+            resetStates();
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -280,6 +359,28 @@ public class Equipment extends ObjectModel<Equipment> {
         }
     }
 
+    @Override
+    protected Equipment snapshotCopy() {
+        var copy = new Equipment();
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(Equipment src) {
+        id = src.id;
+        refId = src.refId;
+        atk = src.atk;
+        def = src.def;
+        hp = src.hp;
+        var extension = src.extension;
+        if (extension != null) {
+            this.extension = extension.clone();
+        } else {
+            this.extension = null;
+        }
+    }
+
     @Override
     protected void appendFieldUpdates(List<Bson> updates) {
         var changedFields = this.changedFields;
@@ -311,6 +412,83 @@ public class Equipment extends ObjectModel<Equipment> {
         }
     }
 
+    @Override
+    protected String fieldName(int index) {
+        return switch (index) {
+            case 0 -> BNAME_ID;
+            case 1 -> BNAME_REF_ID;
+            case 2 -> BNAME_ATK;
+            case 3 -> BNAME_DEF;
+            case 4 -> BNAME_HP;
+            case 5 -> BNAME_EXTENSION;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected boolean appendFieldBson(String name, BsonDocument dest) {
+        switch (name) {
+            case BNAME_ID -> {
+                dest.append(BNAME_ID, new BsonString(id));
+            }
+            case BNAME_REF_ID -> {
+                dest.append(BNAME_REF_ID, new BsonInt32(refId));
+            }
+            case BNAME_ATK -> {
+                dest.append(BNAME_ATK, new BsonInt32(atk));
+            }
+            case BNAME_DEF -> {
+                dest.append(BNAME_DEF, new BsonInt32(def));
+            }
+            case BNAME_HP -> {
+                dest.append(BNAME_HP, new BsonInt32(hp));
+            }
+            case BNAME_EXTENSION -> {
+                var extension = this.extension;
+                if (extension != null) {
+                    dest.append(BNAME_EXTENSION, extension);
+                }
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean loadField(String name, BsonDocument src) {
+        switch (name) {
+            case BNAME_ID -> {
+                id = BsonUtil.stringValue(src, BNAME_ID).orElse("");
+            }
+            case BNAME_REF_ID -> {
+                refId = BsonUtil.intValue(src, BNAME_REF_ID).orElse(0);
+            }
+            case BNAME_ATK -> {
+                atk = BsonUtil.intValue(src, BNAME_ATK).orElse(0);
+            }
+            case BNAME_DEF -> {
+                def = BsonUtil.intValue(src, BNAME_DEF).orElse(0);
+            }
+            case BNAME_HP -> {
+                hp = BsonUtil.intValue(src, BNAME_HP).orElse(0);
+            }
+            case BNAME_EXTENSION -> {
+                extension = BsonUtil.documentValue(src, BNAME_EXTENSION).orElse(null);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected AbstractBsonModel<?, ?> fieldModel(String name) {
+        return null;
+    }
+
     @Override
     protected void loadObjectNode(JsonNode src) {
         resetStates();
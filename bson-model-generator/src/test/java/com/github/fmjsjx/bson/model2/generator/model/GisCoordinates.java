@@ -27,7 +27,16 @@ public class GisCoordinates extends ObjectModel<GisCoordinates> {
 
     public void setLongitude(double longitude) {
         if (longitude != this.longitude) {
-            this.longitude = longitude;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var longitudeOriginal = this.longitude;
+                    undoLog.append(() -> this.longitude = longitudeOriginal);
+                }
+                this.longitude = longitude;
+            } finally {
+                afterChange();
+            }
             fieldChanged(0);
         }
     }
@@ -38,7 +47,16 @@ public class GisCoordinates extends ObjectModel<GisCoordinates> {
 
     public void setLatitude(double latitude) {
         if (latitude != this.latitude) {
-            this.latitude = latitude;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var latitudeOriginal = this.latitude;
+                    undoLog.append(() -> this.latitude = latitudeOriginal);
+                }
+                this.latitude = latitude;
+            } finally {
+                afterChange();
+            }
             fieldChanged(1);
         }
     }
@@ -49,7 +67,16 @@ public class GisCoordinates extends ObjectModel<GisCoordinates> {
 
     public void setHeight(Double height) {
         if (!Objects.equals(height, this.height)) {
-            this.height = height;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var heightOriginal = this.height;
+                    undoLog.append(() -> this.height = heightOriginal);
+                }
+                this.height = height;
+            } finally {
+                afterChange();
+            }
             fieldChanged(2);
         }
     }
@@ -78,12 +105,29 @@ public class GisCoordinates extends ObjectModel<GisCoordinates> {
         return bson;
     }
 
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        size += BsonSizes.elementSize(BNAME_LONGITUDE, new BsonDouble(longitude));
+        size += BsonSizes.elementSize(BNAME_LATITUDE, new BsonDouble(latitude));
+        var height = this.height;
+        if (height != null) {
+            size += BsonSizes.elementSize(BNAME_HEIGHT, new BsonDouble(height));
+        }
+        return size;
+    }
+
     @Override
     public GisCoordinates load(BsonDocument src) {
-        resetStates();
-        longitude = BsonUtil.doubleValue(src, BNAME_LONGITUDE).orElseThrow();
-        latitude = BsonUtil.doubleValue(src, BNAME_LATITUDE).orElseThrow();
-        height = BsonUtil.boxedDoubleValue(src, BNAME_HEIGHT).orElse(null);
+        beforeChange();
+        try {
+            resetStates();
+            longitude = BsonUtil.doubleValue(src, BNAME_LONGITUDE).orElseThrow();
+            latitude = BsonUtil.doubleValue(src, BNAME_LATITUDE).orElseThrow();
+            height = BsonUtil.boxedDoubleValue(src, BNAME_HEIGHT).orElse(null);
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -172,10 +216,15 @@ public class GisCoordinates extends ObjectModel<GisCoordinates> {
 
     @Override
     public GisCoordinates clean() {
-        longitude = Double.NaN;
-        latitude = Double.NaN;
-        height = null;
-        resetStates();
+        beforeChange();
+        try {
+            longitude = Double.NaN;
+            latitude = Double.NaN;
+            height = null;
+            resetStates();
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -193,6 +242,20 @@ public class GisCoordinates extends ObjectModel<GisCoordinates> {
         height = src.height;
     }
 
+    @Override
+    protected GisCoordinates snapshotCopy() {
+        var copy = new GisCoordinates();
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(GisCoordinates src) {
+        longitude = src.longitude;
+        latitude = src.latitude;
+        height = src.height;
+    }
+
     @Override
     protected void appendFieldUpdates(List<Bson> updates) {
         var changedFields = this.changedFields;
@@ -215,6 +278,62 @@ public class GisCoordinates extends ObjectModel<GisCoordinates> {
         }
     }
 
+    @Override
+    protected String fieldName(int index) {
+        return switch (index) {
+            case 0 -> BNAME_LONGITUDE;
+            case 1 -> BNAME_LATITUDE;
+            case 2 -> BNAME_HEIGHT;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected boolean appendFieldBson(String name, BsonDocument dest) {
+        switch (name) {
+            case BNAME_LONGITUDE -> {
+                dest.append(BNAME_LONGITUDE, new BsonDouble(longitude));
+            }
+            case BNAME_LATITUDE -> {
+                dest.append(BNAME_LATITUDE, new BsonDouble(latitude));
+            }
+            case BNAME_HEIGHT -> {
+                var height = this.height;
+                if (height != null) {
+                    dest.append(BNAME_HEIGHT, new BsonDouble(height));
+                }
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean loadField(String name, BsonDocument src) {
+        switch (name) {
+            case BNAME_LONGITUDE -> {
+                longitude = BsonUtil.doubleValue(src, BNAME_LONGITUDE).orElseThrow();
+            }
+            case BNAME_LATITUDE -> {
+                latitude = BsonUtil.doubleValue(src, BNAME_LATITUDE).orElseThrow();
+            }
+            case BNAME_HEIGHT -> {
+                height = BsonUtil.boxedDoubleValue(src, BNAME_HEIGHT).orElse(null);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected AbstractBsonModel<?, ?> fieldModel(String name) {
+        return null;
+    }
+
     @Override
     protected void loadObjectNode(JsonNode src) {
         resetStates();
@@ -0,0 +1,319 @@
+package com.github.fmjsjx.bson.model2.generator.model;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fmjsjx.bson.model.core.BsonUtil;
+import com.github.fmjsjx.bson.model2.core.*;
+import com.mongodb.client.model.Updates;
+import org.bson.*;
+import org.bson.conversions.Bson;
+
+import java.util.*;
+
+public class Guild extends RootModel<Guild> {
+
+    public static final String BNAME_ID = "_id";
+    public static final String BNAME_BANK = "b";
+
+    private int id;
+    private final ConcurrentMapModel<Integer, Long> bank = ConcurrentMapModel.integerKeysMap(SingleValueTypes.LONG).parent(this).key(BNAME_BANK).index(1);
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        if (id != this.id) {
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var idOriginal = this.id;
+                    undoLog.append(() -> this.id = idOriginal);
+                }
+                this.id = id;
+            } finally {
+                afterChange();
+            }
+            fieldChanged(0);
+        }
+    }
+
+    public ConcurrentMapModel<Integer, Long> getBank() {
+        return bank;
+    }
+
+    public boolean idChanged() {
+        return changedFields.get(0);
+    }
+
+    public boolean bankChanged() {
+        return changedFields.get(1);
+    }
+
+    @Override
+    public BsonDocument toBson() {
+        var event = ModelOperationEvent.start();
+        var startTime = metricsStartTime();
+        var bson = new BsonDocument();
+        bson.append(BNAME_ID, new BsonInt32(id));
+        bson.append(BNAME_BANK, bank.toBson());
+        metricsEncoded(startTime, bson);
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_BSON, bson);
+        }
+        return bson;
+    }
+
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        size += BsonSizes.elementSize(BNAME_ID, new BsonInt32(id));
+        size += BsonSizes.elementSize(BNAME_BANK, bank.estimateBsonSize());
+        return size;
+    }
+
+    @Override
+    public Guild load(BsonDocument src) {
+        var event = ModelOperationEvent.start();
+        var startTime = metricsStartTime();
+        beforeChange();
+        try {
+            resetStates();
+            id = BsonUtil.intValue(src, BNAME_ID).orElseThrow();
+            BsonUtil.documentValue(src, BNAME_BANK).ifPresentOrElse(bank::load, bank::clean);
+        } finally {
+            afterChange();
+        }
+        metricsLoaded(startTime);
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.LOAD, src);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonNode toJsonNode() {
+        var jsonNode = JsonNodeFactory.instance.objectNode();
+        jsonNode.put(BNAME_ID, id);
+        jsonNode.set(BNAME_BANK, bank.toJsonNode());
+        return jsonNode;
+    }
+
+    @Override
+    public JSONObject toFastjson2Node() {
+        var jsonObject = new JSONObject();
+        jsonObject.put(BNAME_ID, id);
+        jsonObject.put(BNAME_BANK, bank.toFastjson2Node());
+        return jsonObject;
+    }
+
+    @Override
+    public Map<Object, Object> toData() {
+        var event = ModelOperationEvent.start();
+        var data = new LinkedHashMap<>();
+        data.put("id", id);
+        data.put("bank", bank.toData());
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_DATA);
+        }
+        return data;
+    }
+
+    @Override
+    public boolean anyUpdated() {
+        var changedFields = this.changedFields;
+        if (changedFields.isEmpty()) {
+            return false;
+        }
+        if (changedFields.get(0)) {
+            return true;
+        }
+        if (changedFields.get(1) && bank.anyUpdated()) {
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void resetChildren() {
+        bank.reset();
+    }
+
+    @Override
+    protected int deletedSize() {
+        var changedFields = this.changedFields;
+        if (changedFields.isEmpty()) {
+            return 0;
+        }
+        var n = 0;
+        if (changedFields.get(1) && bank.anyDeleted()) {
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public boolean anyDeleted() {
+        var changedFields = this.changedFields;
+        if (changedFields.isEmpty()) {
+            return false;
+        }
+        if (changedFields.get(1) && bank.anyDeleted()) {
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Guild clean() {
+        beforeChange();
+        try {
+            id = 0;
+            bank.clean();
+            resetStates();
+        } finally {
+            afterChange();
+        }
+        return this;
+    }
+
+    @Override
+    public Guild deepCopy() {
+        var copy = new Guild();
+        deepCopyTo(copy, false);
+        return copy;
+    }
+
+    @Override
+    public void deepCopyFrom(Guild src) {
+        id = src.id;
+        src.bank.deepCopyTo(bank, false);
+    }
+
+    @Override
+    protected Guild snapshotCopy() {
+        var copy = new Guild();
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(Guild src) {
+        id = src.id;
+        copyForSnapshot(src.bank, bank);
+    }
+
+    @Override
+    protected void appendFieldUpdates(List<Bson> updates) {
+        var changedFields = this.changedFields;
+        if (changedFields.isEmpty()) {
+            return;
+        }
+        if (changedFields.get(0)) {
+            updates.add(Updates.set(path().resolve(BNAME_ID).value(), id));
+        }
+        if (changedFields.get(1)) {
+            bank.appendUpdates(updates);
+        }
+    }
+
+    @Override
+    protected String fieldName(int index) {
+        return switch (index) {
+            case 0 -> BNAME_ID;
+            case 1 -> BNAME_BANK;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected boolean appendFieldBson(String name, BsonDocument dest) {
+        switch (name) {
+            case BNAME_ID -> {
+                dest.append(BNAME_ID, new BsonInt32(id));
+            }
+            case BNAME_BANK -> {
+                dest.append(BNAME_BANK, bank.toBson());
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean loadField(String name, BsonDocument src) {
+        switch (name) {
+            case BNAME_ID -> {
+                id = BsonUtil.intValue(src, BNAME_ID).orElseThrow();
+            }
+            case BNAME_BANK -> {
+                BsonUtil.documentValue(src, BNAME_BANK).ifPresentOrElse(bank::load, bank::clean);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected AbstractBsonModel<?, ?> fieldModel(String name) {
+        return switch (name) {
+            case BNAME_BANK -> this.bank;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected void loadObjectNode(JsonNode src) {
+        resetStates();
+        id = BsonUtil.intValue(src, BNAME_ID).orElseThrow();
+        BsonUtil.objectValue(src, BNAME_BANK).ifPresentOrElse(bank::load, bank::clean);
+    }
+
+    @Override
+    protected void loadJSONObject(JSONObject src) {
+        resetStates();
+        id = BsonUtil.intValue(src, BNAME_ID).orElseThrow();
+        BsonUtil.objectValue(src, BNAME_BANK).ifPresentOrElse(bank::loadFastjson2Node, bank::clean);
+    }
+
+    @Override
+    protected void appendUpdateData(Map<Object, Object> data) {
+        var changedFields = this.changedFields;
+        if (changedFields.isEmpty()) {
+            return;
+        }
+        if (changedFields.get(0)) {
+            data.put("id", id);
+        }
+        if (changedFields.get(1)) {
+            var bankUpdateData = bank.toUpdateData();
+            if (bankUpdateData != null) {
+                data.put("bank", bankUpdateData);
+            }
+        }
+    }
+
+    @Override
+    protected void appendDeletedData(Map<Object, Object> data) {
+        var changedFields = this.changedFields;
+        if (changedFields.get(1)) {
+            var bankDeletedData = bank.toDeletedData();
+            if (bankDeletedData != null) {
+                data.put("bank", bankDeletedData);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Guild(" + "id=" + id +
+                ", bank=" + bank +
+                ")";
+    }
+
+}
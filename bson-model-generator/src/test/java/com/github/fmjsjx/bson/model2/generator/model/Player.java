@@ -47,7 +47,16 @@ public class Player extends RootModel<Player> {
 
     public void setId(int id) {
         if (id != this.id) {
-            this.id = id;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var idOriginal = this.id;
+                    undoLog.append(() -> this.id = idOriginal);
+                }
+                this.id = id;
+            } finally {
+                afterChange();
+            }
             fieldChanged(0);
         }
     }
@@ -74,14 +83,33 @@ public class Player extends RootModel<Player> {
 
     public void setUpdateVersion(int updateVersion) {
         if (updateVersion != this.updateVersion) {
-            this.updateVersion = updateVersion;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var updateVersionOriginal = this.updateVersion;
+                    undoLog.append(() -> this.updateVersion = updateVersionOriginal);
+                }
+                this.updateVersion = updateVersion;
+            } finally {
+                afterChange();
+            }
             fieldChanged(5);
         }
     }
 
     public int increaseUpdateVersion() {
+        var undoLog = beforeChange();
+        try {
+            if (undoLog != null) {
+                var updateVersionOriginal = this.updateVersion;
+                undoLog.append(() -> this.updateVersion = updateVersionOriginal);
+            }
+            ++this.updateVersion;
+        } finally {
+            afterChange();
+        }
         fieldChanged(5);
-        return ++updateVersion;
+        return this.updateVersion;
     }
 
     public LocalDateTime getCreateTime() {
@@ -91,7 +119,16 @@ public class Player extends RootModel<Player> {
     public void setCreateTime(LocalDateTime createTime) {
         Objects.requireNonNull(createTime, "createTime must not be null");
         if (!createTime.equals(this.createTime)) {
-            this.createTime = createTime;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var createTimeOriginal = this.createTime;
+                    undoLog.append(() -> this.createTime = createTimeOriginal);
+                }
+                this.createTime = createTime;
+            } finally {
+                afterChange();
+            }
             fieldsChanged(6, 8);
         }
     }
@@ -103,7 +140,16 @@ public class Player extends RootModel<Player> {
     public void setUpdateTime(LocalDateTime updateTime) {
         Objects.requireNonNull(updateTime, "updateTime must not be null");
         if (!updateTime.equals(this.updateTime)) {
-            this.updateTime = updateTime;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var updateTimeOriginal = this.updateTime;
+                    undoLog.append(() -> this.updateTime = updateTimeOriginal);
+                }
+                this.updateTime = updateTime;
+            } finally {
+                afterChange();
+            }
             fieldsChanged(7, 9);
         }
     }
@@ -166,6 +212,8 @@ public class Player extends RootModel<Player> {
 
     @Override
     public BsonDocument toBson() {
+        var event = ModelOperationEvent.start();
+        var startTime = metricsStartTime();
         var bson = new BsonDocument();
         bson.append(BNAME_ID, new BsonInt32(id));
         bson.append(BNAME_BASIC_INFO, basicInfo.toBson());
@@ -175,21 +223,50 @@ public class Player extends RootModel<Player> {
         bson.append(BNAME_UPDATE_VERSION, new BsonInt32(updateVersion));
         bson.append(BNAME_CREATE_TIME, BsonUtil.toBsonDateTime(createTime));
         bson.append(BNAME_UPDATE_TIME, BsonUtil.toBsonDateTime(updateTime));
+        metricsEncoded(startTime, bson);
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_BSON, bson);
+        }
         return bson;
     }
 
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        size += BsonSizes.elementSize(BNAME_ID, new BsonInt32(id));
+        size += BsonSizes.elementSize(BNAME_BASIC_INFO, basicInfo.estimateBsonSize());
+        size += BsonSizes.elementSize(BNAME_WALLET, wallet.estimateBsonSize());
+        size += BsonSizes.elementSize(BNAME_EQUIPMENTS, equipments.estimateBsonSize());
+        size += BsonSizes.elementSize(BNAME_ITEMS, items.estimateBsonSize());
+        size += BsonSizes.elementSize(BNAME_UPDATE_VERSION, new BsonInt32(updateVersion));
+        size += BsonSizes.elementSize(BNAME_CREATE_TIME, BsonUtil.toBsonDateTime(createTime));
+        size += BsonSizes.elementSize(BNAME_UPDATE_TIME, BsonUtil.toBsonDateTime(updateTime));
+        return size;
+    }
+
     @Override
     public Player load(BsonDocument src) {
-        resetStates();
-        id = BsonUtil.intValue(src, BNAME_ID).orElseThrow();
-        BsonUtil.documentValue(src, BNAME_BASIC_INFO).ifPresentOrElse(basicInfo::load, basicInfo::clean);
-        BsonUtil.documentValue(src, BNAME_WALLET).ifPresentOrElse(wallet::load, wallet::clean);
-        BsonUtil.documentValue(src, BNAME_EQUIPMENTS).ifPresentOrElse(equipments::load, equipments::clean);
-        BsonUtil.documentValue(src, BNAME_ITEMS).ifPresentOrElse(items::load, items::clean);
-        updateVersion = BsonUtil.intValue(src, BNAME_UPDATE_VERSION).orElse(0);
-        createTime = BsonUtil.dateTimeValue(src, BNAME_CREATE_TIME).orElseThrow();
-        updateTime = BsonUtil.dateTimeValue(src, BNAME_UPDATE_TIME).orElseThrow();
-        friends = BsonUtil.arrayValue(src, BNAME_FRIENDS, (BsonDocument v) -> new Player().load(v)).orElse(null);
+        var event = ModelOperationEvent.start();
+        var startTime = metricsStartTime();
+        beforeChange();
+        try {
+            resetStates();
+            id = BsonUtil.intValue(src, BNAME_ID).orElseThrow();
+            BsonUtil.documentValue(src, BNAME_BASIC_INFO).ifPresentOrElse(basicInfo::load, basicInfo::clean);
+            BsonUtil.documentValue(src, BNAME_WALLET).ifPresentOrElse(wallet::load, wallet::clean);
+            BsonUtil.documentValue(src, BNAME_EQUIPMENTS).ifPresentOrElse(equipments::load, equipments::clean);
+            BsonUtil.documentValue(src, BNAME_ITEMS).ifPresentOrElse(items::load, items::clean);
+            updateVersion = BsonUtil.intValue(src, BNAME_UPDATE_VERSION).orElse(0);
+            createTime = BsonUtil.dateTimeValue(src, BNAME_CREATE_TIME).orElseThrow();
+            updateTime = BsonUtil.dateTimeValue(src, BNAME_UPDATE_TIME).orElseThrow();
+            friends = BsonUtil.arrayValue(src, BNAME_FRIENDS, (BsonDocument v) -> new Player().load(v)).orElse(null);
+        } finally {
+            afterChange();
+        }
+        metricsLoaded(startTime);
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.LOAD, src);
+        }
         return this;
     }
 
@@ -235,6 +312,7 @@ public class Player extends RootModel<Player> {
 
     @Override
     public Map<Object, Object> toData() {
+        var event = ModelOperationEvent.start();
         var data = new LinkedHashMap<>();
         data.put("uid", id);
         data.put("basicInfo", basicInfo.toData());
@@ -247,6 +325,9 @@ public class Player extends RootModel<Player> {
         if (friends != null) {
             data.put("friends", friends.stream().map(Player::toData).toList());
         }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_DATA);
+        }
         return data;
     }
 
@@ -336,16 +417,21 @@ public class Player extends RootModel<Player> {
 
     @Override
     public Player clean() {
-        id = 0;
-        basicInfo.clean();
-        wallet.clean();
-        equipments.clean();
-        items.clean();
-        updateVersion = 0;
-        createTime = null;
-        updateTime = null;
-        friends = null;
-        resetStates();
+        beforeChange();
+        try {
+            id = 0;
+            basicInfo.clean();
+            wallet.clean();
+            equipments.clean();
+            items.clean();
+            updateVersion = 0;
+            createTime = null;
+            updateTime = null;
+            friends = null;
+            resetStates();
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -382,6 +468,39 @@ public class Player extends RootModel<Player> {
         }
     }
 
+    @Override
+    protected Player snapshotCopy() {
+        var copy = new Player();
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(Player src) {
+        id = src.id;
+        copyForSnapshot(src.basicInfo, basicInfo);
+        copyForSnapshot(src.wallet, wallet);
+        copyForSnapshot(src.equipments, equipments);
+        copyForSnapshot(src.items, items);
+        updateVersion = src.updateVersion;
+        createTime = src.createTime;
+        updateTime = src.updateTime;
+        var friends = src.friends;
+        if (friends != null) {
+            var friendsCopy = new ArrayList<Player>(friends.size());
+            for (var friendsCopyValue : friends) {
+                if (friendsCopyValue == null) {
+                    friendsCopy.add(null);
+                } else {
+                    friendsCopy.add(friendsCopyValue.deepCopy());
+                }
+            }
+            this.friends = friendsCopy;
+        } else {
+            this.friends = null;
+        }
+    }
+
     @Override
     protected void appendFieldUpdates(List<Bson> updates) {
         var changedFields = this.changedFields;
@@ -414,6 +533,103 @@ public class Player extends RootModel<Player> {
         }
     }
 
+    @Override
+    protected String fieldName(int index) {
+        return switch (index) {
+            case 0 -> BNAME_ID;
+            case 1 -> BNAME_BASIC_INFO;
+            case 2 -> BNAME_WALLET;
+            case 3 -> BNAME_EQUIPMENTS;
+            case 4 -> BNAME_ITEMS;
+            case 5 -> BNAME_UPDATE_VERSION;
+            case 6 -> BNAME_CREATE_TIME;
+            case 7 -> BNAME_UPDATE_TIME;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected boolean appendFieldBson(String name, BsonDocument dest) {
+        switch (name) {
+            case BNAME_ID -> {
+                dest.append(BNAME_ID, new BsonInt32(id));
+            }
+            case BNAME_BASIC_INFO -> {
+                dest.append(BNAME_BASIC_INFO, basicInfo.toBson());
+            }
+            case BNAME_WALLET -> {
+                dest.append(BNAME_WALLET, wallet.toBson());
+            }
+            case BNAME_EQUIPMENTS -> {
+                dest.append(BNAME_EQUIPMENTS, equipments.toBson());
+            }
+            case BNAME_ITEMS -> {
+                dest.append(BNAME_ITEMS, items.toBson());
+            }
+            case BNAME_UPDATE_VERSION -> {
+                dest.append(BNAME_UPDATE_VERSION, new BsonInt32(updateVersion));
+            }
+            case BNAME_CREATE_TIME -> {
+                dest.append(BNAME_CREATE_TIME, BsonUtil.toBsonDateTime(createTime));
+            }
+            case BNAME_UPDATE_TIME -> {
+                dest.append(BNAME_UPDATE_TIME, BsonUtil.toBsonDateTime(updateTime));
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean loadField(String name, BsonDocument src) {
+        switch (name) {
+            case BNAME_ID -> {
+                id = BsonUtil.intValue(src, BNAME_ID).orElseThrow();
+            }
+            case BNAME_BASIC_INFO -> {
+                BsonUtil.documentValue(src, BNAME_BASIC_INFO).ifPresentOrElse(basicInfo::load, basicInfo::clean);
+            }
+            case BNAME_WALLET -> {
+                BsonUtil.documentValue(src, BNAME_WALLET).ifPresentOrElse(wallet::load, wallet::clean);
+            }
+            case BNAME_EQUIPMENTS -> {
+                BsonUtil.documentValue(src, BNAME_EQUIPMENTS).ifPresentOrElse(equipments::load, equipments::clean);
+            }
+            case BNAME_ITEMS -> {
+                BsonUtil.documentValue(src, BNAME_ITEMS).ifPresentOrElse(items::load, items::clean);
+            }
+            case BNAME_UPDATE_VERSION -> {
+                updateVersion = BsonUtil.intValue(src, BNAME_UPDATE_VERSION).orElse(0);
+            }
+            case BNAME_CREATE_TIME -> {
+                createTime = BsonUtil.dateTimeValue(src, BNAME_CREATE_TIME).orElseThrow();
+            }
+            case BNAME_UPDATE_TIME -> {
+                updateTime = BsonUtil.dateTimeValue(src, BNAME_UPDATE_TIME).orElseThrow();
+            }
+            case BNAME_FRIENDS -> {
+                friends = BsonUtil.arrayValue(src, BNAME_FRIENDS, (BsonDocument v) -> new Player().load(v)).orElse(null);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected AbstractBsonModel<?, ?> fieldModel(String name) {
+        return switch (name) {
+            case BNAME_BASIC_INFO -> this.basicInfo;
+            case BNAME_WALLET -> this.wallet;
+            case BNAME_EQUIPMENTS -> this.equipments;
+            case BNAME_ITEMS -> this.items;
+            default -> null;
+        };
+    }
+
     @Override
     protected void loadObjectNode(JsonNode src) {
         resetStates();
@@ -30,10 +30,26 @@ public class Room extends RootModel<Room> {
         return new BsonDocument();
     }
 
+    @Override
+    protected int computeBsonSize() {
+        return BsonSizes.EMPTY_DOCUMENT_SIZE;
+    }
+
     @Override
     public Room load(BsonDocument src) {
-        resetStates();
-        players = BsonUtil.arrayValue(src, BNAME_PLAYERS, (BsonDocument v) -> new Player().load(v)).orElse(null);
+        var event = ModelOperationEvent.start();
+        var startTime = metricsStartTime();
+        beforeChange();
+        try {
+            resetStates();
+            players = BsonUtil.arrayValue(src, BNAME_PLAYERS, (BsonDocument v) -> new Player().load(v)).orElse(null);
+        } finally {
+            afterChange();
+        }
+        metricsLoaded(startTime);
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.LOAD, src);
+        }
         return this;
     }
 
@@ -63,11 +79,15 @@ public class Room extends RootModel<Room> {
 
     @Override
     public Map<Object, Object> toData() {
+        var event = ModelOperationEvent.start();
         var data = new LinkedHashMap<>();
         var players = this.players;
         if (players != null) {
             data.put("players", players.stream().map(Player::toData).toList());
         }
+        if (event != null) {
+            event.commit(this, ModelOperationEvent.TO_DATA);
+        }
         return data;
     }
 
@@ -92,8 +112,13 @@ public class Room extends RootModel<Room> {
 
     @Override
     public Room clean() {
-        players = null;
-        resetStates();
+        beforeChange();
+        try {
+            players = null;
+            resetStates();
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -122,10 +147,63 @@ public class Room extends RootModel<Room> {
         }
     }
 
+    @Override
+    protected Room snapshotCopy() {
+        var copy = new Room();
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(Room src) {
+        var players = src.players;
+        if (players != null) {
+            var playersCopy = new ArrayList<Player>(players.size());
+            for (var playersCopyValue : players) {
+                if (playersCopyValue == null) {
+                    playersCopy.add(null);
+                } else {
+                    playersCopy.add(playersCopyValue.deepCopy());
+                }
+            }
+            this.players = playersCopy;
+        } else {
+            this.players = null;
+        }
+    }
+
     @Override
     protected void appendFieldUpdates(List<Bson> updates) {
     }
 
+    @Override
+    protected String fieldName(int index) {
+        return null;
+    }
+
+    @Override
+    protected boolean appendFieldBson(String name, BsonDocument dest) {
+        return false;
+    }
+
+    @Override
+    protected boolean loadField(String name, BsonDocument src) {
+        switch (name) {
+            case BNAME_PLAYERS -> {
+                players = BsonUtil.arrayValue(src, BNAME_PLAYERS, (BsonDocument v) -> new Player().load(v)).orElse(null);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected AbstractBsonModel<?, ?> fieldModel(String name) {
+        return null;
+    }
+
     @Override
     protected void loadObjectNode(JsonNode src) {
         resetStates();
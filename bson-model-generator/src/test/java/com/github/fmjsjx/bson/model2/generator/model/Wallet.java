@@ -29,13 +29,31 @@ public class Wallet extends ObjectModel<Wallet> {
 
     public void setCoinTotal(long coinTotal) {
         if (coinTotal != this.coinTotal) {
-            this.coinTotal = coinTotal;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var coinTotalOriginal = this.coinTotal;
+                    undoLog.append(() -> this.coinTotal = coinTotalOriginal);
+                }
+                this.coinTotal = coinTotal;
+            } finally {
+                afterChange();
+            }
             fieldsChanged(0, 2);
         }
     }
 
     public long addCoinTotal(long coinTotal) {
-        coinTotal = this.coinTotal += coinTotal;
+        var undoLog = beforeChange();
+        try {
+            if (undoLog != null) {
+                var coinTotalOriginal = this.coinTotal;
+                undoLog.append(() -> this.coinTotal = coinTotalOriginal);
+            }
+            coinTotal = this.coinTotal += coinTotal;
+        } finally {
+            afterChange();
+        }
         fieldsChanged(0, 2);
         return coinTotal;
     }
@@ -46,13 +64,31 @@ public class Wallet extends ObjectModel<Wallet> {
 
     public void setCoinUsed(long coinUsed) {
         if (coinUsed != this.coinUsed) {
-            this.coinUsed = coinUsed;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var coinUsedOriginal = this.coinUsed;
+                    undoLog.append(() -> this.coinUsed = coinUsedOriginal);
+                }
+                this.coinUsed = coinUsed;
+            } finally {
+                afterChange();
+            }
             fieldsChanged(1, 2);
         }
     }
 
     public long addCoinUsed(long coinUsed) {
-        coinUsed = this.coinUsed += coinUsed;
+        var undoLog = beforeChange();
+        try {
+            if (undoLog != null) {
+                var coinUsedOriginal = this.coinUsed;
+                undoLog.append(() -> this.coinUsed = coinUsedOriginal);
+            }
+            coinUsed = this.coinUsed += coinUsed;
+        } finally {
+            afterChange();
+        }
         fieldsChanged(1, 2);
         return coinUsed;
     }
@@ -61,13 +97,36 @@ public class Wallet extends ObjectModel<Wallet> {
         return coinTotal - coinUsed;
     }
 
+    public long readCoin() {
+        var root = root();
+        if (root == null) {
+            return getCoin();
+        }
+        for (; ; ) {
+            var stamp = root.beginRead();
+            var coin = getCoin();
+            if (root.validateRead(stamp)) {
+                return coin;
+            }
+        }
+    }
+
     public long getDiamond() {
         return diamond;
     }
 
     public void setDiamond(long diamond) {
         if (diamond != this.diamond) {
-            this.diamond = diamond;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var diamondOriginal = this.diamond;
+                    undoLog.append(() -> this.diamond = diamondOriginal);
+                }
+                this.diamond = diamond;
+            } finally {
+                afterChange();
+            }
             fieldChanged(3);
         }
     }
@@ -78,14 +137,33 @@ public class Wallet extends ObjectModel<Wallet> {
 
     public void setAd(long ad) {
         if (ad != this.ad) {
-            this.ad = ad;
+            var undoLog = beforeChange();
+            try {
+                if (undoLog != null) {
+                    var adOriginal = this.ad;
+                    undoLog.append(() -> this.ad = adOriginal);
+                }
+                this.ad = ad;
+            } finally {
+                afterChange();
+            }
             fieldChanged(4);
         }
     }
 
     public long increaseAd() {
+        var undoLog = beforeChange();
+        try {
+            if (undoLog != null) {
+                var adOriginal = this.ad;
+                undoLog.append(() -> this.ad = adOriginal);
+            }
+            ++this.ad;
+        } finally {
+            afterChange();
+        }
         fieldChanged(4);
-        return ++ad;
+        return this.ad;
     }
 
     public boolean coinTotalChanged() {
@@ -118,13 +196,28 @@ public class Wallet extends ObjectModel<Wallet> {
         return bson;
     }
 
+    @Override
+    protected int computeBsonSize() {
+        var size = BsonSizes.EMPTY_DOCUMENT_SIZE;
+        size += BsonSizes.elementSize(BNAME_COIN_TOTAL, new BsonInt64(coinTotal));
+        size += BsonSizes.elementSize(BNAME_COIN_USED, new BsonInt64(coinUsed));
+        size += BsonSizes.elementSize(BNAME_DIAMOND, new BsonInt64(diamond));
+        size += BsonSizes.elementSize(BNAME_AD, new BsonInt64(ad));
+        return size;
+    }
+
     @Override
     public Wallet load(BsonDocument src) {
-        resetStates();
-        coinTotal = BsonUtil.longValue(src, BNAME_COIN_TOTAL).orElse(0);
-        coinUsed = BsonUtil.longValue(src, BNAME_COIN_USED).orElse(0);
-        diamond = BsonUtil.longValue(src, BNAME_DIAMOND).orElse(0);
-        ad = BsonUtil.longValue(src, BNAME_AD).orElse(0);
+        beforeChange();
+        try {
+            resetStates();
+            coinTotal = BsonUtil.longValue(src, BNAME_COIN_TOTAL).orElse(0);
+            coinUsed = BsonUtil.longValue(src, BNAME_COIN_USED).orElse(0);
+            diamond = BsonUtil.longValue(src, BNAME_DIAMOND).orElse(0);
+            ad = BsonUtil.longValue(src, BNAME_AD).orElse(0);
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -195,11 +288,16 @@ public class Wallet extends ObjectModel<Wallet> {
 
     @Override
     public Wallet clean() {
-        coinTotal = 0;
-        coinUsed = 0;
-        diamond = 0;
-        ad = 0;
-        resetStates();
+        beforeChange();
+        try {
+            coinTotal = 0;
+            coinUsed = 0;
+            diamond = 0;
+            ad = 0;
+            resetStates();
+        } finally {
+            afterChange();
+        }
         return this;
     }
 
@@ -218,6 +316,21 @@ public class Wallet extends ObjectModel<Wallet> {
         ad = src.ad;
     }
 
+    @Override
+    protected Wallet snapshotCopy() {
+        var copy = new Wallet();
+        copy.snapshotCopyFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected void snapshotCopyFrom(Wallet src) {
+        coinTotal = src.coinTotal;
+        coinUsed = src.coinUsed;
+        diamond = src.diamond;
+        ad = src.ad;
+    }
+
     @Override
     protected void appendFieldUpdates(List<Bson> updates) {
         var changedFields = this.changedFields;
@@ -238,6 +351,66 @@ public class Wallet extends ObjectModel<Wallet> {
         }
     }
 
+    @Override
+    protected String fieldName(int index) {
+        return switch (index) {
+            case 0 -> BNAME_COIN_TOTAL;
+            case 1 -> BNAME_COIN_USED;
+            case 3 -> BNAME_DIAMOND;
+            case 4 -> BNAME_AD;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected boolean appendFieldBson(String name, BsonDocument dest) {
+        switch (name) {
+            case BNAME_COIN_TOTAL -> {
+                dest.append(BNAME_COIN_TOTAL, new BsonInt64(coinTotal));
+            }
+            case BNAME_COIN_USED -> {
+                dest.append(BNAME_COIN_USED, new BsonInt64(coinUsed));
+            }
+            case BNAME_DIAMOND -> {
+                dest.append(BNAME_DIAMOND, new BsonInt64(diamond));
+            }
+            case BNAME_AD -> {
+                dest.append(BNAME_AD, new BsonInt64(ad));
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean loadField(String name, BsonDocument src) {
+        switch (name) {
+            case BNAME_COIN_TOTAL -> {
+                coinTotal = BsonUtil.longValue(src, BNAME_COIN_TOTAL).orElse(0);
+            }
+            case BNAME_COIN_USED -> {
+                coinUsed = BsonUtil.longValue(src, BNAME_COIN_USED).orElse(0);
+            }
+            case BNAME_DIAMOND -> {
+                diamond = BsonUtil.longValue(src, BNAME_DIAMOND).orElse(0);
+            }
+            case BNAME_AD -> {
+                ad = BsonUtil.longValue(src, BNAME_AD).orElse(0);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected AbstractBsonModel<?, ?> fieldModel(String name) {
+        return null;
+    }
+
     @Override
     protected void loadObjectNode(JsonNode src) {
         resetStates();
@@ -12,3 +12,4 @@ rootProject.name = "bson-model"
 include(":bson-model-bom")
 include(":bson-model-core")
 include(":bson-model-generator")
+include(":bson-model-benchmarks")